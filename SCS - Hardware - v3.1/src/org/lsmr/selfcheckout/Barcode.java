@@ -1,13 +1,26 @@
 package org.lsmr.selfcheckout;
 
-import java.util.Arrays;
-
 /**
  * Represents a barcode value (not the graphic barcode itself). Real-world
  * barcodes are a sequence of digits, so that is what is modelled here.
+ * <p>
+ * The digits are packed four bits apiece into three longs, sixteen digits per
+ * long, and the hash code is computed once on construction. This keeps
+ * barcodes small and cheap to use as map keys.
+ * </p>
  */
 public class Barcode {
-	private Numeral[] digits;
+	private static final int DIGITS_PER_WORD = 16;
+	private static final Numeral[] NUMERALS = new Numeral[10];
+
+	static {
+		for(Numeral n : Numeral.values())
+			NUMERALS[n.getValue()] = n;
+	}
+
+	private final long word0, word1, word2;
+	private final byte length;
+	private final int hash;
 
 	/**
 	 * Constructs a barcode from an array of numerals.
@@ -26,20 +39,99 @@ public class Barcode {
 		if(code == null)
 			throw new NullPointerSimulationException("code");
 
-		digits = new Numeral[code.length];
+		checkLength(code.length);
 
-		if(code.length < 1)
-			throw new InvalidArgumentSimulationException("A barcode cannot contain less than one digit.");
-
-		if(code.length > 48)
-			throw new InvalidArgumentSimulationException("A barcode cannot contain more than forty-eight digits.");
+		long[] words = new long[3];
 
 		for(int i = 0; i < code.length; i++) {
 			if(code[i] == null)
 				throw new NullPointerSimulationException("code[" + i + "]");
 
-			digits[i] = code[i];
+			words[i / DIGITS_PER_WORD] |= (long)code[i].getValue() << (4 * (i % DIGITS_PER_WORD));
+		}
+
+		word0 = words[0];
+		word1 = words[1];
+		word2 = words[2];
+		length = (byte)code.length;
+		hash = computeHash();
+	}
+
+	/**
+	 * Constructs a barcode from a sequence of digit characters.
+	 * 
+	 * @param code
+	 *            A sequence of the characters '0' to '9'.
+	 * @throws SimulationException
+	 *             If any character in the input is not a digit between 0 and 9,
+	 *             inclusive.
+	 * @throws SimulationException
+	 *             If the code is null
+	 * @throws SimulationException
+	 *             If the code's length is &lt;1 or &gt;48.
+	 */
+	public Barcode(CharSequence code) {
+		if(code == null)
+			throw new NullPointerSimulationException("code");
+
+		checkLength(code.length());
+
+		long[] words = new long[3];
+
+		for(int i = 0; i < code.length(); i++) {
+			int digit = code.charAt(i) - '0';
+
+			if(digit < 0 || digit > 9)
+				throw new InvalidArgumentSimulationException("The code must be a string of numerals.");
+
+			words[i / DIGITS_PER_WORD] |= (long)digit << (4 * (i % DIGITS_PER_WORD));
 		}
+
+		word0 = words[0];
+		word1 = words[1];
+		word2 = words[2];
+		length = (byte)code.length();
+		hash = computeHash();
+	}
+
+	/**
+	 * Constructs a barcode of up to sixteen digits from its packed form, as
+	 * returned by {@link #getPackedDigits()}.
+	 * 
+	 * @param packedDigits
+	 *            The digits, four bits apiece, the first in the lowest four bits.
+	 * @param count
+	 *            The number of digits.
+	 * @throws SimulationException
+	 *             If the count is &lt;1 or &gt;16, if any digit is not between 0
+	 *             and 9, inclusive, or if any bits past the last digit are set.
+	 */
+	public Barcode(long packedDigits, int count) {
+		checkLength(count);
+
+		if(count > DIGITS_PER_WORD)
+			throw new InvalidArgumentSimulationException("A packed barcode cannot contain more than sixteen digits.");
+
+		if(count < DIGITS_PER_WORD && packedDigits >>> (4 * count) != 0)
+			throw new InvalidArgumentSimulationException("The packed code has bits past its last digit.");
+
+		for(int i = 0; i < count; i++)
+			if(((packedDigits >>> (4 * i)) & 0xF) > 9)
+				throw new InvalidArgumentSimulationException("The code must be a string of numerals.");
+
+		word0 = packedDigits;
+		word1 = 0;
+		word2 = 0;
+		length = (byte)count;
+		hash = computeHash();
+	}
+
+	private static void checkLength(int length) {
+		if(length < 1)
+			throw new InvalidArgumentSimulationException("A barcode cannot contain less than one digit.");
+
+		if(length > 48)
+			throw new InvalidArgumentSimulationException("A barcode cannot contain more than forty-eight digits.");
 	}
 
 	/**
@@ -48,7 +140,7 @@ public class Barcode {
 	 * @return The count of digits.
 	 */
 	public int digitCount() {
-		return digits.length;
+		return length;
 	}
 
 	/**
@@ -61,20 +153,34 @@ public class Barcode {
 	 *             If the index is outside the legal range.
 	 */
 	public Numeral getDigitAt(int index) {
-		try {
-			return digits[index];
-		}
-		catch(IndexOutOfBoundsException e) {
+		if(index < 0 || index >= length)
 			throw new InvalidArgumentSimulationException(index + " is outside the legal range.");
-		}
+
+		return NUMERALS[digitValue(index)];
+	}
+
+	/**
+	 * Gets the first sixteen digits of this code, packed four bits apiece with
+	 * the first digit in the lowest four bits. The bits of any digits past the
+	 * count are zero.
+	 * 
+	 * @return The packed digits.
+	 */
+	public long getPackedDigits() {
+		return word0;
+	}
+
+	private int digitValue(int index) {
+		long word = index < DIGITS_PER_WORD ? word0 : index < 2 * DIGITS_PER_WORD ? word1 : word2;
+		return (int)(word >>> (4 * (index % DIGITS_PER_WORD))) & 0xF;
 	}
 
 	@Override
 	public String toString() {
-		char[] characters = new char[digits.length];
+		char[] characters = new char[length];
 
-		for(int i = 0; i < digits.length; i++)
-			characters[i] = Character.forDigit(digits[i].getValue(), 10);
+		for(int i = 0; i < length; i++)
+			characters[i] = (char)('0' + digitValue(i));
 
 		return new String(characters);
 	}
@@ -84,14 +190,8 @@ public class Barcode {
 		if(object instanceof Barcode) {
 			Barcode other = (Barcode)object;
 
-			if(other.digits.length != digits.length)
-				return false;
-
-			for(int i = 0; i < digits.length; i++)
-				if(!digits[i].equals(other.digits[i]))
-					return false;
-
-			return true;
+			return other.hash == hash && other.length == length && other.word0 == word0 && other.word1 == word1
+				&& other.word2 == word2;
 		}
 
 		return false;
@@ -99,6 +199,15 @@ public class Barcode {
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(digits);
+		return hash;
+	}
+
+	private int computeHash() {
+		long h = word0 * 0x9E3779B97F4A7C15L;
+		h = (h ^ word1) * 0x9E3779B97F4A7C15L;
+		h = (h ^ word2) * 0x9E3779B97F4A7C15L;
+		h ^= length;
+		h ^= h >>> 32;
+		return (int)h;
 	}
 }
\ No newline at end of file
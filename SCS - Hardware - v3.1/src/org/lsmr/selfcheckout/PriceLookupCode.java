@@ -1,14 +1,26 @@
 package org.lsmr.selfcheckout;
 
-import java.util.Arrays;
-
 /**
  * Represents a PLU value, a sequence of digits that, in principle, could lie
  * anywhere in the range 0000-99999. Specific subranges are reserved for
  * specific purposes in the real world, but we will not worry about that here.
+ * <p>
+ * The numerals are packed into a single int and the hash code is computed once
+ * on construction, so codes are cheap to compare and to use as map keys.
+ * </p>
  */
 public class PriceLookupCode {
-	private Numeral[] numerals;
+	private static final Numeral[] NUMERALS = new Numeral[10];
+
+	static {
+		for(Numeral n : Numeral.values())
+			NUMERALS[n.getValue()] = n;
+	}
+
+	// four bits per numeral, first numeral in the lowest bits
+	private final int packed;
+	private final byte length;
+	private final int hash;
 
 	/**
 	 * Constructs a PLU code from a string of numerals. There must be at least 4
@@ -25,26 +37,47 @@ public class PriceLookupCode {
 	 *             If code is null.
 	 */
 	public PriceLookupCode(String code) {
+		this((CharSequence)code);
+	}
+
+	/**
+	 * Constructs a PLU code from a sequence of numerals, without first copying
+	 * it into a string. There must be at least 4 digits and at most 5.
+	 * 
+	 * @param code
+	 *            A sequence of digits.
+	 * @throws SimulationException
+	 *             If any character in the input is not a digit between 0 and 9,
+	 *             inclusive.
+	 * @throws SimulationException
+	 *             If the code contains less than 4 digits or more than 5 digits.
+	 * @throws NullPointerException
+	 *             If code is null.
+	 */
+	public PriceLookupCode(CharSequence code) {
 		if(code == null)
 			throw new NullPointerSimulationException("code");
 
-		char[] charArray = code.toCharArray();
-		numerals = new Numeral[charArray.length];
-
 		if(code.length() > 5)
 			throw new InvalidArgumentSimulationException("The code cannot contain more than five digits.");
 
 		if(code.length() < 4)
 			throw new InvalidArgumentSimulationException("The code cannot contain less than four digits.");
 
-		for(int i = 0; i < charArray.length; i++) {
-			try {
-				numerals[i] = Numeral.valueOf((byte)Character.digit(charArray[i], 10));
-			}
-			catch(IllegalDigitException e) {
+		int bits = 0;
+
+		for(int i = 0; i < code.length(); i++) {
+			int digit = Character.digit(code.charAt(i), 10);
+
+			if(digit < 0)
 				throw new InvalidArgumentSimulationException("The code must be a string of numerals.");
-			}
+
+			bits |= digit << (4 * i);
 		}
+
+		packed = bits;
+		length = (byte)code.length();
+		hash = 31 * (packed * 0x9E3779B9) + length;
 	}
 
 	/**
@@ -53,7 +86,7 @@ public class PriceLookupCode {
 	 * @return The count of numerals.
 	 */
 	public int numeralCount() {
-		return numerals.length;
+		return length;
 	}
 
 	/**
@@ -66,20 +99,18 @@ public class PriceLookupCode {
 	 *             If the index is outside the legal range.
 	 */
 	public Numeral getNumeralAt(int index) {
-		try {
-			return numerals[index];
-		}
-		catch(IndexOutOfBoundsException e) {
+		if(index < 0 || index >= length)
 			throw new InvalidArgumentSimulationException("The index cannot be outside the legal range.");
-		}
+
+		return NUMERALS[(packed >>> (4 * index)) & 0xF];
 	}
 
 	@Override
 	public String toString() {
-		char[] characters = new char[numerals.length];
+		char[] characters = new char[length];
 
-		for(int i = 0; i < numerals.length; i++)
-			characters[i] = Character.forDigit(numerals[i].getValue(), 10);
+		for(int i = 0; i < length; i++)
+			characters[i] = (char)('0' + ((packed >>> (4 * i)) & 0xF));
 
 		return new String(characters);
 	}
@@ -89,14 +120,7 @@ public class PriceLookupCode {
 		if(object instanceof PriceLookupCode) {
 			PriceLookupCode other = (PriceLookupCode)object;
 
-			if(other.numerals.length != numerals.length)
-				return false;
-
-			for(int i = 0; i < numerals.length; i++)
-				if(!numerals[i].equals(other.numerals[i]))
-					return false;
-
-			return true;
+			return other.packed == packed && other.length == length;
 		}
 
 		return false;
@@ -104,6 +128,6 @@ public class PriceLookupCode {
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(numerals);
+		return hash;
 	}
 }
@@ -1,9 +1,7 @@
 package org.lsmr.selfcheckout.devices;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 
 import org.lsmr.selfcheckout.Banknote;
 import org.lsmr.selfcheckout.IllegalConfigurationPhaseSimulationException;
@@ -26,7 +24,7 @@ import org.lsmr.selfcheckout.devices.observers.BanknoteDispenserObserver;
 public final class BanknoteDispenser extends AbstractDevice<BanknoteDispenserObserver>
 	implements FromStorageEmitter<Banknote> {
 	private int maxCapacity;
-	private Queue<Banknote> queue = new LinkedList<Banknote>();
+	private RingBuffer<Banknote> queue;
 	private UnidirectionalChannel<Banknote> sink;
 
 	/**
@@ -43,6 +41,7 @@ public final class BanknoteDispenser extends AbstractDevice<BanknoteDispenserObs
 			throw new InvalidArgumentSimulationException("Capacity must be positive: " + capacity);
 
 		this.maxCapacity = capacity;
+		this.queue = new RingBuffer<>(capacity);
 	}
 
 	/**
@@ -92,6 +91,47 @@ public final class BanknoteDispenser extends AbstractDevice<BanknoteDispenserObs
 		notifyBanknotesLoaded(banknotes);
 	}
 
+	/**
+	 * Allows a number of banknotes of the same kind to be loaded into the dispenser
+	 * directly, without a banknote instance for each. Existing banknotes in the
+	 * dispenser are not removed. On success, announces "banknotesLoaded" event
+	 * once for them all, unless there are none.
+	 * 
+	 * @param count
+	 *            How many banknotes to add. Cannot be negative.
+	 * @param banknote
+	 *            The kind of banknote to add. Cannot be null.
+	 * @throws OverloadException
+	 *             if the number of banknotes to be loaded exceeds the capacity of the
+	 *             dispenser.
+	 * @throws SimulationException
+	 *             If the banknote is null or the count is negative.
+	 * @throws IllegalErrorPhaseSimulationException
+	 *             If the device is in the error phase.
+	 */
+	public void load(int count, Banknote banknote) throws SimulationException, OverloadException {
+		if(phase == Phase.ERROR)
+			throw new IllegalErrorPhaseSimulationException();
+
+		if(banknote == null)
+			throw new NullPointerSimulationException("banknote instance");
+
+		if(count < 0)
+			throw new InvalidArgumentSimulationException("count cannot be negative: " + count);
+
+		if(count > maxCapacity - queue.size())
+			throw new OverloadException("Capacity of dispenser is exceeded by load");
+
+		if(count == 0)
+			return;
+
+		queue.add(banknote, count);
+
+		Banknote[] loaded = new Banknote[count];
+		Arrays.fill(loaded, banknote);
+		notifyBanknotesLoaded(loaded);
+	}
+
 	/**
 	 * Unloads banknotes from the dispenser directly. Announces "banknotesUnloaded"
 	 * event.
@@ -104,8 +144,34 @@ public final class BanknoteDispenser extends AbstractDevice<BanknoteDispenserObs
 		if(phase == Phase.ERROR)
 			throw new IllegalErrorPhaseSimulationException();
 
-		List<Banknote> result = new ArrayList<>(queue);
-		queue.clear();
+		List<Banknote> result = queue.removeAll();
+
+		notifyBanknotesUnoaded(result.toArray(new Banknote[result.size()]));
+
+		return result;
+	}
+
+	/**
+	 * Unloads up to the indicated number of banknotes from the dispenser directly,
+	 * those that would be dispensed first. On success, announces
+	 * "banknotesUnloaded" event once for them all.
+	 * 
+	 * @param count
+	 *            The most banknotes to unload. Cannot be negative.
+	 * @return A list of the banknotes unloaded. May be empty. Will never be null.
+	 * @throws SimulationException
+	 *             If the count is negative.
+	 * @throws IllegalErrorPhaseSimulationException
+	 *             If the device is in the error phase.
+	 */
+	public List<Banknote> unload(int count) {
+		if(phase == Phase.ERROR)
+			throw new IllegalErrorPhaseSimulationException();
+
+		if(count < 0)
+			throw new InvalidArgumentSimulationException("count cannot be negative: " + count);
+
+		List<Banknote> result = queue.remove(count);
 
 		notifyBanknotesUnoaded(result.toArray(new Banknote[result.size()]));
 
@@ -1,9 +1,7 @@
 package org.lsmr.selfcheckout.devices;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 
 import org.lsmr.selfcheckout.Coin;
 import org.lsmr.selfcheckout.IllegalConfigurationPhaseSimulationException;
@@ -27,7 +25,7 @@ import org.lsmr.selfcheckout.devices.observers.CoinDispenserObserver;
 public final class CoinDispenser extends AbstractDevice<CoinDispenserObserver>
 	implements Acceptor<Coin>, FromStorageEmitter<Coin> {
 	private int maxCapacity;
-	private Queue<Coin> queue = new LinkedList<Coin>();
+	private RingBuffer<Coin> queue;
 	private UnidirectionalChannel<Coin> sink;
 
 	/**
@@ -44,6 +42,7 @@ public final class CoinDispenser extends AbstractDevice<CoinDispenserObserver>
 			throw new InvalidArgumentSimulationException("Capacity must be positive: " + capacity);
 
 		this.maxCapacity = capacity;
+		this.queue = new RingBuffer<>(capacity);
 	}
 
 	/**
@@ -86,6 +85,47 @@ public final class CoinDispenser extends AbstractDevice<CoinDispenserObserver>
 		notifyLoad(coins);
 	}
 
+	/**
+	 * Allows a number of coins of the same kind to be loaded into the dispenser
+	 * directly, without a coin instance for each. Existing coins in the
+	 * dispenser are not removed. On success, announces "coinsLoaded" event
+	 * once for them all, unless there are none.
+	 * 
+	 * @param count
+	 *            How many coins to add. Cannot be negative.
+	 * @param coin
+	 *            The kind of coin to add. Cannot be null.
+	 * @throws OverloadException
+	 *             if the number of coins to be loaded exceeds the capacity of the
+	 *             dispenser.
+	 * @throws SimulationException
+	 *             If the coin is null or the count is negative.
+	 * @throws IllegalErrorPhaseSimulationException
+	 *             If the device is in the error phase.
+	 */
+	public void load(int count, Coin coin) throws SimulationException, OverloadException {
+		if(phase == Phase.ERROR)
+			throw new IllegalErrorPhaseSimulationException();
+
+		if(coin == null)
+			throw new NullPointerSimulationException("coin instance");
+
+		if(count < 0)
+			throw new InvalidArgumentSimulationException("count cannot be negative: " + count);
+
+		if(count > maxCapacity - queue.size())
+			throw new OverloadException("Capacity of dispenser is exceeded by load");
+
+		if(count == 0)
+			return;
+
+		queue.add(coin, count);
+
+		Coin[] loaded = new Coin[count];
+		Arrays.fill(loaded, coin);
+		notifyLoad(loaded);
+	}
+
 	private void notifyLoad(Coin[] coins) {
 		for(CoinDispenserObserver observer : observers)
 			observer.coinsLoaded(this, coins);
@@ -103,8 +143,34 @@ public final class CoinDispenser extends AbstractDevice<CoinDispenserObserver>
 		if(phase == Phase.ERROR)
 			throw new IllegalErrorPhaseSimulationException();
 
-		List<Coin> result = new ArrayList<>(queue);
-		queue.clear();
+		List<Coin> result = queue.removeAll();
+
+		notifyUnload(result.toArray(new Coin[result.size()]));
+
+		return result;
+	}
+
+	/**
+	 * Unloads up to the indicated number of coins from the dispenser directly,
+	 * those that would be dispensed first. On success, announces
+	 * "coinsUnloaded" event once for them all.
+	 * 
+	 * @param count
+	 *            The most coins to unload. Cannot be negative.
+	 * @return A list of the coins unloaded. May be empty. Will never be null.
+	 * @throws SimulationException
+	 *             If the count is negative.
+	 * @throws IllegalErrorPhaseSimulationException
+	 *             If the device is in the error phase.
+	 */
+	public List<Coin> unload(int count) {
+		if(phase == Phase.ERROR)
+			throw new IllegalErrorPhaseSimulationException();
+
+		if(count < 0)
+			throw new InvalidArgumentSimulationException("count cannot be negative: " + count);
+
+		List<Coin> result = queue.remove(count);
 
 		notifyUnload(result.toArray(new Coin[result.size()]));
 
@@ -66,7 +66,8 @@ public class CoinTray extends AbstractDevice<CoinTrayObserver> implements Accept
 	}
 
 	/**
-	 * Simulates the act of physically removing coins from the try by a user.
+	 * Simulates the act of physically removing coins from the try by a user. If
+	 * there were any, announces "coinsCollected" event.
 	 * 
 	 * @return The list of coins collected. May not be null. May be empty.
 	 * @throws IllegalPhaseSimulationException
@@ -79,10 +80,14 @@ public class CoinTray extends AbstractDevice<CoinTrayObserver> implements Accept
 			throw new IllegalConfigurationPhaseSimulationException();
 
 		List<Coin> result = Arrays.asList(coins);
+		boolean collected = nextIndex > 0;
 
 		coins = new Coin[coins.length];
 		nextIndex = 0;
 
+		if(collected)
+			notifyCoinsCollected();
+
 		return result;
 	}
 
@@ -99,4 +104,9 @@ public class CoinTray extends AbstractDevice<CoinTrayObserver> implements Accept
 		for(CoinTrayObserver l : observers)
 			l.coinAdded(this);
 	}
+
+	private void notifyCoinsCollected() {
+		for(CoinTrayObserver l : observers)
+			l.coinsCollected(this);
+	}
 }
@@ -22,6 +22,7 @@ public class ElectronicScale extends AbstractDevice<ElectronicScaleObserver> {
 
 	private double weightLimitInGrams;
 	private double currentWeightInGrams = 0;
+	private double lostLowOrderGrams = 0;
 	private double weightAtLastEvent = 0;
 	private double sensitivity;
 
@@ -117,7 +118,7 @@ public class ElectronicScale extends AbstractDevice<ElectronicScaleObserver> {
 		if(items.contains(item))
 			throw new InvalidArgumentSimulationException("The same item cannot be added more than once to the scale.");
 
-		currentWeightInGrams += item.getWeight();
+		accumulate(item.getWeight());
 
 		items.add(item);
 
@@ -149,13 +150,14 @@ public class ElectronicScale extends AbstractDevice<ElectronicScaleObserver> {
 		if(!items.remove(item))
 			throw new InvalidArgumentSimulationException("The item was not found amongst those on the scale.");
 
-		// To avoid drift in the sum due to round-off error, recalculate the weight.
-		double newWeightInGrams = 0.0;
-		for(Item itemOnScale : items)
-			newWeightInGrams += itemOnScale.getWeight();
-
 		double original = currentWeightInGrams;
-		currentWeightInGrams = newWeightInGrams;
+		if(items.isEmpty()) {
+			currentWeightInGrams = 0;
+			lostLowOrderGrams = 0;
+		}
+		else
+			accumulate(-item.getWeight());
+		double newWeightInGrams = currentWeightInGrams;
 
 		if(original > weightLimitInGrams && newWeightInGrams <= weightLimitInGrams)
 			notifyOutOfOverload();
@@ -164,6 +166,18 @@ public class ElectronicScale extends AbstractDevice<ElectronicScaleObserver> {
 			notifyWeightChanged();
 	}
 
+	/*
+	 * To avoid drift in the sum due to round-off error, the low-order bits lost
+	 * by each addition are carried into the next (Kahan summation), rather than
+	 * adding up every item again on each removal.
+	 */
+	private void accumulate(double grams) {
+		double y = grams - lostLowOrderGrams;
+		double t = currentWeightInGrams + y;
+		lostLowOrderGrams = (t - currentWeightInGrams) - y;
+		currentWeightInGrams = t;
+	}
+
 	private void notifyOverload() {
 		for(ElectronicScaleObserver l : observers)
 			l.overload(this);
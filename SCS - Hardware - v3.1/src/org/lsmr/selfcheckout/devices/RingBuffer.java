@@ -0,0 +1,88 @@
+package org.lsmr.selfcheckout.devices;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A first-in, first-out queue of fixed capacity, kept in a single array that
+ * wraps around. Used by the dispensers, which never hold more than their
+ * capacity, so adding and removing never allocates.
+ *
+ * @param <T>
+ *            The type of the things queued.
+ */
+final class RingBuffer<T> {
+	private final Object[] items;
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @param capacity
+	 *            The most things it can hold. Must be positive.
+	 */
+	RingBuffer(int capacity) {
+		items = new Object[capacity];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a thing at the tail. The caller checks there is room.
+	 */
+	void add(T thing) {
+		items[(head + size) % items.length] = thing;
+		size++;
+	}
+
+	/**
+	 * Adds the same thing at the tail the indicated number of times. The caller
+	 * checks there is room.
+	 */
+	void add(T thing, int count) {
+		for(int i = 0, tail = (head + size) % items.length; i < count; i++, tail = (tail + 1) % items.length)
+			items[tail] = thing;
+		size += count;
+	}
+
+	/**
+	 * Removes the thing at the head. The caller checks the buffer is not empty.
+	 */
+	@SuppressWarnings("unchecked")
+	T remove() {
+		T thing = (T)items[head];
+		items[head] = null;
+		head = (head + 1) % items.length;
+		size--;
+		return thing;
+	}
+
+	/**
+	 * Removes up to the indicated number of things from the head.
+	 *
+	 * @return The things removed, oldest first.
+	 */
+	List<T> remove(int count) {
+		int n = Math.min(count, size);
+		List<T> result = new ArrayList<>(n);
+		for(int i = 0; i < n; i++)
+			result.add(remove());
+		return result;
+	}
+
+	/**
+	 * Removes everything.
+	 *
+	 * @return The things removed, oldest first.
+	 */
+	List<T> removeAll() {
+		return remove(size);
+	}
+}
@@ -14,4 +14,13 @@ public interface CoinTrayObserver extends AbstractDeviceObserver {
 	 *            The tray where the event occurred.
 	 */
 	void coinAdded(CoinTray tray);
+
+	/**
+	 * Announces that the user has collected the coins from the indicated tray,
+	 * leaving it empty. Does nothing unless overridden.
+	 * 
+	 * @param tray
+	 *            The tray where the event occurred.
+	 */
+	default void coinsCollected(CoinTray tray) {}
 }
@@ -21,14 +21,16 @@ public class ProductDatabases {
 	private ProductDatabases() {}
 
 	/**
-	 * The known PLU-coded products, indexed by PLU code.
+	 * The known PLU-coded products, indexed by PLU code. Its version changes
+	 * with every write, so indexes built from it can tell when to rebuild.
 	 */
-	public static final Map<PriceLookupCode, PLUCodedProduct> PLU_PRODUCT_DATABASE = new HashMap<>();
+	public static final VersionedMap<PriceLookupCode, PLUCodedProduct> PLU_PRODUCT_DATABASE = new VersionedMap<>();
 
 	/**
-	 * The known barcoded products, indexed by barcode.
+	 * The known barcoded products, indexed by barcode. Its version changes with
+	 * every write, so what is remembered about a barcode can be checked.
 	 */
-	public static final Map<Barcode, BarcodedProduct> BARCODED_PRODUCT_DATABASE = new HashMap<>();
+	public static final VersionedMap<Barcode, BarcodedProduct> BARCODED_PRODUCT_DATABASE = new VersionedMap<>();
 
 	/**
 	 * A count of the items of the given product that are known to exist in the
@@ -0,0 +1,144 @@
+package org.lsmr.selfcheckout.external;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hash map that counts the changes made to it. Every write, including
+ * replacing the value of a key already present and writes made through its
+ * views, advances the version, so a reader that remembers the version can
+ * tell whether anything it derived from the map is still current.
+ * <p>
+ * Like {@link HashMap}, it is not safe for concurrent writes.
+ *
+ * @param <K>
+ *            The type of the keys.
+ * @param <V>
+ *            The type of the values.
+ */
+public class VersionedMap<K, V> extends AbstractMap<K, V> {
+	private final HashMap<K, V> map = new HashMap<>();
+	private volatile long version = 0;
+	private Set<Map.Entry<K, V>> entrySet;
+
+	/**
+	 * Getter for the number of changes made to this map so far.
+	 *
+	 * @return The current version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key) {
+		return map.get(key);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V old = map.put(key, value);
+		version++;
+		return old;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if(!map.containsKey(key))
+			return null;
+		V old = map.remove(key);
+		version++;
+		return old;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		if(m.isEmpty())
+			return;
+		map.putAll(m);
+		version++;
+	}
+
+	@Override
+	public void clear() {
+		if(map.isEmpty())
+			return;
+		map.clear();
+		version++;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if(entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public void clear() {
+			VersionedMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			Iterator<Map.Entry<K, V>> entries = map.entrySet().iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+				@Override
+				public boolean hasNext() {
+					return entries.hasNext();
+				}
+
+				@Override
+				public Map.Entry<K, V> next() {
+					Map.Entry<K, V> entry = entries.next();
+					return new SimpleEntry<K, V>(entry) {
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public V setValue(V value) {
+							super.setValue(value);
+							version++;
+							return entry.setValue(value);
+						}
+					};
+				}
+
+				@Override
+				public void remove() {
+					entries.remove();
+					version++;
+				}
+			};
+		}
+	}
+}
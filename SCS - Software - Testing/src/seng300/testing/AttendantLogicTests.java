@@ -3,6 +3,7 @@ package seng300.testing;
 import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Currency;
 import java.util.List;
 import java.util.Random;
@@ -10,6 +11,7 @@ import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Barcode;
 import org.lsmr.selfcheckout.Coin;
 import org.lsmr.selfcheckout.SimulationException;
 import org.lsmr.selfcheckout.devices.OverloadException;
@@ -20,6 +22,7 @@ import org.lsmr.selfcheckout.devices.SupervisionStation;
 import org.junit.Assert;
 import seng300.software.AttendantLogic;
 import seng300.software.SelfCheckoutSystemLogic;
+import seng300.software.exceptions.ProductNotFoundException;
 import seng300.software.exceptions.ValidationException;
 
 public class AttendantLogicTests {
@@ -225,4 +228,16 @@ public class AttendantLogicTests {
 		attendantLogic.attendantAddPaper(sl);
 		Assert.assertFalse(sc.printer.isDisabled());
 	}
+
+	@Test
+	public void addingUnknownItemsIsReportedToTheCaller()
+	{
+		try {
+			attendantLogic.AttendantAddItems(Arrays.asList(new Barcode("000111000111")), sl);
+			fail("unknown barcode added");
+		} catch (ProductNotFoundException e) {
+			// expected
+		}
+		Assert.assertTrue(sl.getCart().getProducts().isEmpty());
+	}
 }
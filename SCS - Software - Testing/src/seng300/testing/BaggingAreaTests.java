@@ -336,6 +336,39 @@ public class BaggingAreaTests {
 				expected, actual);
 	}
 	
+	@Test
+	public void testShorterBaggingTimeout() throws InterruptedException {
+		checkoutControl.setBaggingTimeout(200);
+		int previousNumOfProducts = checkoutControl.getCart().getProducts().size();
+
+		do {
+			scs.mainScanner.scan(it4);
+		} while(checkoutControl.getCart().getProducts().size() == previousNumOfProducts);
+
+		Thread.sleep(600);
+		expected = true;
+		actual = checkoutControl.isBlocked();
+		assertEquals("item is not placed on the scale in time.",
+				expected, actual);
+	}
+
+	@Test
+	public void testBaggingCancelsTimeout() throws InterruptedException {
+		checkoutControl.setBaggingTimeout(200);
+		int previousNumOfProducts = checkoutControl.getCart().getProducts().size();
+
+		do {
+			scs.mainScanner.scan(it3);
+		} while(checkoutControl.getCart().getProducts().size() == previousNumOfProducts);
+
+		scs.baggingArea.add(it3);
+		Thread.sleep(600); // past the timeout
+		expected = false;
+		actual = checkoutControl.isBlocked();
+		assertEquals("item was placed on the scale in time.",
+				expected, actual);
+	}
+
 	@Test //(expected = NullPointerException.class)
 	public void testAddItemWithoutScan() throws InterruptedException {
 		scs.baggingArea.add(it4); 
@@ -1041,10 +1074,32 @@ public class BaggingAreaTests {
 		assertEquals("should be in: ", true, bao.isProductBagged(p1));
 		assertEquals("not in: ", false, bao.isProductBagged(ProductDatabases.BARCODED_PRODUCT_DATABASE.get(b4)));
 		assertEquals("not in: ", false, bao.isProductBagged(p2));
-		
-	
+
+
 	}
-	
+
+	@Test
+	public void testExpectedBaggedWeight() {
+		BaggingAreaObserver bao = new BaggingAreaObserver(this.checkoutControl);
+		BarcodedProduct light = new BarcodedProduct(new Barcode("90001"), "light", pval1, 0.1);
+		PLUCodedWeightProduct apples = new PLUCodedWeightProduct(ProductDatabases.PLU_PRODUCT_DATABASE.get(plu1), 250.5);
+
+		for (int i = 0; i < 1000; i++)
+			bao.getBaggedProducts().add(light);
+		bao.getBaggedProducts().add(apples);
+		assertEquals("sum of expected weights", 350.5, bao.getExpectedBaggedWeight(), 1E-9);
+
+		bao.getBaggedProducts().remove(apples);
+		assertEquals("apples removed", false, bao.isProductBagged(apples));
+		for (int i = 0; i < 999; i++)
+			bao.getBaggedProducts().remove(0);
+		assertEquals("one item left", true, bao.isProductBagged(light));
+		assertEquals("one item left", 0.1, bao.getExpectedBaggedWeight(), 1E-12);
+
+		bao.resetToOldWeight();
+		assertEquals("scale expected to show the bagged weight", 0.1, bao.getWeightAtLastEvent(), 1E-12);
+	}
+
 }
 
 
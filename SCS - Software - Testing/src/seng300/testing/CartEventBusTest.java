@@ -0,0 +1,127 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+import seng300.software.Cart;
+import seng300.software.exceptions.ProductNotFoundException;
+import seng300.software.observers.CartEvent;
+import seng300.software.observers.CartEventBus;
+
+public class CartEventBusTest {
+
+	Cart cart;
+	BarcodedProduct soup = new BarcodedProduct(new Barcode("55601"), "Soup", new BigDecimal("2.25"), 400.0);
+
+	@Before
+	public void setUp() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(soup.getBarcode(), soup);
+		cart = new Cart();
+	}
+
+	@After
+	public void tearDown() {
+		cart.getEvents().close();
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(soup.getBarcode());
+	}
+
+	@Test
+	public void eventsArriveInOrder() throws ProductNotFoundException {
+		List<CartEvent.Type> seen = new ArrayList<CartEvent.Type>();
+		cart.getEvents().subscribe(event -> seen.add(event.getType()));
+		cart.addToCart(soup.getBarcode());
+		cart.addPlasticBags(2);
+		cart.voidFromCart(soup);
+
+		assertEquals(6, seen.size());
+		assertEquals(CartEvent.Type.ITEM_ADDED, seen.get(0));
+		assertEquals(CartEvent.Type.TOTAL_CHANGED, seen.get(1));
+		assertEquals(CartEvent.Type.BAGS_ADDED, seen.get(2));
+		assertEquals(CartEvent.Type.ITEM_VOIDED, seen.get(4));
+	}
+
+	@Test
+	public void slowListenerDoesNotDelayCart() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(4);
+		List<BigDecimal> totals = Collections.synchronizedList(new ArrayList<BigDecimal>());
+		cart.getEvents().subscribeAsync(event -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (event.getType() == CartEvent.Type.TOTAL_CHANGED)
+				totals.add(event.getTotal());
+			done.countDown();
+		}, 16, CartEventBus.Overflow.BLOCK);
+
+		cart.addToCart(soup.getBarcode());
+		cart.addToCart(soup.getBarcode());
+		// the listener has not run yet, but the cart is already up to date
+		assertEquals(new BigDecimal("4.50"), cart.getCartTotal());
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(new BigDecimal("2.25"), totals.get(0));
+		assertEquals(new BigDecimal("4.50"), totals.get(1));
+	}
+
+	@Test
+	public void fullQueueDropsOldest() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		List<CartEvent> delivered = Collections.synchronizedList(new ArrayList<CartEvent>());
+		CountDownLatch first = new CountDownLatch(1);
+		CartEventBus.Subscription s = cart.getEvents().subscribeAsync(event -> {
+			first.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			delivered.add(event);
+		}, 2, CartEventBus.Overflow.DROP_OLDEST);
+
+		cart.addToCart(soup.getBarcode());	// ITEM_ADDED is taken by the listener
+		assertTrue(first.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 3; i++)
+			cart.addPlasticBags(1);			// 7 more events queued into 2 places
+
+		assertEquals(5, s.getDropped());
+		release.countDown();
+	}
+
+	@Test
+	public void listenerFailuresGoToTheErrorHandler() throws Exception {
+		List<CartEvent.Type> failedOn = Collections.synchronizedList(new ArrayList<CartEvent.Type>());
+		CountDownLatch done = new CountDownLatch(2);
+		cart.getEvents().setErrorHandler((event, error) -> {
+			failedOn.add(event.getType());
+			assertEquals("no display", error.getMessage());
+		});
+		CartEventBus.Subscription s = cart.getEvents().subscribeAsync(event -> {
+			done.countDown();
+			if (event.getType() == CartEvent.Type.ITEM_ADDED)
+				throw new IllegalStateException("no display");
+		}, 16, CartEventBus.Overflow.BLOCK);
+
+		cart.addToCart(soup.getBarcode());
+		// the listener goes on to the next event
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(CartEvent.Type.ITEM_ADDED), failedOn);
+		assertEquals(1, s.getFailed());
+	}
+}
@@ -0,0 +1,180 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.Cart;
+import seng300.software.CartLineItems;
+import seng300.software.PLUCodedWeightProduct;
+import seng300.software.exceptions.ProductNotFoundException;
+import seng300.software.observers.CartObserver;
+
+public class CartLineItemsTest {
+
+	Cart cart;
+	BarcodedProduct milk = new BarcodedProduct(new Barcode("55501"), "Milk", new BigDecimal("4.99"), 2000.0);
+	BarcodedProduct bread = new BarcodedProduct(new Barcode("55502"), "Bread", new BigDecimal("3.49"), 700.0);
+	PLUCodedProduct apples = new PLUCodedProduct(new PriceLookupCode("55503"), "Apples", new BigDecimal("4.00"));
+
+	@Before
+	public void setUp() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(milk.getBarcode(), milk);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(bread.getBarcode(), bread);
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(apples.getPLUCode(), apples);
+		cart = new Cart();
+	}
+
+	@After
+	public void tearDown() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(milk.getBarcode());
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(bread.getBarcode());
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(apples.getPLUCode());
+	}
+
+	@Test
+	public void itemsAreGroupedByProduct() throws ProductNotFoundException {
+		cart.addToCart(milk.getBarcode());
+		cart.addToCart(bread.getBarcode());
+		cart.addToCart(milk.getBarcode());
+
+		assertEquals(3, cart.getProducts().size());
+		assertEquals(2, cart.getLineItems().getLines().size());
+		CartLineItems.Line line = cart.getLineItems().getLine(milk);
+		assertEquals(2, line.getQuantity());
+		assertEquals(new BigDecimal("9.98"), line.getTotal());
+		assertSame(milk, cart.getLineItems().getLines().iterator().next().getProduct());
+	}
+
+	@Test
+	public void removingKeepsTotalsAndOrder() throws ProductNotFoundException {
+		cart.addToCart(milk.getBarcode());
+		cart.addToCart(bread.getBarcode());
+		cart.addToCart(milk.getBarcode());
+		cart.removeFromCart(milk);
+
+		assertEquals(new BigDecimal("8.48"), cart.getCartTotal());
+		assertEquals(2, cart.getProducts().size());
+		assertSame(milk, cart.getProducts().get(0));
+		assertSame(bread, cart.getProducts().get(1));
+		assertEquals(1, cart.getLineItems().getLine(milk).getQuantity());
+	}
+
+	@Test
+	public void lastItemScannedIsRemovedFromALongCart() throws ProductNotFoundException {
+		// enough items that the positions kept for removal have to grow
+		for (int i = 0; i < 40; i++) {
+			cart.addToCart(milk.getBarcode());
+			cart.addToCart(bread.getBarcode());
+		}
+		cart.addPLUCodedProductToCart(apples.getPLUCode(), 500);
+		for (int i = 0; i < 20; i++)
+			cart.removeFromCart(milk);
+		cart.removeFromCart(bread);
+		cart.removeFromCart(new PLUCodedWeightProduct(apples, 500));
+
+		List<?> products = cart.getProducts();
+		assertEquals(59, products.size());
+		// the first 20 milk are left, each followed by its bread, then the other 19 bread
+		for (int i = 0; i < 20; i++) {
+			assertSame(milk, products.get(2 * i));
+			assertSame(bread, products.get(2 * i + 1));
+		}
+		for (int i = 40; i < 59; i++)
+			assertSame(bread, products.get(i));
+	}
+
+	@Test
+	public void weighedItemIsRemovedAtItsPrice() throws ProductNotFoundException {
+		cart.addPLUCodedProductToCart(apples.getPLUCode(), 500);
+		cart.addToCart(bread.getBarcode());
+		cart.removeFromCart(new PLUCodedWeightProduct(apples, 500));
+
+		assertEquals(0, bread.getPrice().compareTo(cart.getCartTotal()));
+		assertEquals(1, cart.getProducts().size());
+		assertNull(cart.getLineItems().getLine(apples));
+	}
+
+	@Test
+	public void itemIsRemovedAtThePriceItWasCharged() throws ProductNotFoundException {
+		cart.addToCart(milk.getBarcode(), 2);
+		// the price goes up while the milk is in the cart
+		BarcodedProduct dearer = new BarcodedProduct(milk.getBarcode(), "Milk", new BigDecimal("5.49"), 2000.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(milk.getBarcode(), dearer);
+
+		cart.removeFromCart(dearer);
+		assertEquals(new BigDecimal("4.99"), cart.getLineItems().getLine(milk).getTotal());
+		assertEquals(new BigDecimal("4.99"), cart.getCartTotal());
+		cart.removeFromCart(dearer);
+		assertNull(cart.getLineItems().getLine(milk));
+		assertEquals(0, cart.getCartTotal().signum());
+	}
+
+	@Test(expected = ProductNotFoundException.class)
+	public void removingProductNotInCartThrows() throws ProductNotFoundException {
+		cart.removeFromCart(milk);
+	}
+
+	@Test
+	public void quantityIsAddedWithOneNotification() throws ProductNotFoundException {
+		CountingObserver observer = new CountingObserver();
+		cart.attach(observer);
+		cart.addToCart(milk.getBarcode(), 12);
+
+		assertEquals(1, observer.batches);
+		assertEquals(12, observer.items);
+		assertEquals(0, observer.singles);
+		assertEquals(12, cart.getProducts().size());
+		assertEquals(12, cart.getLineItems().getLine(milk).getQuantity());
+		assertEquals(new BigDecimal("59.88"), cart.getCartTotal());
+	}
+
+	@Test
+	public void batchWithUnknownBarcodeAddsNothing() {
+		CountingObserver observer = new CountingObserver();
+		cart.attach(observer);
+		try {
+			cart.addAllToCart(Arrays.asList(milk.getBarcode(), new Barcode("55509"), bread.getBarcode()));
+			fail("unknown barcode should throw");
+		} catch (ProductNotFoundException e) {
+			// expected
+		}
+
+		assertEquals(0, observer.batches);
+		assertTrue(cart.getProducts().isEmpty());
+		assertEquals(0, cart.getLineItems().getItemCount());
+		assertEquals(0, cart.getCartTotal().signum());
+	}
+
+	static class CountingObserver extends CartObserver {
+		int batches = 0;
+		int items = 0;
+		int singles = 0;
+
+		CountingObserver() {
+			super(null);
+		}
+
+		@Override
+		public void notifyProductAdded(Cart cart, BarcodedProduct p) {
+			singles++;
+		}
+
+		@Override
+		public void notifyProductsAdded(Cart cart, List<BarcodedProduct> products) {
+			batches++;
+			items += products.size();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.CoinDispenser;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+
+import seng300.software.CashFloat;
+
+public class CashFloatTest {
+
+	static final long MINUTE = 60 * 1000;
+
+	Currency cad = Currency.getInstance("CAD");
+	BigDecimal quarter = new BigDecimal("0.25");
+
+	SelfCheckoutStation scs;
+	CoinDispenser quarters;
+	long now = 0;
+	CashFloat cashFloat;
+
+	@Before
+	public void setUp() throws Exception {
+		scs = new SelfCheckoutStation(cad, new int[] {5}, new BigDecimal[] {quarter}, 1000, 1);
+		quarters = scs.coinDispensers.get(quarter);
+		cashFloat = new CashFloat(scs, () -> now);
+		Coin[] coins = new Coin[100];
+		for (int i = 0; i < coins.length; i++)
+			coins[i] = new Coin(cad, quarter);
+		quarters.load(coins);
+	}
+
+	@After
+	public void tearDown() {
+		cashFloat.detach();
+	}
+
+	// gives out a quarter a minute for the given number of minutes
+	private void giveQuarters(int minutes) throws Exception {
+		for (int i = 0; i < minutes; i++) {
+			now += MINUTE;
+			quarters.emit();
+			scs.coinTray.collectCoins();
+		}
+	}
+
+	@Test
+	public void nothingRunsOutUntilMoneyGoesOut() {
+		assertEquals(Long.MAX_VALUE, cashFloat.getTimeUntilFirstEmpty());
+		assertEquals(Long.MAX_VALUE, cashFloat.getTimeUntilEmpty(quarter));
+	}
+
+	@Test
+	public void depletionIsForecastFromRecentUse() throws Exception {
+		giveQuarters(60);
+		// 40 quarters left at about one a minute
+		long left = cashFloat.getTimeUntilEmpty(quarter);
+		assertEquals(40 * MINUTE, left, 6 * MINUTE);
+		assertEquals(left, cashFloat.getTimeUntilFirstEmpty());
+		assertEquals(Long.MAX_VALUE, cashFloat.getTimeUntilEmpty(5));
+	}
+
+	@Test
+	public void coinsPaidInOffsetThoseGivenOut() throws Exception {
+		for (int i = 0; i < 30; i++) {
+			now += MINUTE;
+			quarters.emit();
+			quarters.accept(new Coin(cad, quarter));
+			scs.coinTray.collectCoins();
+		}
+		assertEquals(Long.MAX_VALUE, cashFloat.getTimeUntilEmpty(quarter));
+	}
+
+	@Test
+	public void refillCoversTheHorizonAndTheMinimum() throws Exception {
+		giveQuarters(60);
+		CashFloat.RefillPlan plan = cashFloat.planRefill(120 * MINUTE);
+		// about 120 needed, 40 there
+		int toLoad = plan.getCoins().get(quarter);
+		assertEquals(80, toLoad, 12);
+		// the unused banknote dispenser only gets the minimum
+		assertEquals(Integer.valueOf(CashFloat.DEFAULT_MINIMUM), plan.getBanknotes().get(5));
+
+		Coin[] coins = new Coin[toLoad];
+		for (int i = 0; i < toLoad; i++)
+			coins[i] = new Coin(cad, quarter);
+		quarters.load(coins);
+		assertNull(cashFloat.planRefill(120 * MINUTE).getCoins().get(quarter));
+	}
+
+	@Test
+	public void rushIsForgotten() throws Exception {
+		giveQuarters(30);
+		long duringRush = cashFloat.getTimeUntilEmpty(quarter);
+		now += 240 * MINUTE;
+		assertTrue(cashFloat.getTimeUntilEmpty(quarter) > 20 * duringRush);
+	}
+}
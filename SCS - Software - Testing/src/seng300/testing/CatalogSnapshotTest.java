@@ -0,0 +1,178 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.CatalogSnapshot;
+import seng300.software.ProductDatabaseLogic;
+import seng300.software.SnapshotProductLookup;
+
+public class CatalogSnapshotTest {
+
+	BarcodedProduct milk = new BarcodedProduct(new Barcode("0123456789012"), "Milk 2% 4L", new BigDecimal("5.49"), 4120.0);
+	BarcodedProduct longCode = new BarcodedProduct(new Barcode("123456789012345678901234"), "Cr\u00e8me br\u00fbl\u00e9e", new BigDecimal("7.00"), 180.5);
+	PLUCodedProduct kiwi = new PLUCodedProduct(new PriceLookupCode("94030"), "Kiwi Gold", new BigDecimal("0.99"));
+
+	Map<Barcode, BarcodedProduct> barcoded = new HashMap<Barcode, BarcodedProduct>();
+	Map<PriceLookupCode, PLUCodedProduct> plu = new HashMap<PriceLookupCode, PLUCodedProduct>();
+	Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		barcoded.put(milk.getBarcode(), milk);
+		barcoded.put(longCode.getBarcode(), longCode);
+		plu.put(kiwi.getPLUCode(), kiwi);
+		file = Files.createTempFile("catalog", ".snapshot");
+		CatalogSnapshot.write(file, barcoded, plu);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(milk.getBarcode());
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(longCode.getBarcode());
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(kiwi.getPLUCode());
+		Files.deleteIfExists(file);
+	}
+
+	private void assertSameProduct(BarcodedProduct expected, BarcodedProduct actual) {
+		assertEquals(expected.getBarcode(), actual.getBarcode());
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(expected.getPrice(), actual.getPrice());
+		assertEquals(expected.getExpectedWeight(), actual.getExpectedWeight(), 0);
+	}
+
+	@Test
+	public void productsSurviveTheRoundTrip() throws IOException {
+		Map<Barcode, BarcodedProduct> readBarcoded = new HashMap<Barcode, BarcodedProduct>();
+		Map<PriceLookupCode, PLUCodedProduct> readPlu = new HashMap<PriceLookupCode, PLUCodedProduct>();
+
+		assertEquals(3, CatalogSnapshot.load(file, readBarcoded, readPlu));
+		assertSameProduct(milk, readBarcoded.get(milk.getBarcode()));
+		assertSameProduct(longCode, readBarcoded.get(longCode.getBarcode()));
+		PLUCodedProduct readKiwi = readPlu.get(kiwi.getPLUCode());
+		assertEquals("Kiwi Gold", readKiwi.getDescription());
+		assertEquals(new BigDecimal("0.99"), readKiwi.getPrice());
+	}
+
+	@Test
+	public void corruptSnapshotChangesNothing() throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		// the last record, the PLU coded product, is cut short
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+		Map<Barcode, BarcodedProduct> readBarcoded = new HashMap<Barcode, BarcodedProduct>();
+		Map<PriceLookupCode, PLUCodedProduct> readPlu = new HashMap<PriceLookupCode, PLUCodedProduct>();
+
+		try {
+			CatalogSnapshot.load(file, readBarcoded, readPlu);
+			fail("corrupt snapshot loaded");
+		}
+		catch (IOException e) {
+			// expected
+		}
+		assertTrue(readBarcoded.isEmpty());
+		assertTrue(readPlu.isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFilesAreRejected() throws IOException {
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+		CatalogSnapshot.load(file);
+	}
+
+	@Test
+	public void loadingFillsTheDatabasesAndIndexes() throws IOException {
+		CatalogSnapshot.load(file);
+
+		assertSameProduct(milk, ProductDatabases.BARCODED_PRODUCT_DATABASE.get(milk.getBarcode()));
+		assertEquals("Kiwi Gold", ProductDatabases.PLU_PRODUCT_DATABASE.get(kiwi.getPLUCode()).getDescription());
+		assertEquals(kiwi.getPLUCode(), ProductDatabaseLogic.getLookupIndex().lookUp("kiwi g").get(0).getPLUCode());
+	}
+
+	@Test
+	public void openedProductsAreBuiltWhenFirstScanned() throws IOException {
+		SnapshotProductLookup lookup = CatalogSnapshot.open(file);
+
+		// too long to pack, so built at once
+		assertEquals(1, lookup.builtCount());
+		assertNull(ProductDatabases.BARCODED_PRODUCT_DATABASE.get(milk.getBarcode()));
+		assertEquals("Kiwi Gold", ProductDatabases.PLU_PRODUCT_DATABASE.get(kiwi.getPLUCode()).getDescription());
+
+		BarcodedProduct scanned = lookup.get(new Barcode("0123456789012"));
+		assertSameProduct(milk, scanned);
+		assertEquals(2, lookup.builtCount());
+		assertSame(scanned, lookup.get(milk.getBarcode()));
+		assertEquals(2, lookup.builtCount());
+		assertSameProduct(longCode, lookup.get(longCode.getBarcode()));
+		assertNull(lookup.get(new Barcode("0123456789013")));
+	}
+
+	@Test
+	public void corruptSnapshotIsNotOpened() throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+		try {
+			CatalogSnapshot.open(file);
+			fail("corrupt snapshot opened");
+		}
+		catch (IOException e) {
+			// expected
+		}
+		assertNull(ProductDatabases.PLU_PRODUCT_DATABASE.get(kiwi.getPLUCode()));
+	}
+
+	@Test
+	public void barcodesThatAreNotDigitsAreNotOpened() throws IOException {
+		CatalogSnapshot.write(file, Collections.singletonMap(milk.getBarcode(), milk),
+				Collections.<PriceLookupCode, PLUCodedProduct>emptyMap());
+		byte[] bytes = Files.readAllBytes(file);
+		// after the header and counts: the digit count, then two digits a byte
+		assertEquals(13, bytes[16]);
+
+		byte[] notADigit = bytes.clone();
+		notADigit[17] = 0x0A;
+		byte[] noDigits = bytes.clone();
+		noDigits[16] = 0;
+		for (byte[] corrupt : Arrays.asList(notADigit, noDigits)) {
+			Files.write(file, corrupt);
+			try {
+				CatalogSnapshot.open(file);
+				fail("corrupt barcode opened");
+			}
+			catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void openedSnapshotServesStations() throws Exception {
+		ProductDatabaseLogic.setBarcodedProductLookup(CatalogSnapshot.open(file));
+		try {
+			ProductDatabaseLogic.warmUp().get();
+
+			assertSameProduct(milk, new ProductDatabaseLogic().findProduct(milk.getBarcode()).get());
+			assertEquals(kiwi.getPLUCode(), ProductDatabaseLogic.getSearchIndex().search("kiwi", 6).get(0).getPLUCode());
+		}
+		finally {
+			ProductDatabaseLogic.setBarcodedProductLookup(null);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+
+import seng300.software.ChangePlanner;
+import seng300.software.ChangeSolver.Preference;
+
+public class ChangePlannerTest {
+
+	Currency cad = Currency.getInstance("CAD");
+	int[] banknotes = {5, 10};
+	BigDecimal quarter = new BigDecimal("0.25");
+	BigDecimal loonie = new BigDecimal("1.00");
+	BigDecimal[] coins = {quarter, loonie};
+
+	SelfCheckoutStation scs;
+	ChangePlanner planner;
+
+	@Before
+	public void setUp() throws Exception {
+		scs = new SelfCheckoutStation(cad, banknotes, coins, 1000, 1);
+		for (int i = 0; i < 8; i++)
+			scs.coinDispensers.get(quarter).load(new Coin(cad, quarter));
+		scs.coinDispensers.get(loonie).load(new Coin(cad, loonie), new Coin(cad, loonie));
+		scs.banknoteDispensers.get(5).load(new Banknote(cad, 5));
+		planner = new ChangePlanner(scs);
+	}
+
+	@After
+	public void tearDown() {
+		planner.detach();
+	}
+
+	@Test
+	public void planIsRemembered() {
+		assertArrayEquals(new int[] {1, 0, 1, 2}, planner.plan(725, Preference.FEWEST_PIECES));
+		int hits = planner.getHits();
+		assertArrayEquals(new int[] {1, 0, 1, 2}, planner.plan(725, Preference.FEWEST_PIECES));
+		assertEquals(hits + 1, planner.getHits());
+	}
+
+	@Test
+	public void dispensingChangesThePlan() throws Exception {
+		planner.plan(200, Preference.FEWEST_PIECES);
+		scs.coinDispensers.get(loonie).emit();
+		scs.coinDispensers.get(loonie).emit();
+		// the loonies are gone, so quarters it is
+		assertArrayEquals(new int[] {0, 0, 8, 0}, planner.plan(200, Preference.FEWEST_PIECES));
+	}
+
+	@Test
+	public void loadingChangesThePlan() throws Exception {
+		assertNull(planner.plan(1000, Preference.FEWEST_PIECES));
+		scs.banknoteDispensers.get(10).load(new Banknote(cad, 10));
+		assertArrayEquals(new int[] {0, 1, 0, 0}, planner.plan(1000, Preference.FEWEST_PIECES));
+	}
+
+	@Test
+	public void smallAmountsArePlannedAhead() throws Exception {
+		// every multiple of a quarter below $5
+		waitForWarmRounds(1);
+		assertEquals(19, planner.getWarmed());
+		int misses = planner.getMisses();
+		assertArrayEquals(new int[] {0, 0, 7, 2}, planner.plan(375, Preference.FEWEST_PIECES));
+		assertEquals(misses, planner.getMisses());
+	}
+
+	@Test
+	public void coinsPutInOneAtATimeArePlannedForOnce() throws Exception {
+		waitForWarmRounds(1);
+		for (int i = 0; i < 5; i++)
+			scs.coinDispensers.get(loonie).load(new Coin(cad, loonie));
+		// the plans for the old inventory are gone straight away
+		assertEquals(0, planner.getWarmed());
+		waitForWarmRounds(2);
+		Thread.sleep(3 * ChangePlanner.WARM_DELAY_MILLIS);
+		assertEquals(2, planner.getWarmRounds());
+		assertArrayEquals(new int[] {0, 0, 3, 3}, planner.plan(375, Preference.FEWEST_PIECES));
+		assertArrayEquals(new int[] {0, 0, 1, 4}, planner.plan(425, Preference.FEWEST_PIECES));
+	}
+
+	@Test
+	public void plannedAheadAmountsDoNotCrowdOutTheCache() throws Exception {
+		planner.plan(725, Preference.FEWEST_PIECES);
+		waitForWarmRounds(1);
+		int hits = planner.getHits();
+		int misses = planner.getMisses();
+		planner.plan(725, Preference.FEWEST_PIECES);
+		assertEquals(hits + 1, planner.getHits());
+		assertEquals(misses, planner.getMisses());
+	}
+
+	private void waitForWarmRounds(int rounds) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (planner.getWarmRounds() < rounds && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(rounds, planner.getWarmRounds());
+	}
+}
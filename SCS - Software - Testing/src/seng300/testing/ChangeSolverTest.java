@@ -0,0 +1,66 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import seng300.software.ChangeSolver;
+import seng300.software.ChangeSolver.Preference;
+
+public class ChangeSolverTest {
+
+	// $5, $10, $20, $50, $100 banknotes, then 5c, 10c, 25c, $1 and $2 coins
+	long[] values = {500, 1000, 2000, 5000, 10000, 5, 10, 25, 100, 200};
+
+	@Test
+	public void fewestPiecesWhenEverythingIsStocked() {
+		int[] plenty = {100, 100, 100, 100, 100, 100, 100, 100, 100, 100};
+		int[] counts = new ChangeSolver(values, plenty).solve(18040, Preference.FEWEST_PIECES);
+		assertArrayEquals(new int[] {0, 1, 1, 1, 1, 1, 1, 1, 0, 0}, counts);
+	}
+
+	@Test
+	public void onlyWhatIsInTheDispensersIsGiven() {
+		// no $2 coins, one $1 coin and no nickels
+		int[] stock = {0, 0, 0, 0, 0, 0, 5, 5, 1, 0};
+		int[] counts = new ChangeSolver(values, stock).solve(235, Preference.FEWEST_PIECES);
+		assertArrayEquals(new int[] {0, 0, 0, 0, 0, 0, 1, 5, 1, 0}, counts);
+	}
+
+	@Test
+	public void greedyIsNotAlwaysPossible() {
+		// 30c from quarters and dimes
+		int[] counts = new ChangeSolver(new long[] {25, 10}, new int[] {5, 5}).solve(30, Preference.FEWEST_PIECES);
+		assertArrayEquals(new int[] {0, 3}, counts);
+	}
+
+	@Test
+	public void changeThatCannotBeMade() {
+		int[] plenty = {100, 100, 100, 100, 100, 100, 100, 100, 100, 100};
+		assertNull(new ChangeSolver(values, plenty).solve(3, Preference.FEWEST_PIECES));
+		assertNull(new ChangeSolver(new long[] {25}, new int[] {3}).solve(100, Preference.FEWEST_PIECES));
+		assertArrayEquals(new int[] {0}, new ChangeSolver(new long[] {25}, new int[] {0}).solve(0, Preference.FEWEST_PIECES));
+	}
+
+	@Test
+	public void scarceCoinsAreKept() {
+		int[] stock = {0, 0, 0, 0, 0, 0, 0, 100, 1, 0};
+		ChangeSolver solver = new ChangeSolver(values, stock);
+		assertEquals(1, solver.solve(100, Preference.FEWEST_PIECES)[8]);
+		assertEquals(0, solver.solve(100, Preference.PRESERVE_SCARCE)[8]);
+		assertEquals(4, solver.solve(100, Preference.PRESERVE_SCARCE)[7]);
+	}
+
+	@Test
+	public void largeAmountsAreQuick() {
+		int[] lots = new int[values.length];
+		java.util.Arrays.fill(lots, 1_000_000);
+		long start = System.nanoTime();
+		int[] counts = new ChangeSolver(values, lots).solve(9_999_999_95L, Preference.FEWEST_PIECES);
+		assertTrue(System.nanoTime() - start < 1_000_000_000L);
+		long total = 0;
+		for (int i = 0; i < values.length; i++)
+			total += counts[i] * values[i];
+		assertEquals(9_999_999_95L, total);
+	}
+}
@@ -0,0 +1,144 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.AbstractDevice;
+import org.lsmr.selfcheckout.devices.BanknoteDispenser;
+import org.lsmr.selfcheckout.devices.CoinDispenser;
+import org.lsmr.selfcheckout.devices.OverloadException;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
+import org.lsmr.selfcheckout.devices.observers.BanknoteDispenserObserver;
+import org.lsmr.selfcheckout.devices.observers.CoinDispenserObserver;
+
+public class DispenserLoadTest {
+
+	Currency cad = Currency.getInstance("CAD");
+	BigDecimal quarter = new BigDecimal("0.25");
+
+	SelfCheckoutStation scs;
+	CoinDispenser quarters;
+	int loads = 0;
+	int loaded = 0;
+	int unloads = 0;
+
+	@Before
+	public void setUp() {
+		scs = new SelfCheckoutStation(cad, new int[] {5}, new BigDecimal[] {quarter}, 1000, 1);
+		quarters = scs.coinDispensers.get(quarter);
+		quarters.attach(new CoinDispenserObserver() {
+			public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+			public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+			public void coinsFull(CoinDispenser dispenser) {}
+			public void coinsEmpty(CoinDispenser dispenser) {}
+			public void coinAdded(CoinDispenser dispenser, Coin coin) {}
+			public void coinRemoved(CoinDispenser dispenser, Coin coin) {}
+			public void coinsLoaded(CoinDispenser dispenser, Coin... coins) {
+				loads++;
+				loaded += coins.length;
+			}
+			public void coinsUnloaded(CoinDispenser dispenser, Coin... coins) {
+				unloads++;
+			}
+		});
+	}
+
+	@Test
+	public void bulkLoadIsAnnouncedOnce() throws Exception {
+		quarters.load(quarters.getCapacity(), new Coin(cad, quarter));
+		assertEquals(quarters.getCapacity(), quarters.size());
+		assertEquals(1, loads);
+		assertEquals(quarters.getCapacity(), loaded);
+	}
+
+	@Test
+	public void loadingNothingIsNotAnnounced() throws Exception {
+		quarters.load(0, new Coin(cad, quarter));
+		assertEquals(0, quarters.size());
+		assertEquals(0, loads);
+
+		int[] banknoteLoads = {0};
+		BanknoteDispenser fives = scs.banknoteDispensers.get(5);
+		fives.attach(new BanknoteDispenserObserver() {
+			public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+			public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+			public void moneyFull(BanknoteDispenser dispenser) {}
+			public void banknotesEmpty(BanknoteDispenser dispenser) {}
+			public void billAdded(BanknoteDispenser dispenser, Banknote banknote) {}
+			public void banknoteRemoved(BanknoteDispenser dispenser, Banknote banknote) {}
+			public void banknotesLoaded(BanknoteDispenser dispenser, Banknote... banknotes) {
+				banknoteLoads[0]++;
+			}
+			public void banknotesUnloaded(BanknoteDispenser dispenser, Banknote... banknotes) {}
+		});
+		fives.load(0, new Banknote(cad, 5));
+		assertEquals(0, fives.size());
+		assertEquals(0, banknoteLoads[0]);
+	}
+
+	@Test(expected = OverloadException.class)
+	public void bulkLoadPastCapacity() throws Exception {
+		quarters.load(quarters.getCapacity() + 1, new Coin(cad, quarter));
+	}
+
+	@Test
+	public void hugeBulkLoadIsRefused() throws Exception {
+		quarters.load(1, new Coin(cad, quarter));
+		try {
+			quarters.load(Integer.MAX_VALUE, new Coin(cad, quarter));
+			fail("count overflowed the capacity check");
+		}
+		catch (OverloadException e) {
+			// expected
+		}
+		try {
+			scs.banknoteDispensers.get(5).load(Integer.MAX_VALUE, new Banknote(cad, 5));
+			fail("count overflowed the capacity check");
+		}
+		catch (OverloadException e) {
+			// expected
+		}
+		assertEquals(1, quarters.size());
+	}
+
+	@Test
+	public void coinsComeOutInTheOrderTheyWentIn() throws Exception {
+		int capacity = quarters.getCapacity();
+		Coin first = new Coin(cad, quarter);
+		Coin second = new Coin(cad, quarter);
+		quarters.load(capacity - 1, first);
+		quarters.emit();
+		quarters.emit();
+		scs.coinTray.collectCoins();
+		// the buffer wraps around here
+		quarters.load(3, second);
+		assertEquals(capacity, quarters.size());
+
+		List<Coin> front = quarters.unload(capacity - 3);
+		assertEquals(1, unloads);
+		assertSame(first, front.get(front.size() - 1));
+		List<Coin> rest = quarters.unload();
+		assertEquals(3, rest.size());
+		for (Coin c : rest)
+			assertSame(second, c);
+		assertEquals(0, quarters.size());
+	}
+
+	@Test
+	public void banknotesLoadInBulk() throws Exception {
+		BanknoteDispenser fives = scs.banknoteDispensers.get(5);
+		fives.load(10, new Banknote(cad, 5));
+		assertEquals(10, fives.size());
+		assertEquals(4, fives.unload(4).size());
+		assertEquals(6, fives.size());
+		assertEquals(6, fives.unload(100).size());
+	}
+}
@@ -0,0 +1,55 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+import seng300.software.Cart;
+import seng300.software.Money;
+
+public class MoneyTest {
+
+	@Test
+	public void convertsToAndFromBigDecimal() {
+		assertEquals(499, Money.of(new BigDecimal("4.99")).getCents());
+		assertEquals(new BigDecimal("4.99"), Money.ofCents(499).toBigDecimal());
+		// a coin built from a double is still worth exactly ten cents
+		assertEquals(10, Money.of(new BigDecimal(0.1)).getCents());
+		assertEquals(Money.ofCents(-250), Money.of(new BigDecimal("-2.5")));
+	}
+
+	@Test
+	public void sumsDoNotDrift() {
+		Money total = Money.ZERO;
+		for (int i = 0; i < 1000; i++)
+			total = total.plus(Money.of(new BigDecimal("0.10")));
+		assertEquals(new BigDecimal("100.00"), total.toBigDecimal());
+		assertEquals(new BigDecimal("0.15"), Cart.BAG_PRICE.times(3).toBigDecimal());
+	}
+
+	@Test
+	public void weightIsRoundedAsAsked() {
+		Money perKilogram = Money.of(new BigDecimal("4.99"));
+
+		// 4.99 * 0.125 = 0.62375
+		assertEquals(62, Money.ofWeight(perKilogram, 125, RoundingMode.HALF_UP).getCents());
+		assertEquals(63, Money.ofWeight(perKilogram, 125, RoundingMode.UP).getCents());
+		// 4.00 * 0.12625 = 0.505
+		assertEquals(51, Money.ofWeight(Money.ofCents(400), 126.25, RoundingMode.HALF_UP).getCents());
+		assertEquals(50, Money.ofWeight(Money.ofCents(400), 126.25, RoundingMode.HALF_EVEN).getCents());
+		assertEquals(200, Money.ofWeight(Money.ofCents(400), 500, RoundingMode.UNNECESSARY).getCents());
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void roundingMustBeAllowed() {
+		Money.ofWeight(Money.ofCents(499), 125, RoundingMode.UNNECESSARY);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void overflowIsCaught() {
+		Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1));
+	}
+}
@@ -0,0 +1,136 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.SimulationException;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+import seng300.software.PackedBarcodeProductMap;
+
+public class PackedBarcodeProductMapTest {
+
+	private BarcodedProduct product(String code) {
+		return new BarcodedProduct(new Barcode(code), "Item " + code, new BigDecimal("1.00"), 100.0);
+	}
+
+	@Test
+	public void findsCopiedProducts() {
+		Map<Barcode, BarcodedProduct> source = new HashMap<Barcode, BarcodedProduct>();
+		for (int i = 0; i < 1000; i++) {
+			BarcodedProduct p = product(String.format("%012d", i * 7919L));
+			source.put(p.getBarcode(), p);
+		}
+		PackedBarcodeProductMap map = PackedBarcodeProductMap.copyOf(source);
+
+		assertEquals(1000, map.size());
+		for (BarcodedProduct p : source.values())
+			assertSame(p, map.get(new Barcode(p.getBarcode().toString())));
+		assertNull(map.get(new Barcode("999999999999")));
+	}
+
+	@Test
+	public void leadingZerosMakeDifferentKeys() {
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap();
+		BarcodedProduct shortCode = product("12");
+		BarcodedProduct longCode = product("012");
+		map.put(shortCode);
+		map.put(longCode);
+
+		assertSame(shortCode, map.get(new Barcode("12")));
+		assertSame(longCode, map.get(new Barcode("012")));
+	}
+
+	@Test
+	public void nullBarcodeIsNeverFound() {
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap();
+		map.put(product("12"));
+
+		assertNull(map.get(null));
+		assertNull(map.remove(null));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void packedBarcodeIsTheSameAsFromText() {
+		Barcode text = new Barcode("0123456789012");
+		Barcode packed = new Barcode(text.getPackedDigits(), text.digitCount());
+
+		assertEquals(text, packed);
+		assertEquals("0123456789012", packed.toString());
+		try {
+			new Barcode(0xA, 1);
+			fail("a nibble above 9 is not a digit");
+		}
+		catch (SimulationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void longBarcodesUseFallback() {
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap();
+		BarcodedProduct p = product("123456789012345678901234");
+		map.put(p);
+
+		assertEquals(1, map.size());
+		assertSame(p, map.get(new Barcode("123456789012345678901234")));
+		assertSame(p, map.remove(p.getBarcode()));
+		assertNull(map.get(p.getBarcode()));
+	}
+
+	@Test
+	public void removeKeepsOtherProductsReachable() {
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap();
+		BarcodedProduct[] products = new BarcodedProduct[200];
+		for (int i = 0; i < products.length; i++) {
+			products[i] = product(Integer.toString(1000 + i));
+			map.put(products[i]);
+		}
+		for (int i = 0; i < products.length; i += 2)
+			assertSame(products[i], map.remove(products[i].getBarcode()));
+
+		assertEquals(100, map.size());
+		for (int i = 0; i < products.length; i++) {
+			if (i % 2 == 0)
+				assertNull(map.get(products[i].getBarcode()));
+			else
+				assertSame(products[i], map.get(products[i].getBarcode()));
+		}
+	}
+
+	@Test
+	public void lookupsDuringWritesSeeEveryProductThatStays() throws InterruptedException {
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap();
+		BarcodedProduct[] kept = new BarcodedProduct[100];
+		for (int i = 0; i < kept.length; i++) {
+			kept[i] = product(Integer.toString(5000 + i));
+			map.put(kept[i]);
+		}
+		AtomicBoolean lost = new AtomicBoolean();
+		Thread reader = new Thread(() -> {
+			for (int round = 0; round < 2000; round++)
+				for (BarcodedProduct p : kept)
+					if (map.get(p.getBarcode()) != p)
+						lost.set(true);
+		});
+		reader.start();
+		// products come and go, growing and shifting the table under the reader
+		for (int i = 0; i < 2000; i++) {
+			BarcodedProduct p = product(Integer.toString(100000 + i));
+			map.put(p);
+			if (i % 3 != 0)
+				map.remove(p.getBarcode());
+		}
+		reader.join();
+
+		assertFalse(lost.get());
+		assertEquals(100 + 667, map.size());
+	}
+}
@@ -0,0 +1,96 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.Cart;
+import seng300.software.CartBreakdown;
+import seng300.software.PricingRules;
+import seng300.software.exceptions.ProductNotFoundException;
+
+public class PricingEngineTest {
+
+	Cart cart;
+	BarcodedProduct yogurt = new BarcodedProduct(new Barcode("55701"), "Yogurt", new BigDecimal("2.00"), 120.0);
+	BarcodedProduct chips = new BarcodedProduct(new Barcode("55702"), "Chips", new BigDecimal("4.00"), 250.0);
+	PLUCodedProduct pears = new PLUCodedProduct(new PriceLookupCode("55703"), "Pears", new BigDecimal("5.00"));
+
+	@Before
+	public void setUp() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(yogurt.getBarcode(), yogurt);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(chips.getBarcode(), chips);
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(pears.getPLUCode(), pears);
+		cart = new Cart();
+		// chips are taxed at 13%, everything else is zero rated
+		cart.getPricing().addRule(new PricingRules.TaxClass("HST", 1300, Collections.singleton(chips.getBarcode())));
+		cart.getPricing().addRule(new PricingRules.TaxClass("Zero rated", 0, null));
+	}
+
+	@After
+	public void tearDown() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(yogurt.getBarcode());
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(chips.getBarcode());
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(pears.getPLUCode());
+	}
+
+	@Test
+	public void multiBuyAppliesToFullSetsOnly() throws ProductNotFoundException {
+		cart.getPricing().addRule(new PricingRules.MultiBuy(yogurt.getBarcode(), 3, new BigDecimal("5.00")));
+		cart.addToCart(yogurt.getBarcode(), 2);
+		assertEquals(new BigDecimal("0.00"), cart.getBreakdown().getDiscounts());
+
+		cart.addToCart(yogurt.getBarcode(), 5);
+		CartBreakdown breakdown = cart.getBreakdown();
+		assertEquals(new BigDecimal("14.00"), breakdown.getSubtotal());
+		assertEquals(new BigDecimal("2.00"), breakdown.getDiscounts());
+		assertEquals(new BigDecimal("12.00"), cart.getTotalDue());
+
+		cart.removeFromCart(yogurt);
+		assertEquals(new BigDecimal("2.00"), cart.getBreakdown().getDiscounts());
+		cart.removeFromCart(yogurt);
+		assertEquals(new BigDecimal("1.00"), cart.getBreakdown().getDiscounts());
+	}
+
+	@Test
+	public void taxIsChargedOnDiscountedPrice() throws ProductNotFoundException {
+		cart.addToCart(chips.getBarcode());
+		cart.addToCart(yogurt.getBarcode());
+		assertEquals(new BigDecimal("0.52"), cart.getBreakdown().getTax());
+
+		cart.getPricing().addRule(new PricingRules.MemberDiscount(1000, null));
+		assertEquals(new BigDecimal("0.00"), cart.getBreakdown().getDiscounts());
+
+		cart.getPricing().setMember(true);
+		CartBreakdown breakdown = cart.getBreakdown();
+		assertEquals(new BigDecimal("0.60"), breakdown.getDiscounts());
+		// 13% of 3.60
+		assertEquals(new BigDecimal("0.47"), breakdown.getTax());
+		assertEquals(new BigDecimal("5.87"), breakdown.getTotal());
+	}
+
+	@Test
+	public void weightMarkdownFollowsTheLine() throws ProductNotFoundException {
+		cart.getPricing().addRule(new PricingRules.WeightMarkdown(pears.getPLUCode(), 2500));
+		cart.addPLUCodedProductToCart(pears.getPLUCode(), 500);
+		assertEquals(new BigDecimal("0.63"), cart.getBreakdown().getDiscounts());
+
+		cart.addPLUCodedProductToCart(pears.getPLUCode(), 300);
+		// a quarter off 4.00
+		assertEquals(new BigDecimal("1.00"), cart.getBreakdown().getDiscounts());
+		assertEquals(new BigDecimal("3.00"), cart.getTotalDue());
+
+		cart.reset();
+		assertEquals(new BigDecimal("0.00"), cart.getTotalDue());
+	}
+}
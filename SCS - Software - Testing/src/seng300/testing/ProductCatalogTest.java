@@ -0,0 +1,102 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.ProductCatalog;
+import seng300.software.ProductDatabaseLogic;
+
+public class ProductCatalogTest {
+
+	ProductCatalog catalog;
+	BarcodedProduct milk = new BarcodedProduct(new Barcode("0123"), "Milk", new BigDecimal("4.99"), 2000.0);
+	BarcodedProduct bread = new BarcodedProduct(new Barcode("0456"), "Bread", new BigDecimal("3.49"), 700.0);
+	PLUCodedProduct banana = new PLUCodedProduct(new PriceLookupCode("4011"), "Banana", new BigDecimal("1.74"));
+
+	@Before
+	public void setUp() {
+		Map<Barcode, BarcodedProduct> barcoded = new HashMap<Barcode, BarcodedProduct>();
+		barcoded.put(milk.getBarcode(), milk);
+		barcoded.put(bread.getBarcode(), bread);
+		Map<PriceLookupCode, PLUCodedProduct> plu = new HashMap<PriceLookupCode, PLUCodedProduct>();
+		plu.put(banana.getPLUCode(), banana);
+		catalog = new ProductCatalog();
+		catalog.replaceAll(barcoded, plu);
+	}
+
+	@Test
+	public void priceUpdateIsNewVersion() {
+		ProductCatalog.Snapshot before = catalog.snapshot();
+		Map<Barcode, BigDecimal> prices = new HashMap<Barcode, BigDecimal>();
+		prices.put(milk.getBarcode(), new BigDecimal("5.29"));
+		prices.put(bread.getBarcode(), new BigDecimal("3.99"));
+		catalog.updatePrices(prices, Collections.<PriceLookupCode, BigDecimal>emptyMap());
+
+		assertEquals(before.getVersion() + 1, catalog.snapshot().getVersion());
+		assertEquals(new BigDecimal("5.29"), catalog.get(new Barcode("0123")).getPrice());
+		assertEquals(new BigDecimal("3.99"), catalog.get(new Barcode("0456")).getPrice());
+		// stations still holding the old version keep seeing the old prices
+		assertSame(milk, before.getBarcodedProduct(milk.getBarcode()));
+	}
+
+	@Test
+	public void priceUpdateWithUnknownCodeChangesNothing() {
+		ProductCatalog.Snapshot before = catalog.snapshot();
+		Map<PriceLookupCode, BigDecimal> prices = new HashMap<PriceLookupCode, BigDecimal>();
+		prices.put(banana.getPLUCode(), new BigDecimal("1.99"));
+		prices.put(new PriceLookupCode("9999"), new BigDecimal("1.00"));
+		try {
+			catalog.updatePrices(Collections.<Barcode, BigDecimal>emptyMap(), prices);
+			fail("expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e) {
+		}
+
+		assertSame(before, catalog.snapshot());
+		assertSame(banana, catalog.get(banana.getPLUCode()));
+	}
+
+	@Test
+	public void searchesAreOverTheCatalogInUse() {
+		PLUCodedProduct plantain = new PLUCodedProduct(new PriceLookupCode("4235"), "Plantain", new BigDecimal("2.49"));
+		// only in the database, which stations no longer read
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(plantain.getPLUCode(), plantain);
+		ProductDatabaseLogic.useCatalog(catalog);
+		try {
+			ProductDatabaseLogic logic = new ProductDatabaseLogic();
+			assertSame(banana, logic.lookUpPLUCodedProducts("ban").get(0));
+			assertTrue(logic.lookUpPLUCodedProducts("plan").isEmpty());
+			assertTrue(logic.searchPLUCodedProducts("plantain", 5).isEmpty());
+
+			catalog.putAll(Collections.<BarcodedProduct>emptyList(), Collections.singletonList(plantain));
+			Map<PriceLookupCode, BigDecimal> prices = new HashMap<PriceLookupCode, BigDecimal>();
+			prices.put(banana.getPLUCode(), new BigDecimal("1.99"));
+			catalog.updatePrices(Collections.<Barcode, BigDecimal>emptyMap(), prices);
+
+			assertSame(plantain, logic.lookUpPLUCodedProducts("plan").get(0));
+			assertSame(plantain, logic.searchPLUCodedProducts("plantain", 5).get(0));
+			assertEquals(new BigDecimal("1.99"), logic.lookUpPLUCodedProducts("ban").get(0).getPrice());
+		}
+		finally {
+			ProductDatabaseLogic.useCatalog(null);
+			ProductDatabases.PLU_PRODUCT_DATABASE.remove(plantain.getPLUCode());
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshotsAreReadOnly() {
+		catalog.snapshot().getBarcodedProducts().remove(milk.getBarcode());
+	}
+}
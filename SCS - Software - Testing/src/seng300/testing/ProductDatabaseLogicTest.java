@@ -0,0 +1,113 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.ProductCatalog;
+import seng300.software.ProductDatabaseLogic;
+import seng300.software.exceptions.ProductNotFoundException;
+
+public class ProductDatabaseLogicTest {
+
+	ProductDatabaseLogic db = new ProductDatabaseLogic();
+	Barcode code = new Barcode("987654321098");
+	PriceLookupCode plu = new PriceLookupCode("98765");
+
+	@After
+	public void tearDown() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(code);
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(plu);
+		ProductDatabaseLogic.useCatalog(null);
+	}
+
+	@Test
+	public void missIsForgottenWhenProductIsAdded() {
+		assertFalse(db.findProduct(code).isPresent());
+		assertFalse(db.findProduct(code).isPresent());
+
+		BarcodedProduct p = new BarcodedProduct(code, "Bread", new BigDecimal("3.49"), 700.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(code, p);
+
+		assertSame(p, db.findProduct(code).get());
+	}
+
+	@Test
+	public void pluMissIsForgottenWhenProductIsAdded() {
+		assertFalse(db.findPLUCodedProduct(plu).isPresent());
+
+		PLUCodedProduct p = new PLUCodedProduct(plu, "Kiwi", new BigDecimal("0.79"));
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(plu, p);
+
+		assertSame(p, db.findPLUCodedProduct(plu).get());
+	}
+
+	@Test
+	public void missIsForgottenWhenAnotherProductMakesRoom() {
+		Barcode other = new Barcode("987654321099");
+		PriceLookupCode otherPlu = new PriceLookupCode("98766");
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(other, new BarcodedProduct(other, "Rye", new BigDecimal("3.99"), 700.0));
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(otherPlu, new PLUCodedProduct(otherPlu, "Lime", new BigDecimal("0.49")));
+		assertFalse(db.findProduct(code).isPresent());
+		assertFalse(db.findPLUCodedProduct(plu).isPresent());
+
+		// the databases keep their size
+		BarcodedProduct p = new BarcodedProduct(code, "Bread", new BigDecimal("3.49"), 700.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(other);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(code, p);
+		PLUCodedProduct kiwi = new PLUCodedProduct(plu, "Kiwi", new BigDecimal("0.79"));
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(otherPlu);
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(plu, kiwi);
+
+		assertSame(p, db.findProduct(code).get());
+		assertSame(kiwi, db.findPLUCodedProduct(plu).get());
+	}
+
+	@Test(expected = ProductNotFoundException.class)
+	public void getProductStillThrowsOnMiss() throws ProductNotFoundException {
+		db.getProduct(code);
+	}
+
+	@Test
+	public void stationCacheIsDroppedOnPriceChange() {
+		ProductCatalog catalog = new ProductCatalog();
+		BarcodedProduct p = new BarcodedProduct(code, "Milk", new BigDecimal("4.99"), 2000.0);
+		catalog.putAll(Collections.singletonList(p), Collections.<PLUCodedProduct>emptyList());
+		ProductDatabaseLogic.useCatalog(catalog);
+
+		db.findProduct(code);
+		db.findProduct(code);
+		db.findProduct(code);
+		assertEquals(2, db.getCacheHits());
+		assertEquals(1, db.getCacheMisses());
+
+		catalog.updatePrices(Collections.singletonMap(code, new BigDecimal("5.29")),
+				Collections.<PriceLookupCode, BigDecimal>emptyMap());
+
+		assertEquals(new BigDecimal("5.29"), db.findProduct(code).get().getPrice());
+		assertEquals(2, db.getCacheMisses());
+	}
+
+	@Test
+	public void stationCacheIsUsedWithTheDatabase() {
+		BarcodedProduct p = new BarcodedProduct(code, "Milk", new BigDecimal("4.99"), 2000.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(code, p);
+		db.findProduct(code);
+		db.findProduct(code);
+		assertEquals(1, db.getCacheHits());
+
+		// a new price under the same barcode is seen at once
+		BarcodedProduct dearer = new BarcodedProduct(code, "Milk", new BigDecimal("5.29"), 2000.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(code, dearer);
+		assertSame(dearer, db.findProduct(code).get());
+	}
+}
@@ -0,0 +1,138 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.VersionedMap;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.ProductLookupIndex;
+import seng300.software.ProductSearchSession;
+
+public class ProductLookupIndexTest {
+
+	Map<PriceLookupCode, PLUCodedProduct> database;
+	ProductLookupIndex index;
+
+	PLUCodedProduct redPepper = new PLUCodedProduct(new PriceLookupCode("00008"), "Pepper Red Sweet", new BigDecimal("6.59"));
+	PLUCodedProduct greenPepper = new PLUCodedProduct(new PriceLookupCode("00005"), "Pepper Green Sweet", new BigDecimal("6.59"));
+	PLUCodedProduct jalepeno = new PLUCodedProduct(new PriceLookupCode("00006"), "Peppers Jalepeno", new BigDecimal("3.28"));
+	PLUCodedProduct pear = new PLUCodedProduct(new PriceLookupCode("00004"), "Pear D'Anjou", new BigDecimal("5.49"));
+	PLUCodedProduct banana = new PLUCodedProduct(new PriceLookupCode("00000"), "Banana", new BigDecimal("1.74"));
+
+	@Before
+	public void setUp() {
+		database = new VersionedMap<PriceLookupCode, PLUCodedProduct>();
+		database.put(redPepper.getPLUCode(), redPepper);
+		database.put(greenPepper.getPLUCode(), greenPepper);
+		database.put(jalepeno.getPLUCode(), jalepeno);
+		database.put(pear.getPLUCode(), pear);
+		database.put(banana.getPLUCode(), banana);
+		index = new ProductLookupIndex(database);
+	}
+
+	@Test
+	public void lookUpReturnsMatchesSortedByDescription() {
+		List<PLUCodedProduct> found = index.lookUp("pEp");
+
+		assertEquals(3, found.size());
+		assertSame(greenPepper, found.get(0));
+		assertSame(redPepper, found.get(1));
+		assertSame(jalepeno, found.get(2));
+	}
+
+	@Test
+	public void lookUpWithNoMatchesIsEmpty() {
+		assertTrue(index.lookUp("tomato").isEmpty());
+	}
+
+	@Test
+	public void addAndRemoveUpdateIndex() {
+		PLUCodedProduct orange = new PLUCodedProduct(new PriceLookupCode("00010"), "Pepper Orange Sweet", new BigDecimal("6.59"));
+		database.put(orange.getPLUCode(), orange);
+		index.add(orange);
+		database.remove(redPepper.getPLUCode());
+		index.remove(redPepper.getPLUCode());
+
+		List<PLUCodedProduct> found = index.lookUp("pepper ");
+
+		assertEquals(2, found.size());
+		assertSame(greenPepper, found.get(0));
+		assertSame(orange, found.get(1));
+	}
+
+	@Test
+	public void directWritesToDatabaseAreNoticed() {
+		PLUCodedProduct plantain = new PLUCodedProduct(new PriceLookupCode("00001"), "Banana Plantain Ripe", new BigDecimal("2.18"));
+		database.put(plantain.getPLUCode(), plantain);
+
+		List<PLUCodedProduct> found = index.lookUp("banana");
+
+		assertEquals(2, found.size());
+		assertSame(banana, found.get(0));
+		assertSame(plantain, found.get(1));
+	}
+
+	@Test
+	public void replacingAProductDirectlyIsNoticed() {
+		PLUCodedProduct apple = new PLUCodedProduct(banana.getPLUCode(), "Apple Gala", new BigDecimal("3.29"));
+		index.lookUp("banana");
+		database.put(apple.getPLUCode(), apple);
+
+		assertTrue(index.lookUp("banana").isEmpty());
+		assertSame(apple, index.lookUp("apple").get(0));
+		assertEquals(5, index.size());
+	}
+
+	@Test
+	public void sessionNarrowsAndWidens() {
+		ProductSearchSession session = new ProductSearchSession(index);
+		session.append('P');
+		session.append('e');
+		assertEquals(4, session.resultCount());
+		session.append('p');
+		assertEquals(3, session.resultCount());
+		session.append('p');
+		session.append('e');
+		session.append('r');
+		session.append('s');
+		assertEquals(1, session.resultCount());
+		assertSame(jalepeno, session.getPage(0).get(0));
+
+		session.backspace();
+		assertEquals("Pepper", session.getQuery());
+		assertEquals(3, session.resultCount());
+		assertSame(greenPepper, session.getPage(0).get(0));
+	}
+
+	@Test
+	public void sessionSetQueryMatchesLookUp() {
+		ProductSearchSession session = new ProductSearchSession(index);
+		session.setQuery("pepper r");
+		session.setQuery("pea");
+
+		assertEquals(index.lookUp("pea"), session.getPage(0));
+	}
+
+	@Test
+	public void sessionPagesHoldSixResults() {
+		for (int i = 0; i < 10; i++) {
+			PLUCodedProduct p = new PLUCodedProduct(new PriceLookupCode("2000" + i), "Apple " + i, new BigDecimal("1.00"));
+			database.put(p.getPLUCode(), p);
+			index.add(p);
+		}
+		ProductSearchSession session = new ProductSearchSession(index);
+		session.setQuery("apple");
+
+		assertEquals(2, session.pageCount());
+		assertEquals(6, session.getPage(0).size());
+		assertEquals(4, session.getPage(1).size());
+		assertEquals("Apple 6", session.getPage(1).get(0).getDescription());
+	}
+}
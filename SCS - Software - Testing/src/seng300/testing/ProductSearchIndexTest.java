@@ -0,0 +1,84 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.VersionedMap;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.ProductSearchIndex;
+
+public class ProductSearchIndexTest {
+
+	Map<PriceLookupCode, PLUCodedProduct> database;
+	ProductSearchIndex index;
+
+	PLUCodedProduct redPepper = new PLUCodedProduct(new PriceLookupCode("00008"), "Pepper Red Sweet", new BigDecimal("6.59"));
+	PLUCodedProduct greenPepper = new PLUCodedProduct(new PriceLookupCode("00005"), "Pepper Green Sweet", new BigDecimal("6.59"));
+	PLUCodedProduct redOnion = new PLUCodedProduct(new PriceLookupCode("00007"), "Onion Red", new BigDecimal("2.19"));
+	PLUCodedProduct orange = new PLUCodedProduct(new PriceLookupCode("00011"), "Orange Navel", new BigDecimal("1.29"));
+	PLUCodedProduct banana = new PLUCodedProduct(new PriceLookupCode("00000"), "Banana", new BigDecimal("1.74"));
+
+	@Before
+	public void setUp() {
+		database = new VersionedMap<PriceLookupCode, PLUCodedProduct>();
+		database.put(redPepper.getPLUCode(), redPepper);
+		database.put(greenPepper.getPLUCode(), greenPepper);
+		database.put(redOnion.getPLUCode(), redOnion);
+		database.put(orange.getPLUCode(), orange);
+		database.put(banana.getPLUCode(), banana);
+		index = new ProductSearchIndex(database);
+	}
+
+	@Test
+	public void wordsMatchInAnyOrder() {
+		List<PLUCodedProduct> found = index.search("red pepper", 6);
+
+		assertSame(redPepper, found.get(0));
+		assertEquals(3, found.size());
+	}
+
+	@Test
+	public void typosAreForgiven() {
+		assertSame(redPepper, index.search("red peper", 6).get(0));
+		assertSame(orange, index.search("oragne", 6).get(0));
+	}
+
+	@Test
+	public void shortWordsMustMatchExactlyOrAsPrefix() {
+		assertTrue(index.search("xed", 6).isEmpty());
+		assertSame(banana, index.search("ban", 6).get(0));
+	}
+
+	@Test
+	public void limitKeepsBestResults() {
+		List<PLUCodedProduct> found = index.search("sweet red", 2);
+
+		assertEquals(2, found.size());
+		assertSame(redPepper, found.get(0));
+	}
+
+	@Test
+	public void changesToDatabaseAreSeen() {
+		PLUCodedProduct plantain = new PLUCodedProduct(new PriceLookupCode("00001"), "Banana Plantain", new BigDecimal("2.18"));
+		database.put(plantain.getPLUCode(), plantain);
+
+		assertSame(plantain, index.search("plantian", 6).get(0));
+	}
+
+	@Test
+	public void renamingUnderTheSameCodeIsSeen() {
+		PLUCodedProduct apple = new PLUCodedProduct(banana.getPLUCode(), "Apple Gala", new BigDecimal("3.29"));
+		assertSame(banana, index.search("ban", 6).get(0));
+		database.put(apple.getPLUCode(), apple);
+
+		assertTrue(index.search("ban", 6).isEmpty());
+		assertSame(apple, index.search("apple", 6).get(0));
+	}
+}
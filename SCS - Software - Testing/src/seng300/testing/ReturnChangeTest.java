@@ -0,0 +1,96 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+
+import seng300.software.ReturnChange;
+
+public class ReturnChangeTest {
+
+	Currency cad = Currency.getInstance("CAD");
+	BigDecimal dime = new BigDecimal("0.10");
+
+	SelfCheckoutStation scs;
+	List<String> progress = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		scs = new SelfCheckoutStation(cad, new int[] {5}, new BigDecimal[] {dime}, 1000, 1);
+		scs.banknoteDispensers.get(5).load(new Banknote(cad, 5), new Banknote(cad, 5));
+		for (int i = 0; i < 30; i++)
+			scs.coinDispensers.get(dime).load(new Coin(cad, dime));
+	}
+
+	private int coinsIn(List<Coin> tray) {
+		int n = 0;
+		for (Coin c : tray)
+			if (c != null)
+				n++;
+		return n;
+	}
+
+	@Test
+	public void changeIsGivenAsTheCustomerTakesIt() {
+		ReturnChange change = new ReturnChange(scs, new BigDecimal("12.50"));
+		change.start((given, left) -> progress.add(given + "/" + left));
+
+		// a banknote and a trayful of dimes go out together
+		assertFalse(scs.banknoteOutput.hasSpace());
+		assertFalse(scs.coinTray.hasSpace());
+		assertEquals(2, progress.size());
+		assertEquals("7.00/5.50", progress.get(1));
+
+		// emptying the tray lets the rest of the dimes out
+		assertEquals(20, coinsIn(scs.coinTray.collectCoins()));
+		assertEquals("7.50/5.00", progress.get(2));
+		assertEquals(5, coinsIn(scs.coinTray.collectCoins()));
+		assertFalse(change.isDone());
+
+		// taking the banknote lets the next one out
+		assertEquals(1, scs.banknoteOutput.removeDanglingBanknotes().length);
+		assertEquals(1, scs.banknoteOutput.removeDanglingBanknotes().length);
+		assertTrue(scs.banknoteOutput.hasSpace());
+		assertEquals("12.50/0.00", progress.get(progress.size() - 1));
+		assertTrue(change.isDone());
+	}
+
+	@Test
+	public void coinsStopWhenTheTrayIsFull() {
+		ReturnChange change = new ReturnChange(scs, new BigDecimal("2.50"));
+		assertFalse(change.ejectCoin());
+		assertEquals(20, coinsIn(scs.coinTray.collectCoins()));
+		// not started, so nothing more goes out until asked
+		assertTrue(scs.coinTray.hasSpace());
+		assertTrue(change.ejectCoin());
+		assertEquals(5, coinsIn(scs.coinTray.collectCoins()));
+	}
+
+	@Test
+	public void changeThatCannotBeMadeIsReported() {
+		ReturnChange change = new ReturnChange(scs, new BigDecimal("0.05"));
+		change.start(new ReturnChange.ProgressListener() {
+			public void progress(BigDecimal given, BigDecimal left) {
+				progress.add(given + "/" + left);
+			}
+			public void changeUnavailable(BigDecimal owed) {
+				progress.add("unavailable " + owed);
+			}
+		});
+
+		assertFalse(change.isChangeAvailable());
+		assertFalse(change.isDone());
+		assertEquals("[unavailable 0.05]", progress.toString());
+		assertTrue(scs.coinTray.hasSpace());
+		assertEquals(30, scs.coinDispensers.get(dime).size());
+	}
+}
@@ -0,0 +1,109 @@
+package seng300.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.BarcodedItem;
+import org.lsmr.selfcheckout.Item;
+import org.lsmr.selfcheckout.devices.AbstractDevice;
+import org.lsmr.selfcheckout.devices.ElectronicScale;
+import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
+import org.lsmr.selfcheckout.devices.observers.ElectronicScaleObserver;
+
+/**
+ * Harness for playing out what customers do at a bagging area scale: items
+ * put down and taken up, bags that sway, pauses. The scale works without a
+ * station, and a Recorder keeps every event an observer is given, so the
+ * events seen straight from the scale can be compared with those seen
+ * through a filter.
+ */
+public class ScaleSimulation {
+
+	/**
+	 * Keeps the events it is given.
+	 */
+	public static class Recorder implements ElectronicScaleObserver {
+		public final List<Double> weights = new ArrayList<>();
+		public int overloads = 0;
+		public int outOfOverloads = 0;
+
+		@Override
+		public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {
+		}
+
+		@Override
+		public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device) {
+		}
+
+		@Override
+		public synchronized void weightChanged(ElectronicScale scale, double weightInGrams) {
+			weights.add(weightInGrams);
+		}
+
+		@Override
+		public synchronized void overload(ElectronicScale scale) {
+			overloads++;
+		}
+
+		@Override
+		public synchronized void outOfOverload(ElectronicScale scale) {
+			outOfOverloads++;
+		}
+
+		public synchronized int changes() {
+			return weights.size();
+		}
+
+		public synchronized double lastWeight() {
+			return weights.get(weights.size() - 1);
+		}
+	}
+
+	private final ElectronicScale scale;
+	private int itemCount = 0;
+
+	public ScaleSimulation(int weightLimitInGrams, int sensitivity) {
+		scale = new ElectronicScale(weightLimitInGrams, sensitivity) {
+			{
+				// a station would do this once it is built
+				endConfigurationPhase();
+			}
+		};
+	}
+
+	public ElectronicScale getScale() {
+		return scale;
+	}
+
+	/**
+	 * Puts an item of the given weight on the scale.
+	 */
+	public Item place(double grams) {
+		Item item = new BarcodedItem(new Barcode(String.valueOf(++itemCount)), grams);
+		scale.add(item);
+		return item;
+	}
+
+	/**
+	 * Takes an item off the scale.
+	 */
+	public void take(Item item) {
+		scale.remove(item);
+	}
+
+	/**
+	 * Lifts an item just off the scale and lets it fall back, as a bag does
+	 * while it settles.
+	 */
+	public void sway(Item item, int times) {
+		for (int i = 0; i < times; i++) {
+			scale.remove(item);
+			scale.add(item);
+		}
+	}
+
+	public void pause(long millis) throws InterruptedException {
+		Thread.sleep(millis);
+	}
+}
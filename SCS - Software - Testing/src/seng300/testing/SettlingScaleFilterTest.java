@@ -0,0 +1,84 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Item;
+
+import seng300.software.observers.SettlingScaleFilter;
+
+public class SettlingScaleFilterTest {
+
+	static final long WINDOW = 100;
+
+	ScaleSimulation sim;
+	ScaleSimulation.Recorder direct;
+	ScaleSimulation.Recorder settled;
+
+	@Before
+	public void setUp() {
+		sim = new ScaleSimulation(5000, 3);
+		direct = new ScaleSimulation.Recorder();
+		settled = new ScaleSimulation.Recorder();
+		sim.getScale().attach(direct);
+		sim.getScale().attach(new SettlingScaleFilter(settled, WINDOW, 3));
+	}
+
+	@Test
+	public void swayingBagIsPassedOnOnce() throws InterruptedException {
+		Item bag = sim.place(400);
+		sim.sway(bag, 3);
+		assertEquals(0, settled.changes());
+
+		sim.pause(WINDOW * 3);
+		assertEquals(7, direct.changes());
+		assertEquals(1, settled.changes());
+		assertEquals(400, settled.lastWeight(), 1E-9);
+	}
+
+	@Test
+	public void itemsPutDownTogetherArePassedOnAsOne() throws InterruptedException {
+		sim.place(100);
+		sim.pause(WINDOW / 5);
+		sim.place(150);
+
+		sim.pause(WINDOW * 3);
+		assertEquals(2, direct.changes());
+		assertEquals(1, settled.changes());
+		assertEquals(250, settled.lastWeight(), 1E-9);
+	}
+
+	@Test
+	public void itemTakenBackBeforeSettlingIsNotPassedOn() throws InterruptedException {
+		Item item = sim.place(100);
+		sim.take(item);
+
+		sim.pause(WINDOW * 3);
+		assertEquals(2, direct.changes());
+		assertEquals(0, settled.changes());
+	}
+
+	@Test
+	public void itemLighterThanTheThresholdIsPassedOn() throws InterruptedException {
+		ScaleSimulation fine = new ScaleSimulation(5000, 1);
+		ScaleSimulation.Recorder light = new ScaleSimulation.Recorder();
+		fine.getScale().attach(new SettlingScaleFilter(light, WINDOW, 3));
+		fine.place(2);
+
+		fine.pause(WINDOW * 3);
+		assertEquals(1, light.changes());
+		assertEquals(2, light.lastWeight(), 1E-9);
+	}
+
+	@Test
+	public void overloadIsPassedOnAtOnce() {
+		sim.place(6000);
+		assertEquals(1, settled.overloads);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void thresholdBelowReadingNoiseIsRejected() {
+		new SettlingScaleFilter(settled, WINDOW, SettlingScaleFilter.READING_NOISE / 2);
+	}
+}
@@ -0,0 +1,175 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+import seng300.software.SelfCheckoutSystemLogic;
+import seng300.software.exceptions.ProductNotFoundException;
+
+public class TransactionSnapshotTest {
+
+	BarcodedProduct milk = new BarcodedProduct(new Barcode("55801"), "Milk", new BigDecimal("4.50"), 1000.0);
+	PLUCodedProduct apples = new PLUCodedProduct(new PriceLookupCode("55802"), "Apples", new BigDecimal("3.00"));
+	SelfCheckoutStation scs;
+	SelfCheckoutSystemLogic logic;
+
+	@Before
+	public void setUp() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(milk.getBarcode(), milk);
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(apples.getPLUCode(), apples);
+		scs = newStation();
+		logic = newLogic(scs);
+	}
+
+	private SelfCheckoutStation newStation() {
+		return new SelfCheckoutStation(Currency.getInstance("CAD"), new int[] {5, 10, 20},
+				new BigDecimal[] {new BigDecimal("0.25"), new BigDecimal("1.00")}, 15000, 3);
+	}
+
+	private SelfCheckoutSystemLogic newLogic(SelfCheckoutStation station) {
+		SelfCheckoutSystemLogic l = new SelfCheckoutSystemLogic(station);
+		l.setGui(new GuiStub(l));
+		l.testMode();
+		return l;
+	}
+
+	@After
+	public void tearDown() {
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(milk.getBarcode());
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(apples.getPLUCode());
+	}
+
+	@Test
+	public void suspendedTransactionResumesWithSamePrices() throws ProductNotFoundException, IOException {
+		logic.getCart().addToCart(milk.getBarcode(), 2);
+		logic.getCart().addPLUCodedProductToCart(apples.getPLUCode(), 500);
+		logic.getCart().addPlasticBags(1);
+		BigDecimal total = logic.getCart().getCartTotal();
+
+		byte[] snapshot = logic.suspendTransaction();
+		assertEquals(0, logic.getCart().getProducts().size());
+
+		// the price changes while the transaction is suspended
+		BarcodedProduct dearer = new BarcodedProduct(milk.getBarcode(), "Milk", new BigDecimal("5.00"), 1000.0);
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.put(milk.getBarcode(), dearer);
+
+		logic.resumeTransaction(snapshot);
+		assertEquals(3, logic.getCart().getProducts().size());
+		assertEquals(1, logic.getCart().getBags());
+		assertEquals(total, logic.getCart().getCartTotal());
+		assertEquals(2, logic.getCart().getLineItems().getLine(milk).getQuantity());
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedSnapshotIsRejected() throws ProductNotFoundException, IOException {
+		logic.getCart().addToCart(milk.getBarcode());
+		byte[] snapshot = logic.suspendTransaction();
+		logic.resumeTransaction(Arrays.copyOf(snapshot, snapshot.length - 3));
+	}
+
+	@Test
+	public void rejectedSnapshotLeavesCartEmpty() throws ProductNotFoundException {
+		logic.getCart().addToCart(milk.getBarcode());
+		byte[] snapshot = logic.suspendTransaction();
+		ProductDatabases.BARCODED_PRODUCT_DATABASE.remove(milk.getBarcode());
+		try {
+			logic.resumeTransaction(snapshot);
+			fail("a product no longer sold should be rejected");
+		} catch (IOException e) {
+			assertEquals(0, logic.getCart().getProducts().size());
+		}
+	}
+
+	@Test
+	public void corruptSnapshotLeavesTransactionInProgress() throws ProductNotFoundException, IOException {
+		logic.getCart().addToCart(milk.getBarcode());
+		byte[] snapshot = logic.suspendTransaction();
+		logic.getCart().addToCart(milk.getBarcode(), 3);
+		BigDecimal total = logic.getCart().getCartTotal();
+		try {
+			logic.resumeTransaction(Arrays.copyOf(snapshot, snapshot.length - 3));
+			fail("a truncated snapshot should be rejected");
+		} catch (IOException e) {
+			assertEquals(3, logic.getCart().getProducts().size());
+			assertEquals(total, logic.getCart().getCartTotal());
+		}
+	}
+
+	@Test
+	public void turningOffSavesTheTransaction() throws Exception {
+		Path dir = Files.createTempDirectory("recovery");
+		Path file = dir.resolve("transaction");
+		logic.setRecoveryFile(file);
+		logic.getCart().addToCart(milk.getBarcode(), 2);
+		logic.turnOffStation();
+		assertNull(logic.getRecoveryError());
+
+		logic.reset();
+		assertTrue(logic.recoverTransaction());
+		assertEquals(2, logic.getCart().getProducts().size());
+		logic.setRecoveryFile(null);
+		deleteAll(dir);
+	}
+
+	@Test
+	public void coinsPutInBeforeACrashAreRecovered() throws Exception {
+		Path dir = Files.createTempDirectory("recovery");
+		Path file = dir.resolve("transaction");
+		logic.setRecoveryFile(file);
+		logic.getCart().addToCart(milk.getBarcode());
+		logic.wantsToCheckout();
+		logic.checkout.chooseCoin();
+		scs.coinSlot.accept(new Coin(Currency.getInstance("CAD"), new BigDecimal("1.00")));
+		scs.coinSlot.accept(new Coin(Currency.getInstance("CAD"), new BigDecimal("0.25")));
+
+		// the station stops without being turned off, and another picks up the transaction
+		SelfCheckoutSystemLogic other = newLogic(newStation());
+		other.setRecoveryFile(file);
+		assertTrue(other.recoverTransaction());
+		assertEquals(1, other.getCart().getProducts().size());
+		assertEquals(0, new BigDecimal("1.25").compareTo(other.checkout.getTotalAmountPaid()));
+		logic.setRecoveryFile(null);
+		other.setRecoveryFile(null);
+		deleteAll(dir);
+	}
+
+	@Test
+	public void failedSaveIsReported() throws Exception {
+		Path dir = Files.createTempDirectory("recovery");
+		// the file cannot be written where a directory is
+		Path file = Files.createDirectory(dir.resolve("transaction"));
+		Files.createFile(file.resolve("in-the-way"));
+		logic.setRecoveryFile(file);
+		logic.getCart().addToCart(milk.getBarcode());
+		logic.turnOffStation();
+		assertNotNull(logic.getRecoveryError());
+		logic.setRecoveryFile(null);
+		deleteAll(dir);
+	}
+
+	// best effort, a save still queued may write after this
+	private void deleteAll(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package seng300.testing;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+import seng300.software.observers.WeightVerifier;
+import seng300.software.observers.WeightVerifier.Verdict;
+
+public class WeightVerifierTest {
+
+	BarcodedProduct soup = new BarcodedProduct(new Barcode("55901"), "Soup", new BigDecimal("2.50"), 100.0);
+	BarcodedProduct bread = new BarcodedProduct(new Barcode("55902"), "Bread", new BigDecimal("3.00"), 50.0);
+
+	@Test
+	public void readingNoiseIsAllowedFor() {
+		// readings over by up to 0.1g make a weight good to within 0.12g
+		WeightVerifier verifier = new WeightVerifier(0.1);
+		assertEquals(Verdict.ACCEPT, verifier.verify(soup, 100.1));
+		assertEquals(Verdict.ATTENDANT, verifier.verify(soup, 100.2));
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 101));
+		assertEquals(Verdict.ACCEPT, verifier.verify(Arrays.asList(soup, bread), 149.95));
+
+		verifier.setConfidence(1, 3);
+		assertEquals(Verdict.ATTENDANT, verifier.verify(soup, 100.1));
+	}
+
+	@Test
+	public void wrongItemLighterThanTheSensitivityIsRejected() {
+		// the scale in the bagging tests has a sensitivity of 3g, and a 1g mismatch is still the wrong item
+		WeightVerifier verifier = new WeightVerifier();
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 99));
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 103));
+		assertEquals(Verdict.ACCEPT, verifier.verify(soup, 100));
+	}
+
+	@Test
+	public void variationIsLearnedFromAcceptedItems() {
+		WeightVerifier verifier = new WeightVerifier(0);
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 104));
+
+		for (double weight : new double[] {98, 99, 100, 101, 102})
+			verifier.learn(soup, weight);
+		// standard deviation of 1.58g
+		assertEquals(100, verifier.getExpectedWeight(soup), 1E-9);
+		assertEquals(Verdict.ACCEPT, verifier.verify(soup, 104));
+		assertEquals(Verdict.ATTENDANT, verifier.verify(soup, 108));
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 110));
+
+		verifier.forget();
+		assertEquals(Verdict.REJECT, verifier.verify(soup, 104));
+	}
+}
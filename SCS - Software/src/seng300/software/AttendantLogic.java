@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 import java.util.Currency;
 
 import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Barcode;
 import org.lsmr.selfcheckout.Coin;
 import org.lsmr.selfcheckout.SimulationException;
 import org.lsmr.selfcheckout.devices.AbstractDevice;
@@ -18,7 +19,6 @@ import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
 import org.lsmr.selfcheckout.devices.observers.KeyboardObserver;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -162,11 +162,7 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 				int loadedCoins = sc.coinDispensers.get(sc.coinDenominations.get(i)).size();
 				int dispenserCapacity = sc.coinDispensers.get(sc.coinDenominations.get(i)).getCapacity();
 				int coinsToAdd = dispenserCapacity - loadedCoins;
-				// Adds coins 1 by 1 in the software, until the maximum capacity is reached.
-				for (int j = 0; j < coinsToAdd; j++) {	
-					sc.coinDispensers.get(sc.coinDenominations.get(i)).load(new Coin(Currency.getInstance("CAD"), sc.coinDenominations.get(i)));
-				}
-
+				loadCoins(sc, sc.coinDenominations.get(i), coinsToAdd);
 			}
 		}
 	}
@@ -181,13 +177,73 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 				int loadedBanknotes = sc.banknoteDispensers.get(sc.banknoteDenominations[i]).size();
 				int dispenserCapacity = sc.banknoteDispensers.get(sc.banknoteDenominations[i]).getCapacity();
 				int banknotesToAdd = dispenserCapacity - loadedBanknotes;
-				// Adds coins 1 by 1 in the software, until the maximum capacity is reached.
-				for (int j = 0; j < banknotesToAdd; j++) {
-					sc.banknoteDispensers.get(sc.banknoteDenominations[i]).load(new Banknote(Currency.getInstance("CAD"), sc.banknoteDenominations[i]));
-				}
+				loadBanknotes(sc, sc.banknoteDenominations[i], banknotesToAdd);
 			}
 		}
 	}
+	
+	/**
+	 * Refills only what a station is expected to give out within the given
+	 * time, from what it has given out lately, topping up each dispenser to
+	 * at least its minimum.
+	 * 
+	 * @param horizonMillis
+	 * 			How long the refill should last, in milliseconds.
+	 * 
+	 * @return what was loaded
+	 */
+	public CashFloat.RefillPlan refillsForecast(SelfCheckoutSystemLogic sc, long horizonMillis) throws OverloadException, ValidationException
+	{
+		if (!loggedIn || !ss.supervisedStations().contains(sc.station))
+			throw new ValidationException();
+		
+		CashFloat.RefillPlan plan = sc.getCashFloat().planRefill(horizonMillis);
+		for (Map.Entry<Integer, Integer> e : plan.getBanknotes().entrySet())
+			loadBanknotes(sc.station, e.getKey(), e.getValue());
+		for (Map.Entry<BigDecimal, Integer> e : plan.getCoins().entrySet())
+			loadCoins(sc.station, e.getKey(), e.getValue());
+		return plan;
+	}
+	
+	/**
+	 * Gets the stations expected to run out of a denomination of change
+	 * within the given time, those running out first first.
+	 * 
+	 * @param withinMillis
+	 * 			How far ahead to look, in milliseconds.
+	 */
+	public List<SelfCheckoutSystemLogic> stationsRunningOut(long withinMillis)
+	{
+		List<SelfCheckoutSystemLogic> stations = new ArrayList<SelfCheckoutSystemLogic>();
+		Map<SelfCheckoutSystemLogic, Long> timeLeft = new HashMap<SelfCheckoutSystemLogic, Long>();
+		for (int i = 1; i <= 6; i++) {
+			SelfCheckoutSystemLogic logic = getSCSLogic(i);
+			long t = logic.getCashFloat().getTimeUntilFirstEmpty();
+			if (t <= withinMillis) {
+				stations.add(logic);
+				timeLeft.put(logic, t);
+			}
+		}
+		stations.sort((a, b) -> Long.compare(timeLeft.get(a), timeLeft.get(b)));
+		return stations;
+	}
+	
+	// Loads the coins in one go, so the dispenser announces them once.
+	private void loadCoins(SelfCheckoutStation sc, BigDecimal value, int count) throws OverloadException
+	{
+		if (count <= 0)
+			return;
+		sc.coinDispensers.get(value).load(count, new Coin(currency, value));
+	}
+	
+	// Loads the banknotes in one go, so the dispenser announces them once.
+	private void loadBanknotes(SelfCheckoutStation sc, int value, int count) throws OverloadException
+	{
+		if (count <= 0)
+			return;
+		sc.banknoteDispensers.get(value).load(count, new Banknote(currency, value));
+	}
+	
 	@Override
 	public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {
 		enabledTrue = true;
@@ -230,6 +286,7 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 
 		SelfCheckoutStation sc = null;	
 		ProductDatabases pd;
+		ProductDatabaseLogic productDatabase = new ProductDatabaseLogic();
 
 	
 	
@@ -288,7 +345,7 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 	public void AttendantRemovePurchasedItem(BarcodedProduct x, SelfCheckoutSystemLogic sc) {
 	
 		try {
-			sc.cart.removeFromCart(x);
+			sc.cart.voidFromCart(x);
 		} catch (ProductNotFoundException e) {
 			// TODO Auto-generated catch block
 			System.out.println("product was not found!"); //this should be implemented in the GUI
@@ -302,15 +359,27 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 //		return true;
 	}
 	public void AttendantRemovePurchasedItem(PLUCodedWeightProduct x, SelfCheckoutSystemLogic sc) {
-		
+
 		try {
-			sc.cart.removeFromCart(x);
+			sc.cart.voidFromCart(x);
 		} catch (ProductNotFoundException e) {
 			// TODO Auto-generated catch block
 			System.out.println("product was not found!"); //this should be implemented in the GUI
 		}
 	}
 
+	/**
+	 * Attendant adds several items to a station's cart at once. Nothing is
+	 * added if any barcode is unknown.
+	 *
+	 * @throws ProductNotFoundException
+	 * 			If any barcode is unknown, for the GUI to tell the attendant.
+	 */
+	public void AttendantAddItems(List<Barcode> barcodes, SelfCheckoutSystemLogic sc) throws ProductNotFoundException {
+
+		sc.cart.addAllToCart(barcodes);
+	}
+
 	@Override
 	public void notifyOwnBagBlock(SelfCheckoutSystemLogic stationOfConcern) {
 		// GUI INSTANCE POPUP OCCURS
@@ -343,40 +412,27 @@ public class AttendantLogic implements KeyboardObserver, BlockNotifiableGui {
 	
 	public List<PLUCodedProduct> attendantProductLookUp(String Description) throws ValidationException {
 		
-		List<PLUCodedProduct> foundItem = new ArrayList<PLUCodedProduct>();
-		List<String> foundItemDescrip = new ArrayList<String>();
-		List<PLUCodedProduct> sortFoundItem = new ArrayList<PLUCodedProduct>();
-		
-		String lowDescription = Description.toLowerCase();
 		if (loggedIn && ss.supervisedStations().contains(sc)) {
-		
-		for(Map.Entry<PriceLookupCode, PLUCodedProduct> entry : ProductDatabases.PLU_PRODUCT_DATABASE.entrySet()) {
-			String pluLowDescription = entry.getValue().getDescription().toLowerCase();
-			if(pluLowDescription.startsWith(lowDescription) == true) {
-				foundItem.add(entry.getValue());
-				foundItemDescrip.add(pluLowDescription);
-			}
-		}
-		
-		Collections.sort(foundItemDescrip);
-		
-		for (int i = 0; i < foundItem.size(); i++) {
-			for (int j = 0; j < foundItemDescrip.size(); j++) {
-				  if(foundItem.get(i).getDescription().equalsIgnoreCase(foundItemDescrip.get(j))) {
-					  sortFoundItem.add(foundItem.get(j));
-				  }
-			}
+			return productDatabase.lookUpPLUCodedProducts(Description);
+		} else {
+			throw new ValidationException();
 		}
-		
-		
-		return sortFoundItem;
-	
-	} else {
-		throw new ValidationException();
-	}
 
 	}
 	
+	/**
+	 * Gets how often a station found scanned products in its own product cache.
+	 * 
+	 * @param sc
+	 * 			The station to report on.
+	 * 
+	 * @return {hits, misses} of the station's product cache
+	 */
+	public long[] getProductCacheStats(SelfCheckoutSystemLogic sc) {
+		ProductDatabaseLogic stationDatabase = sc.cart.getProductDatabase();
+		return new long[] { stationDatabase.getCacheHits(), stationDatabase.getCacheMisses() };
+	}
+	
 	public SelfCheckoutSystemLogic getSCSLogic(int logicNum) {
 		SelfCheckoutSystemLogic logic = null;
 		
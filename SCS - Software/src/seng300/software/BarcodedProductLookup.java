@@ -0,0 +1,31 @@
+package seng300.software;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+/**
+ * Strategy used by {@link ProductDatabaseLogic} to find barcoded products.
+ *
+ * The default reads the shared product database directly. A station with a
+ * large, fixed catalog can install a {@link PackedBarcodeProductMap} instead.
+ */
+public interface BarcodedProductLookup
+{
+	/**
+	 * Finds the product with the given barcode.
+	 *
+	 * @param barcode
+	 * 			Barcode scanned.
+	 *
+	 * @return the product, or null if there is none
+	 */
+	BarcodedProduct get(Barcode barcode);
+
+	/**
+	 * Getter for a number that changes whenever the products change, so that
+	 * callers can tell when something they remember about a lookup is out of date.
+	 *
+	 * @return the current version
+	 */
+	long getVersion();
+}
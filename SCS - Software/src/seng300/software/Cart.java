@@ -1,10 +1,14 @@
 package seng300.software;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.lsmr.selfcheckout.Barcode;
 import org.lsmr.selfcheckout.InvalidArgumentSimulationException;
@@ -16,38 +20,59 @@ import org.lsmr.selfcheckout.products.PLUCodedProduct;
 import org.lsmr.selfcheckout.products.Product;
 
 import seng300.software.exceptions.ProductNotFoundException;
+import seng300.software.observers.CartEvent;
+import seng300.software.observers.CartEventBus;
 import seng300.software.observers.CartObserver;
 
 public class Cart
 {
+	/**
+	 * Price of one plastic bag.
+	 */
+	public static final Money BAG_PRICE = Money.ofCents(5);
+	
+	/**
+	 * How the price of an item sold by weight is rounded to the cent.
+	 */
+	public static final RoundingMode WEIGHT_ROUNDING = RoundingMode.HALF_UP;
+	
 	private ProductDatabaseLogic productDatabase;
-	private List<Product> cart;
+	private List<Product> cart;			// every item in the order scanned
+	private final ScanPositions positions = new ScanPositions();	// where each product's items are in it
+	private CartLineItems lineItems;	// the same items, one line per product
+	private PricingEngine pricing;		// discounts and tax of those lines
 	private Map<Product, Item> cartMap;
 
 	private int plasticBagsUsed=0; 
 	
 
 
-	private BigDecimal cartTotal;
-	private List<CartObserver> observers;
+	private Money cartTotal;
+	private CartEventBus events;
 	private double pluItemWeight; 
 	
 	public Cart()
 	{
 		this.productDatabase = new ProductDatabaseLogic();
 		this.cart = new ArrayList<>();
-		this.cartTotal = new BigDecimal("0.00");
-		this.observers = new ArrayList<>();
+		this.lineItems = new CartLineItems();
+		this.pricing = new PricingEngine(this.lineItems);
+		this.cartTotal = Money.ZERO;
+		this.events = new CartEventBus();
 		cartMap = new HashMap<>();
 	}
 	
 
 	
 	public void reset() {
-		List<Product> removal = new ArrayList<Product>();
-		removal.addAll(this.cart);
-		this.cart.removeAll(removal);
-		this.cartTotal = new BigDecimal("0.00");
+		this.cart.clear();
+		this.positions.clear();
+		this.lineItems.clear();
+		this.pricing.clear();
+		this.plasticBagsUsed = 0;
+		this.cartTotal = Money.ZERO;
+		if (events.hasSubscribers())
+			events.publish(CartEvent.totalChanged(this, cartTotal));
 	}
 	
 	/**
@@ -56,28 +81,114 @@ public class Cart
 	 * @return the current total price of all scanned items
 	 */
 	public BigDecimal getCartTotal()
+	{
+		return this.cartTotal.toBigDecimal();
+	}
+	
+	/**
+	 * Getter for the amount to pay: the cart total less discounts and
+	 * promotions, plus tax.
+	 * 
+	 * @return the amount to pay
+	 */
+	public BigDecimal getTotalDue()
+	{
+		return getBreakdown().getTotal();
+	}
+	
+	/**
+	 * Getter for the breakdown of the cart total into discounts and tax.
+	 * 
+	 * @return the breakdown, as of now
+	 */
+	public CartBreakdown getBreakdown()
+	{
+		return this.pricing.getBreakdown(this.cartTotal);
+	}
+	
+	/**
+	 * Getter for the pricing rules engine of this cart.
+	 * 
+	 * @return the pricing engine, to add rules or set membership
+	 */
+	public PricingEngine getPricing()
+	{
+		return this.pricing;
+	}
+	
+	/**
+	 * Getter for the cart total in cents.
+	 * 
+	 * @return the current total price of all scanned items
+	 */
+	public Money getCartTotalMoney()
 	{
 		return this.cartTotal;
 	}
 	
+	/**
+	 * Price of an item sold by weight, rounded to the cent with {@link #WEIGHT_ROUNDING}.
+	 * 
+	 * @param pricePerKilogram
+	 * 			The price of one kilogram of the product.
+	 * @param weight
+	 * 			The weight of the item in grams.
+	 * 
+	 * @return the price of the item
+	 */
+	public static BigDecimal priceByWeight(BigDecimal pricePerKilogram, double weight)
+	{
+		return Money.ofWeight(Money.of(pricePerKilogram), weight, WEIGHT_ROUNDING).toBigDecimal();
+	}
+	
 	/**
 	 * 
 	 * @return
 	 */
 	public ArrayList<Product> getProducts()
 	{
-		ArrayList<Product> returnVal = new ArrayList<Product>();
 		return (ArrayList<Product>)this.cart;
 	}
 	
 	/**
+	 * Getter for the cart contents grouped by product.
+	 * 
+	 * @return one line per product, with quantities and line totals
+	 */
+	public CartLineItems getLineItems()
+	{
+		return this.lineItems;
+	}
+	
+	/**
+	 * Getter for the product database used by this cart.
 	 * 
+	 * @return the product database logic of this station
+	 */
+	public ProductDatabaseLogic getProductDatabase()
+	{
+		return this.productDatabase;
+	}
+	
+	/**
+	 * Attaches an observer, called on the thread that changes the cart.
 	 */
 	public void attach(CartObserver observer)
 	{
 		if (observer == null)
 			throw new InvalidArgumentSimulationException("arguments cannot be null");
-		observers.add(observer);
+		events.subscribe(observer);
+	}
+	
+	/**
+	 * Getter for the events of this cart. Listeners that do not need to act
+	 * before the next item is scanned should subscribe asynchronously.
+	 * 
+	 * @return the event bus of this cart
+	 */
+	public CartEventBus getEvents()
+	{
+		return this.events;
 	}
 	
 	/**
@@ -93,14 +204,86 @@ public class Cart
 	{
 		BarcodedProduct p = productDatabase.getProduct(barcode);
 		cart.add(p); // add product to cart
-		this.cartTotal = this.cartTotal.add(p.getPrice()); // update cart total
+		positions.added(p);
+		Money price = Money.of(p.getPrice());
+		lineItems.add(p, price, 0);
+		pricing.lineChanged(p);
+		this.cartTotal = this.cartTotal.plus(price); // update cart total
 		// notify baggingAreaPbservers the barcode was scanned
 		// and product was successfully added to the cart -- expect weight change
-		notifyProductAdded(p);
+		notifyProductsAdded(Collections.singletonList(p), 0, true);
 //		this.baggingAreaObserver.notifiedItemAdded(p);
 	}
 	
 	
+	/**
+	 * Adds several items of the same barcoded product to the cart at once,
+	 * e.g. "12 x yogurt". Observers are notified once, with every item.
+	 * 
+	 * @param barcode
+	 * 			The barcode of the product.
+	 * @param quantity
+	 * 			The number of items.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when product cannot be found in database.
+	 */
+	public void addToCart(Barcode barcode, int quantity) throws ProductNotFoundException
+	{
+		if (quantity < 1)
+			throw new InvalidArgumentSimulationException("quantity must be at least 1");
+		BarcodedProduct p = productDatabase.getProduct(barcode);
+		Money price = Money.of(p.getPrice());
+		Money batchTotal = price.times(quantity); // checked before anything changes
+		List<BarcodedProduct> batch = Collections.nCopies(quantity, p);
+		cart.addAll(batch);
+		positions.addedAll(batch);
+		lineItems.add(p, price, 0, quantity);
+		pricing.lineChanged(p);
+		this.cartTotal = this.cartTotal.plus(batchTotal); // update cart total once
+		notifyProductsAdded(batch, 0, true);
+	}
+	
+	/**
+	 * Adds a list of barcoded items to the cart at once, such as a bulk add
+	 * by the attendant or a cart being replayed. Either every item is added
+	 * or, if any barcode is unknown, none are. Observers are notified once,
+	 * with every item.
+	 * 
+	 * @param barcodes
+	 * 			The barcodes of the items, in the order they should appear in the cart.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when any product cannot be found in database.
+	 */
+	public void addAllToCart(List<Barcode> barcodes) throws ProductNotFoundException
+	{
+		if (barcodes == null)
+			throw new InvalidArgumentSimulationException("arguments cannot be null");
+		List<BarcodedProduct> batch = new ArrayList<>(barcodes.size());
+		Money batchTotal = Money.ZERO;
+		for (Barcode barcode : barcodes)
+		{
+			BarcodedProduct p = productDatabase.getProduct(barcode);
+			batch.add(p);
+			batchTotal = batchTotal.plus(Money.of(p.getPrice()));
+		}
+		if (batch.isEmpty())
+			return;
+		cart.addAll(batch);
+		positions.addedAll(batch);
+		for (BarcodedProduct p : batch)
+			lineItems.add(p, Money.of(p.getPrice()), 0);
+		Set<BarcodedProduct> priced = new HashSet<>();
+		for (BarcodedProduct p : batch)
+		{
+			if (priced.add(p)) // each line once, however many of its items are in the batch
+				pricing.lineChanged(p);
+		}
+		this.cartTotal = this.cartTotal.plus(batchTotal); // update cart total once
+		notifyProductsAdded(batch, 0, true);
+	}
+	
 	/**
 	 * Adds a scanned (barcoded) item to the cart, without bagging the item, calls the attendant.
 	 * 
@@ -114,12 +297,16 @@ public class Cart
 	{
 		BarcodedProduct p = productDatabase.getProduct(barcode);
 		cart.add(p); // add product to cart
-		this.cartTotal = this.cartTotal.add(p.getPrice()); // update cart total
+		positions.added(p);
+		Money price = Money.of(p.getPrice());
+		lineItems.add(p, price, 0);
+		pricing.lineChanged(p);
+		this.cartTotal = this.cartTotal.plus(price); // update cart total
 		// notify baggingAreaPbservers the barcode was scanned
 		// and product was successfully added to the cart -- expect weight change
-		//notifyProductAdded(p);
+		// not to be bagged, so the attendant is called instead
+		notifyProductsAdded(Collections.singletonList(p), 0, false);
 //		this.baggingAreaObserver.notifiedItemAdded(p);
-		attendantCheck();
 	}
 	
 
@@ -128,16 +315,16 @@ public class Cart
 	{
 		PLUCodedProduct pluProduct = productDatabase.getPLUCodedProduct(PLUCode);
 		cart.add(pluProduct); // add product to cart
+		positions.added(pluProduct);
 		
-		BigDecimal weightBD = BigDecimal.valueOf(Weight);
-		BigDecimal conversion = new BigDecimal("1000");
-		BigDecimal convWeight = weightBD.divide(conversion);
-		BigDecimal pluAddPrice = pluProduct.getPrice().multiply(convWeight);
+		Money pluAddPrice = Money.ofWeight(Money.of(pluProduct.getPrice()), Weight, WEIGHT_ROUNDING);
+		lineItems.add(pluProduct, pluAddPrice, Weight);
+		pricing.lineChanged(pluProduct);
 	
-		this.cartTotal = this.cartTotal.add(pluAddPrice); // update cart total
+		this.cartTotal = this.cartTotal.plus(pluAddPrice); // update cart total
 		pluItemWeight = Weight;
     
-		notifyPLUProductAdded(pluProduct, Weight);
+		notifyProductsAdded(Collections.singletonList(pluProduct), Weight, true);
 
 	}
 	
@@ -146,69 +333,180 @@ public class Cart
 	{
 		PLUCodedProduct pluProduct = productDatabase.getPLUCodedProduct(PLUCode);
 		cart.add(pluProduct); // add product to cart
+		positions.added(pluProduct);
 		
-		BigDecimal weightBD = BigDecimal.valueOf(Weight);
-		BigDecimal conversion = new BigDecimal("1000");
-		BigDecimal convWeight = weightBD.divide(conversion);
-		BigDecimal pluAddPrice = pluProduct.getPrice().multiply(convWeight);
+		Money pluAddPrice = Money.ofWeight(Money.of(pluProduct.getPrice()), Weight, WEIGHT_ROUNDING);
+		lineItems.add(pluProduct, pluAddPrice, Weight);
+		pricing.lineChanged(pluProduct);
 	
-		this.cartTotal = this.cartTotal.add(pluAddPrice); // update cart total
+		this.cartTotal = this.cartTotal.plus(pluAddPrice); // update cart total
 		pluItemWeight = Weight;
     
-		//notifyPLUProductAdded(pluProduct, Weight);
-		attendantCheck();
+		// not to be bagged, so the attendant is called instead
+		notifyProductsAdded(Collections.singletonList(pluProduct), Weight, false);
 
 	}
 
+	/**
+	 * Removes one item of a barcoded product from the cart.
+	 * 
+	 * @param product
+	 * 			The product to remove.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when the product is not in the cart.
+	 */
 	public void removeFromCart(BarcodedProduct product) throws ProductNotFoundException
 	{
-		cart.remove(product); // Remove product to cart
-		this.cartTotal = this.cartTotal.subtract(product.getPrice()); // update cart total
-		notifyProductRemoved(product);
+		remove(product, false);
+	}
+	
+	/**
+	 * Removes one item of a barcoded product from the cart on the attendant's
+	 * authority. The same as {@link #removeFromCart(BarcodedProduct)}, but
+	 * reported as a void.
+	 * 
+	 * @param product
+	 * 			The product to remove.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when the product is not in the cart.
+	 */
+	public void voidFromCart(BarcodedProduct product) throws ProductNotFoundException
+	{
+		remove(product, true);
+	}
+	
+	private void remove(BarcodedProduct product, boolean voided) throws ProductNotFoundException
+	{
+		CartLineItems.Line line = lineItems.getLine(product);
+		if (line == null)
+			throw new ProductNotFoundException();
+		// at the price the line was charged, which a resumed cart or a price update may have left different from the product's
+		Money price = line.getQuantity() == 1 ? line.getTotalMoney()
+				: line.getTotalMoney().times(1, line.getQuantity(), RoundingMode.HALF_UP);
+		lineItems.remove(product, price, 0);
+		pricing.lineChanged(product);
+		removeLastScanned(product); // Remove product to cart
+		this.cartTotal = this.cartTotal.minus(price); // update cart total
+		notifyProductRemoved(product, voided);
 		// Might need to change method to remove both barcoded and plu coded items.
 
 	}
 	
+	/**
+	 * Removes one item of a product sold by weight from the cart.
+	 * 
+	 * @param product
+	 * 			The product to remove, with the weight of the item in grams.
+	 * 			If the weight is not known (0), the average weight of the
+	 * 			product's items in the cart is used.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when the product is not in the cart.
+	 */
 	public void removeFromCart(PLUCodedWeightProduct product) throws ProductNotFoundException
 	{
-		cart.remove(product); // Remove product to cart
-		BigDecimal productWeight = new BigDecimal(product.getWeight());
-		this.cartTotal = this.cartTotal.subtract(product.getPrice().multiply(productWeight)); // update cart total
-		notifyPLUProductRemoved(product);
+		remove(product, false);
+	}
+	
+	/**
+	 * Removes one item of a product sold by weight from the cart on the
+	 * attendant's authority. The same as
+	 * {@link #removeFromCart(PLUCodedWeightProduct)}, but reported as a void.
+	 * 
+	 * @param product
+	 * 			The product to remove, with the weight of the item in grams.
+	 * 
+	 * @throws ProductNotFoundException
+	 * 			Thrown when the product is not in the cart.
+	 */
+	public void voidFromCart(PLUCodedWeightProduct product) throws ProductNotFoundException
+	{
+		remove(product, true);
+	}
+	
+	private void remove(PLUCodedWeightProduct product, boolean voided) throws ProductNotFoundException
+	{
+		CartLineItems.Line line = lineItems.getLine(product);
+		if (line == null)
+			throw new ProductNotFoundException();
+		double weight = product.getWeight() > 0 ? product.getWeight() : line.getWeight() / line.getQuantity();
+		// priced the same way as when it was added: price per kilogram times weight in kilograms
+		Money price = line.getQuantity() == 1 ? line.getTotalMoney()
+				: Money.ofWeight(Money.of(product.getPrice()), weight, WEIGHT_ROUNDING);
+		lineItems.remove(product, price, weight);
+		pricing.lineChanged(product);
+		removeLastScanned(product); // Remove product to cart
+		this.cartTotal = this.cartTotal.minus(price); // update cart total
+		notifyProductRemoved(product, voided);
 		// Might need to change method to remove both barcoded and plu coded items.
 
 	}
 
-	private void notifyProductAdded(BarcodedProduct p)
+	// Used by TransactionSnapshot to put a suspended cart back without going
+	// through the scanning paths: lines are restored with the prices they were
+	// charged at, then the items in the order they were scanned, and nothing
+	// is published until restoreFinished().
+	
+	void restoreLine(Product product, int quantity, double weight, Money total)
 	{
-		for (CartObserver obs : observers)
-			obs.notifyProductAdded(this, p);
+		lineItems.restore(product, quantity, weight, total);
+		pricing.lineChanged(product);
+		this.cartTotal = this.cartTotal.plus(total);
 	}
 	
-
-	private void notifyPLUProductAdded(PLUCodedProduct PLUProduct, double Weight)
+	void restoreItem(Product product)
 	{
-		for (CartObserver obs : observers)
-			obs.notifyPLUProductAdded(this, PLUProduct, Weight);
+		cart.add(product);
+		positions.added(product);
 	}
 	
+	void restoreBags(int numberOfBags)
+	{
+		this.plasticBagsUsed += numberOfBags;
+		this.cartTotal = this.cartTotal.plus(BAG_PRICE.times(numberOfBags));
+	}
 	
-	public double getPLUWeight() {
-		return pluItemWeight;
+	void restoreFinished()
+	{
+		if (events.hasSubscribers())
+			events.publish(CartEvent.totalChanged(this, cartTotal));
 	}
-
-	private void notifyProductRemoved(BarcodedProduct p)
+	
+	// Removes the last item scanned with the same code as the product, found
+	// through the positions kept as items are added rather than by searching.
+	private void removeLastScanned(Product product)
 	{
-		for (CartObserver obs : observers)
-			obs.notifyProductRemoved(this, p);
+		// the list is handed out by getProducts(), so it may have been changed behind our back
+		if (positions.size() != cart.size())
+			positions.rebuild(cart);
+		int i = positions.removeLast(product);
+		if (i >= 0)
+			cart.remove(i);
+	}
 
+	// Each change is followed by the new total, so listeners that only
+	// show the total can ignore everything else.
+	private void notifyProductsAdded(List<? extends Product> products, double weight, boolean bagging)
+	{
+		if (!events.hasSubscribers())
+			return;
+		events.publish(CartEvent.itemsAdded(this, products, weight, bagging, cartTotal));
+		events.publish(CartEvent.totalChanged(this, cartTotal));
 	}
 	
-	private void notifyPLUProductRemoved(PLUCodedWeightProduct p)
-	{
-		for (CartObserver obs : observers)
-			obs.notifyPLUProductRemoved(this, p);
+	
+	public double getPLUWeight() {
+		return pluItemWeight;
+	}
 
+	private void notifyProductRemoved(Product p, boolean voided)
+	{
+		if (!events.hasSubscribers())
+			return;
+		events.publish(CartEvent.itemRemoved(this, p, voided, cartTotal));
+		events.publish(CartEvent.totalChanged(this, cartTotal));
 	}
 
 	public int getBags(){
@@ -221,14 +519,19 @@ public class Cart
 
 	public void addPlasticBags( int numberOfBags){
 		this.setBags( this.getBags()+numberOfBags);
-		BigDecimal value= new BigDecimal(numberOfBags*0.05);
-		cartTotal = cartTotal.add(value);
+		cartTotal = cartTotal.plus(BAG_PRICE.times(numberOfBags));
+		if (events.hasSubscribers())
+		{
+			events.publish(CartEvent.bagsAdded(this, numberOfBags, cartTotal));
+			events.publish(CartEvent.totalChanged(this, cartTotal));
+		}
 	}
 	
-	public void attendantCheck(){
-		for (CartObserver obs : observers)
-			obs.notifyProductNoWeightCheck();
-		
+	/**
+	 * @return the price of all the plastic bags used
+	 */
+	public BigDecimal getBagsTotal(){
+		return BAG_PRICE.times(this.plasticBagsUsed).toBigDecimal();
 	}
 
 }
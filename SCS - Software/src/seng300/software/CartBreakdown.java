@@ -0,0 +1,64 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+
+/**
+ * The total of a cart, split into the prices of its items, what the
+ * discounts and promotions take off, and the tax added.
+ */
+public final class CartBreakdown
+{
+	private final Money subtotal;
+	private final Money discounts;
+	private final Money tax;
+
+	CartBreakdown(Money subtotal, Money discounts, Money tax)
+	{
+		this.subtotal = subtotal;
+		this.discounts = discounts;
+		this.tax = tax;
+	}
+
+	/**
+	 * @return the total of the regular prices
+	 */
+	public BigDecimal getSubtotal()
+	{
+		return subtotal.toBigDecimal();
+	}
+
+	/**
+	 * @return the amount taken off by discounts and promotions
+	 */
+	public BigDecimal getDiscounts()
+	{
+		return discounts.toBigDecimal();
+	}
+
+	/**
+	 * @return the tax added
+	 */
+	public BigDecimal getTax()
+	{
+		return tax.toBigDecimal();
+	}
+
+	/**
+	 * @return the amount to pay
+	 */
+	public BigDecimal getTotal()
+	{
+		return getTotalMoney().toBigDecimal();
+	}
+
+	public Money getTotalMoney()
+	{
+		return subtotal.minus(discounts).plus(tax);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Subtotal: $" + subtotal + ", Discounts: $" + discounts + ", Tax: $" + tax + ", Total: $" + getTotalMoney();
+	}
+}
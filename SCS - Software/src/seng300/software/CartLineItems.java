@@ -0,0 +1,225 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+import org.lsmr.selfcheckout.products.Product;
+
+/**
+ * Contents of a cart grouped into one line per product, in the order each
+ * product was first added.
+ *
+ * Lines are found by barcode or PLU code, so adding or removing an item
+ * takes the same time however long the cart is, and every line keeps its
+ * quantity, weight and price up to date as items come and go.
+ */
+public class CartLineItems
+{
+	/**
+	 * All the items of one product in the cart.
+	 */
+	public static final class Line
+	{
+		private final Product product;
+		private int quantity		= 0;
+		private double weight		= 0;	// grams, for products sold by weight
+		private Money total			= Money.ZERO;
+
+		private Line(Product product)
+		{
+			this.product = product;
+		}
+
+		/**
+		 * @return the product on this line
+		 */
+		public Product getProduct()
+		{
+			return product;
+		}
+
+		/**
+		 * @return the number of items of the product
+		 */
+		public int getQuantity()
+		{
+			return quantity;
+		}
+
+		/**
+		 * @return the total weight in grams of the items, for products sold by weight
+		 */
+		public double getWeight()
+		{
+			return weight;
+		}
+
+		/**
+		 * @return the total price of the items
+		 */
+		public BigDecimal getTotal()
+		{
+			return total.toBigDecimal();
+		}
+
+		/**
+		 * @return the total price of the items, in cents
+		 */
+		public Money getTotalMoney()
+		{
+			return total;
+		}
+	}
+
+	private final Map<Object, Line> lines = new LinkedHashMap<Object, Line>();
+	private int itemCount = 0;
+
+	/**
+	 * Adds one item.
+	 *
+	 * @param product
+	 * 			Product of the item.
+	 * @param price
+	 * 			Price of the item.
+	 * @param weight
+	 * 			Weight of the item in grams, for products sold by weight; else 0.
+	 *
+	 * @return the line the item was added to
+	 */
+	public Line add(Product product, Money price, double weight)
+	{
+		return add(product, price, weight, 1);
+	}
+
+	/**
+	 * Adds several items of the same product.
+	 *
+	 * @param product
+	 * 			Product of the items.
+	 * @param price
+	 * 			Price of one item.
+	 * @param weight
+	 * 			Weight of one item in grams, for products sold by weight; else 0.
+	 * @param quantity
+	 * 			Number of items.
+	 *
+	 * @return the line the items were added to
+	 */
+	public Line add(Product product, Money price, double weight, int quantity)
+	{
+		Object key = keyOf(product);
+		Line line = lines.get(key);
+		if (line == null)
+		{
+			line = new Line(product);
+			lines.put(key, line);
+		}
+		line.quantity += quantity;
+		line.weight += weight * quantity;
+		line.total = line.total.plus(price.times(quantity));
+		itemCount += quantity;
+		return line;
+	}
+
+	/**
+	 * Removes one item. The line is removed with its last item.
+	 *
+	 * @param product
+	 * 			Product of the item. Matched by barcode or PLU code.
+	 * @param price
+	 * 			Price of the item.
+	 * @param weight
+	 * 			Weight of the item in grams, for products sold by weight; else 0.
+	 *
+	 * @return the line the item was removed from, or null if the product is not in the cart
+	 */
+	public Line remove(Product product, Money price, double weight)
+	{
+		Object key = keyOf(product);
+		Line line = lines.get(key);
+		if (line == null)
+			return null;
+		line.quantity--;
+		if (line.quantity == 0)
+			lines.remove(key);
+		else
+		{
+			line.weight -= weight;
+			line.total = line.total.minus(price);
+		}
+		itemCount--;
+		return line;
+	}
+
+	/**
+	 * Finds the line for a product.
+	 *
+	 * @param product
+	 * 			The product. Matched by barcode or PLU code.
+	 *
+	 * @return the line, or null if the product is not in the cart
+	 */
+	public Line getLine(Product product)
+	{
+		return lines.get(keyOf(product));
+	}
+
+	// puts back a line saved by TransactionSnapshot, exactly as it was
+	Line restore(Product product, int quantity, double weight, Money total)
+	{
+		Line line = new Line(product);
+		line.quantity = quantity;
+		line.weight = weight;
+		line.total = total;
+		lines.put(keyOf(product), line);
+		itemCount += quantity;
+		return line;
+	}
+
+	// the line for a barcode or PLU code, or null
+	Line lineFor(Object key)
+	{
+		return lines.get(key);
+	}
+
+	/**
+	 * @return the lines, in the order their products were first added
+	 */
+	public Collection<Line> getLines()
+	{
+		return Collections.unmodifiableCollection(lines.values());
+	}
+
+	/**
+	 * @return the number of items on all lines
+	 */
+	public int getItemCount()
+	{
+		return itemCount;
+	}
+
+	/**
+	 * Removes every line.
+	 */
+	public void clear()
+	{
+		lines.clear();
+		itemCount = 0;
+	}
+
+	// Products are grouped by code rather than by object, so a product
+	// rebuilt from the same database entry still finds its line.
+	static Object keyOf(Product product)
+	{
+		if (product instanceof BarcodedProduct)
+			return ((BarcodedProduct)product).getBarcode();
+		if (product instanceof PLUCodedProduct)
+			return ((PLUCodedProduct)product).getPLUCode();
+		return product;
+	}
+}
@@ -0,0 +1,388 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.AbstractDevice;
+import org.lsmr.selfcheckout.devices.BanknoteDispenser;
+import org.lsmr.selfcheckout.devices.CoinDispenser;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
+import org.lsmr.selfcheckout.devices.observers.BanknoteDispenserObserver;
+import org.lsmr.selfcheckout.devices.observers.CoinDispenserObserver;
+
+/**
+ * Follows the money in a station's dispensers, to tell the attendant which
+ * will run out and how much to put in before it does.
+ *
+ * Each dispenser has a rate at which money goes out as change and a rate at
+ * which it comes in from customers paying with coins. Both are averages that
+ * weigh recent events most: an event a window's length ago counts about a
+ * third as much as one now. So a rush shows up within minutes, and is
+ * forgotten once it is over. The time a dispenser has left is what it
+ * holds over the difference of the two rates.
+ *
+ * Money the attendant loads or unloads changes what a dispenser holds but is
+ * not part of either rate.
+ */
+public class CashFloat implements CoinDispenserObserver, BanknoteDispenserObserver
+{
+	/**
+	 * How long the averages remember, by default: half an hour, in milliseconds.
+	 */
+	public static final long DEFAULT_WINDOW = 30 * 60 * 1000;
+
+	/**
+	 * Fewest of each denomination a refill leaves, by default.
+	 */
+	public static final int DEFAULT_MINIMUM = 10;
+
+	/**
+	 * What to load into each dispenser.
+	 */
+	public static final class RefillPlan
+	{
+		private final Map<Integer, Integer> banknotes;
+		private final Map<BigDecimal, Integer> coins;
+
+		RefillPlan(Map<Integer, Integer> banknotes, Map<BigDecimal, Integer> coins)
+		{
+			this.banknotes = Collections.unmodifiableMap(banknotes);
+			this.coins = Collections.unmodifiableMap(coins);
+		}
+
+		/**
+		 * @return how many of each banknote to load; denominations that need
+		 * 			none are left out
+		 */
+		public Map<Integer, Integer> getBanknotes()
+		{
+			return banknotes;
+		}
+
+		/**
+		 * @return how many of each coin to load; denominations that need none
+		 * 			are left out
+		 */
+		public Map<BigDecimal, Integer> getCoins()
+		{
+			return coins;
+		}
+
+		public boolean isEmpty()
+		{
+			return banknotes.isEmpty() && coins.isEmpty();
+		}
+	}
+
+	private final SelfCheckoutStation scs;
+	private final LongSupplier clock;
+	private final int notes;
+	private final int[] counts;			// banknotes then coins, what each dispenser holds
+	private final int[] capacities;
+	private final double[] outflow;		// pieces given out, decayed to lastUpdate
+	private final double[] inflow;		// pieces paid in, decayed to lastUpdate
+	private final long start;
+	private long lastUpdate;
+	private long window = DEFAULT_WINDOW;
+	private int minimum = DEFAULT_MINIMUM;
+
+	/**
+	 * Starts following the dispensers of a station.
+	 */
+	public CashFloat(SelfCheckoutStation scs)
+	{
+		this(scs, System::currentTimeMillis);
+	}
+
+	/**
+	 * Starts following the dispensers of a station, telling the time by the
+	 * given clock, in milliseconds.
+	 */
+	public CashFloat(SelfCheckoutStation scs, LongSupplier clock)
+	{
+		if (scs == null || clock == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.scs = scs;
+		this.clock = clock;
+		this.notes = scs.banknoteDenominations.length;
+		int n = notes + scs.coinDenominations.size();
+		this.counts = new int[n];
+		this.capacities = new int[n];
+		this.outflow = new double[n];
+		this.inflow = new double[n];
+		for (int i = 0; i < notes; i++)
+		{
+			BanknoteDispenser dispenser = scs.banknoteDispensers.get(scs.banknoteDenominations[i]);
+			counts[i] = dispenser.size();
+			capacities[i] = dispenser.getCapacity();
+			dispenser.attach(this);
+		}
+		for (int i = 0; i < n - notes; i++)
+		{
+			CoinDispenser dispenser = scs.coinDispensers.get(scs.coinDenominations.get(i));
+			counts[notes + i] = dispenser.size();
+			capacities[notes + i] = dispenser.getCapacity();
+			dispenser.attach(this);
+		}
+		this.start = clock.getAsLong();
+		this.lastUpdate = start;
+	}
+
+	/**
+	 * Stops following the dispensers.
+	 */
+	public void detach()
+	{
+		for (int bv : scs.banknoteDenominations)
+			scs.banknoteDispensers.get(bv).detach(this);
+		for (BigDecimal cv : scs.coinDenominations)
+			scs.coinDispensers.get(cv).detach(this);
+	}
+
+	/**
+	 * Sets how long the averages remember, in milliseconds.
+	 */
+	public synchronized void setWindow(long millis)
+	{
+		if (millis <= 0)
+			throw new IllegalArgumentException("window must be positive");
+		decay();
+		this.window = millis;
+	}
+
+	/**
+	 * Sets the fewest of each denomination a refill leaves, so a dispenser
+	 * that has not been used yet is not left empty.
+	 */
+	public synchronized void setMinimum(int pieces)
+	{
+		if (pieces < 0)
+			throw new IllegalArgumentException("minimum cannot be negative");
+		this.minimum = pieces;
+	}
+
+	/**
+	 * @return how long the banknote dispenser is expected to last, in
+	 * 			milliseconds, or Long.MAX_VALUE if it is not being emptied
+	 */
+	public synchronized long getTimeUntilEmpty(int banknote)
+	{
+		return timeUntilEmpty(indexOf(banknote));
+	}
+
+	/**
+	 * @return how long the coin dispenser is expected to last, in
+	 * 			milliseconds, or Long.MAX_VALUE if it is not being emptied
+	 */
+	public synchronized long getTimeUntilEmpty(BigDecimal coin)
+	{
+		return timeUntilEmpty(indexOf(coin));
+	}
+
+	/**
+	 * @return how long until the first of the station's dispensers is
+	 * 			expected to run out, in milliseconds, or Long.MAX_VALUE if none
+	 * 			are being emptied
+	 */
+	public synchronized long getTimeUntilFirstEmpty()
+	{
+		long first = Long.MAX_VALUE;
+		for (int i = 0; i < counts.length; i++)
+			first = Math.min(first, timeUntilEmpty(i));
+		return first;
+	}
+
+	/**
+	 * Works out the least to load so that no dispenser is expected to run out
+	 * within the given time, and each holds at least the minimum. No
+	 * dispenser is filled past its capacity.
+	 *
+	 * @param horizonMillis
+	 * 			How long the money loaded should last, in milliseconds.
+	 */
+	public synchronized RefillPlan planRefill(long horizonMillis)
+	{
+		if (horizonMillis < 0)
+			throw new IllegalArgumentException("horizon cannot be negative");
+		decay();
+		Map<Integer, Integer> banknotes = new LinkedHashMap<>();
+		Map<BigDecimal, Integer> coins = new LinkedHashMap<>();
+		for (int i = 0; i < counts.length; i++)
+		{
+			double needed = Math.ceil(netOutflowRate(i) * horizonMillis);
+			int target = (int)Math.min(capacities[i], Math.max(minimum, needed));
+			int toLoad = target - counts[i];
+			if (toLoad <= 0)
+				continue;
+			if (i < notes)
+				banknotes.put(scs.banknoteDenominations[i], toLoad);
+			else
+				coins.put(scs.coinDenominations.get(i - notes), toLoad);
+		}
+		return new RefillPlan(banknotes, coins);
+	}
+
+	private long timeUntilEmpty(int i)
+	{
+		decay();
+		double rate = netOutflowRate(i);
+		if (rate <= 0)
+			return Long.MAX_VALUE;
+		return (long)Math.min(Long.MAX_VALUE, counts[i] / rate);
+	}
+
+	// pieces per millisecond
+	private double netOutflowRate(int i)
+	{
+		// early on the averages have seen less than a window, so they are
+		// spread over the time they have seen instead
+		double seen = window * -Math.expm1(-(double)(lastUpdate - start) / window);
+		if (seen <= 0)
+			return 0;
+		return (outflow[i] - inflow[i]) / seen;
+	}
+
+	// brings the averages up to now
+	private void decay()
+	{
+		long now = clock.getAsLong();
+		if (now <= lastUpdate)
+			return;
+		double factor = Math.exp(-(double)(now - lastUpdate) / window);
+		for (int i = 0; i < counts.length; i++)
+		{
+			outflow[i] *= factor;
+			inflow[i] *= factor;
+		}
+		lastUpdate = now;
+	}
+
+	private synchronized void given(int i)
+	{
+		decay();
+		counts[i]--;
+		outflow[i]++;
+	}
+
+	private synchronized void paid(int i)
+	{
+		decay();
+		counts[i]++;
+		inflow[i]++;
+	}
+
+	private synchronized void loaded(int i, int pieces)
+	{
+		counts[i] += pieces;
+	}
+
+	private int indexOf(int banknote)
+	{
+		for (int i = 0; i < notes; i++)
+		{
+			if (scs.banknoteDenominations[i] == banknote)
+				return i;
+		}
+		throw new IllegalArgumentException("not a banknote of this station");
+	}
+
+	private int indexOf(BigDecimal coin)
+	{
+		int i = scs.coinDenominations.indexOf(coin);
+		if (i < 0)
+			throw new IllegalArgumentException("not a coin of this station");
+		return notes + i;
+	}
+
+	private int indexOf(BanknoteDispenser dispenser)
+	{
+		for (int i = 0; i < notes; i++)
+		{
+			if (scs.banknoteDispensers.get(scs.banknoteDenominations[i]) == dispenser)
+				return i;
+		}
+		throw new IllegalStateException("not a dispenser of this station");
+	}
+
+	private int indexOf(CoinDispenser dispenser)
+	{
+		for (int i = 0; i < scs.coinDenominations.size(); i++)
+		{
+			if (scs.coinDispensers.get(scs.coinDenominations.get(i)) == dispenser)
+				return notes + i;
+		}
+		throw new IllegalStateException("not a dispenser of this station");
+	}
+
+	@Override
+	public void coinAdded(CoinDispenser dispenser, Coin coin)
+	{
+		paid(indexOf(dispenser));
+	}
+
+	@Override
+	public void coinRemoved(CoinDispenser dispenser, Coin coin)
+	{
+		given(indexOf(dispenser));
+	}
+
+	@Override
+	public void coinsLoaded(CoinDispenser dispenser, Coin... coins)
+	{
+		loaded(indexOf(dispenser), coins.length);
+	}
+
+	@Override
+	public void coinsUnloaded(CoinDispenser dispenser, Coin... coins)
+	{
+		loaded(indexOf(dispenser), -coins.length);
+	}
+
+	@Override
+	public void billAdded(BanknoteDispenser dispenser, Banknote banknote)
+	{
+		paid(indexOf(dispenser));
+	}
+
+	@Override
+	public void banknoteRemoved(BanknoteDispenser dispenser, Banknote banknote)
+	{
+		given(indexOf(dispenser));
+	}
+
+	@Override
+	public void banknotesLoaded(BanknoteDispenser dispenser, Banknote... banknotes)
+	{
+		loaded(indexOf(dispenser), banknotes.length);
+	}
+
+	@Override
+	public void banknotesUnloaded(BanknoteDispenser dispenser, Banknote... banknotes)
+	{
+		loaded(indexOf(dispenser), -banknotes.length);
+	}
+
+	@Override
+	public void coinsFull(CoinDispenser dispenser) {}
+
+	@Override
+	public void coinsEmpty(CoinDispenser dispenser) {}
+
+	@Override
+	public void moneyFull(BanknoteDispenser dispenser) {}
+
+	@Override
+	public void banknotesEmpty(BanknoteDispenser dispenser) {}
+
+	@Override
+	public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+
+	@Override
+	public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+}
@@ -0,0 +1,385 @@
+package seng300.software;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.SimulationException;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+/**
+ * Reads and writes the product catalog as a compact binary snapshot, so a
+ * station can fill the product databases at start up in a single pass over
+ * a memory-mapped file instead of building every product by hand.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * int    number of barcoded products
+ * int    number of PLU coded products
+ * barcoded record: code, price, double expected weight, description
+ * PLU record:      code, price, description
+ * code:        byte digit count, then two digits per byte
+ * price:       byte scale, long unscaled value
+ * description: unsigned short byte length, then UTF-8 bytes
+ * </pre>
+ */
+public final class CatalogSnapshot
+{
+	public static final int MAGIC			= 0x53435343; // "SCSC"
+	public static final int FORMAT_VERSION	= 1;
+
+	private static final int MAX_BARCODE_DIGITS = 48;	// the most a Barcode can have
+
+	/**
+	 * Instances of this class are not needed, so the constructor is private.
+	 */
+	private CatalogSnapshot() {}
+
+	/**
+	 * Writes the current contents of the product databases to a snapshot file.
+	 *
+	 * @param file
+	 * 			File to write. Replaced if it exists.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be written.
+	 */
+	public static void write(Path file) throws IOException
+	{
+		write(file, ProductDatabases.BARCODED_PRODUCT_DATABASE, ProductDatabases.PLU_PRODUCT_DATABASE);
+	}
+
+	/**
+	 * Writes the given products to a snapshot file.
+	 *
+	 * @param file
+	 * 			File to write. Replaced if it exists.
+	 * @param barcoded
+	 * 			Barcoded products to write.
+	 * @param plu
+	 * 			PLU coded products to write.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be written.
+	 */
+	public static void write(Path file, Map<Barcode, BarcodedProduct> barcoded,
+			Map<PriceLookupCode, PLUCodedProduct> plu) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(barcoded.size());
+			out.writeInt(plu.size());
+			for (BarcodedProduct p : barcoded.values())
+			{
+				writeCode(out, digits(p.getBarcode()));
+				writePrice(out, p.getPrice());
+				out.writeDouble(p.getExpectedWeight());
+				writeDescription(out, p.getDescription());
+			}
+			for (PLUCodedProduct p : plu.values())
+			{
+				writeCode(out, digits(p.getPLUCode()));
+				writePrice(out, p.getPrice());
+				writeDescription(out, p.getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Fills the product databases from a snapshot file. Products already in
+	 * the databases are kept unless the snapshot has a product with the same code.
+	 *
+	 * @param file
+	 * 			Snapshot to read.
+	 *
+	 * @return the number of products loaded
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid snapshot.
+	 */
+	public static int load(Path file) throws IOException
+	{
+		// the database indexes see the new version and rebuild once, on their next use
+		return load(file, ProductDatabases.BARCODED_PRODUCT_DATABASE, ProductDatabases.PLU_PRODUCT_DATABASE);
+	}
+
+	/**
+	 * Fills the given maps from a snapshot file. The whole file is read before
+	 * either map is changed, so a corrupt snapshot leaves them as they were.
+	 *
+	 * @param file
+	 * 			Snapshot to read.
+	 * @param barcoded
+	 * 			Map to put barcoded products in.
+	 * @param plu
+	 * 			Map to put PLU coded products in.
+	 *
+	 * @return the number of products loaded
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid snapshot.
+	 */
+	public static int load(Path file, Map<Barcode, BarcodedProduct> barcoded,
+			Map<PriceLookupCode, PLUCodedProduct> plu) throws IOException
+	{
+		MappedByteBuffer buffer = map(file);
+		try
+		{
+			readHeader(buffer, file);
+			int barcodedCount = buffer.getInt();
+			int pluCount = buffer.getInt();
+			if (barcodedCount < 0 || pluCount < 0)
+				throw new IOException("corrupt catalog snapshot: " + file);
+
+			Map<Barcode, BarcodedProduct> newBarcoded = new HashMap<>();
+			Map<PriceLookupCode, PLUCodedProduct> newPlu = new HashMap<>();
+			byte[] scratch = new byte[256];
+			for (int i = 0; i < barcodedCount; i++)
+			{
+				Barcode code = readBarcode(buffer);
+				BigDecimal price = readPrice(buffer);
+				double weight = buffer.getDouble();
+				String description = readDescription(buffer, scratch);
+				newBarcoded.put(code, new BarcodedProduct(code, description, price, weight));
+			}
+			for (int i = 0; i < pluCount; i++)
+			{
+				PriceLookupCode code = new PriceLookupCode(readDigitString(buffer));
+				BigDecimal price = readPrice(buffer);
+				String description = readDescription(buffer, scratch);
+				newPlu.put(code, new PLUCodedProduct(code, description, price));
+			}
+			barcoded.putAll(newBarcoded);
+			plu.putAll(newPlu);
+			return barcodedCount + pluCount;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | SimulationException e)
+		{
+			// truncated file, or a record the product classes reject
+			throw new IOException("corrupt catalog snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Opens a snapshot without building its barcoded products. PLU coded
+	 * products are put in the product databases as usual, since the description
+	 * index needs all of them. Barcoded products are left in the file and only
+	 * built the first time they are scanned, through the returned lookup, which
+	 * can be installed with {@link ProductDatabaseLogic#setBarcodedProductLookup}.
+	 *
+	 * @param file
+	 * 			Snapshot to read.
+	 *
+	 * @return a lookup over the barcoded products of the snapshot
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid snapshot.
+	 */
+	public static SnapshotProductLookup open(Path file) throws IOException
+	{
+		MappedByteBuffer buffer = map(file);
+		try
+		{
+			readHeader(buffer, file);
+			int barcodedCount = buffer.getInt();
+			int pluCount = buffer.getInt();
+			if (barcodedCount < 0 || pluCount < 0)
+				throw new IOException("corrupt catalog snapshot: " + file);
+
+			SnapshotProductLookup lookup = new SnapshotProductLookup(buffer, barcodedCount);
+			for (int i = 0; i < barcodedCount; i++)
+			{
+				// checked now, so a product built when first scanned cannot fail
+				int record = buffer.position();
+				checkBarcode(buffer, file);
+				buffer.position(buffer.position() + 1 + 8 + 8); // price, weight
+				buffer.position(buffer.position() + 2 + (buffer.getShort(buffer.position()) & 0xFFFF));
+				lookup.addRecord(record);
+			}
+
+			Map<PriceLookupCode, PLUCodedProduct> newPlu = new HashMap<>();
+			byte[] scratch = new byte[256];
+			for (int i = 0; i < pluCount; i++)
+			{
+				PriceLookupCode code = new PriceLookupCode(readDigitString(buffer));
+				BigDecimal price = readPrice(buffer);
+				String description = readDescription(buffer, scratch);
+				newPlu.put(code, new PLUCodedProduct(code, description, price));
+			}
+			// only once the whole file has been read, so a corrupt one changes nothing
+			ProductDatabases.PLU_PRODUCT_DATABASE.putAll(newPlu);
+			return lookup;
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | SimulationException e)
+		{
+			throw new IOException("corrupt catalog snapshot: " + file, e);
+		}
+	}
+
+	/**
+	 * Builds the barcoded product whose record starts at the given position.
+	 */
+	static BarcodedProduct readBarcodedProduct(ByteBuffer in, byte[] scratch)
+	{
+		Barcode code = readBarcode(in);
+		BigDecimal price = readPrice(in);
+		double weight = in.getDouble();
+		String description = readDescription(in, scratch);
+		return new BarcodedProduct(code, description, price, weight);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static void readHeader(ByteBuffer buffer, Path file) throws IOException
+	{
+		if (buffer.getInt() != MAGIC)
+			throw new IOException("not a catalog snapshot: " + file);
+		int version = buffer.getInt();
+		if (version != FORMAT_VERSION)
+			throw new IOException("unsupported catalog snapshot version: " + version);
+	}
+
+	// reads past a code, checking it is one a Barcode would accept
+	private static void checkBarcode(ByteBuffer in, Path file) throws IOException
+	{
+		int count = in.get() & 0xFF;
+		if (count < 1 || count > MAX_BARCODE_DIGITS)
+			throw new IOException("corrupt catalog snapshot: " + file);
+		for (int i = 0; i < count; i += 2)
+		{
+			int packed = in.get() & 0xFF;
+			int low = packed & 0x0F;
+			if (packed >>> 4 > 9 || (i + 1 < count ? low > 9 : low != 0))
+				throw new IOException("corrupt catalog snapshot: " + file);
+		}
+	}
+
+	// Codes are also written by TransactionSnapshot, hence package-private.
+
+	static byte[] digits(Barcode code)
+	{
+		byte[] digits = new byte[code.digitCount()];
+		for (int i = 0; i < digits.length; i++)
+			digits[i] = code.getDigitAt(i).getValue();
+		return digits;
+	}
+
+	static byte[] digits(PriceLookupCode code)
+	{
+		byte[] digits = new byte[code.numeralCount()];
+		for (int i = 0; i < digits.length; i++)
+			digits[i] = code.getNumeralAt(i).getValue();
+		return digits;
+	}
+
+	static void writeCode(DataOutputStream out, byte[] digits) throws IOException
+	{
+		out.writeByte(digits.length);
+		for (int i = 0; i < digits.length; i += 2)
+		{
+			int high = digits[i];
+			int low = i + 1 < digits.length ? digits[i + 1] : 0;
+			out.writeByte((high << 4) | low);
+		}
+	}
+
+	private static void writePrice(DataOutputStream out, BigDecimal price) throws IOException
+	{
+		BigInteger unscaled = price.unscaledValue();
+		if (unscaled.bitLength() > 63 || price.scale() < Byte.MIN_VALUE || price.scale() > Byte.MAX_VALUE)
+			throw new IOException("price cannot be stored in a catalog snapshot: " + price);
+		out.writeByte(price.scale());
+		out.writeLong(unscaled.longValue());
+	}
+
+	private static void writeDescription(DataOutputStream out, String description) throws IOException
+	{
+		byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF)
+			throw new IOException("description too long for a catalog snapshot");
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	static Barcode readBarcode(ByteBuffer in)
+	{
+		int count = in.get() & 0xFF;
+		if (count > 16)
+			return new Barcode(readDigits(in, count));
+		// the digits are repacked lowest first, as Barcode keeps them; it checks each one
+		long packed = 0;
+		for (int i = 0; i < count; i += 2)
+		{
+			int pair = in.get() & 0xFF;
+			packed |= (long)(pair >>> 4) << (4 * i);
+			if (i + 1 < count)
+				packed |= (long)(pair & 0x0F) << (4 * (i + 1));
+		}
+		return new Barcode(packed, count);
+	}
+
+	static String readDigitString(ByteBuffer in)
+	{
+		return readDigits(in, in.get() & 0xFF);
+	}
+
+	private static String readDigits(ByteBuffer in, int count)
+	{
+		char[] chars = new char[count];
+		for (int i = 0; i < count; i += 2)
+		{
+			int pair = in.get() & 0xFF;
+			chars[i] = digit(pair >>> 4);
+			if (i + 1 < count)
+				chars[i + 1] = digit(pair & 0x0F);
+		}
+		return new String(chars);
+	}
+
+	private static char digit(int value)
+	{
+		if (value > 9)
+			throw new IllegalArgumentException("not a digit: " + value);
+		return (char)('0' + value);
+	}
+
+	private static BigDecimal readPrice(ByteBuffer in)
+	{
+		int scale = in.get();
+		return BigDecimal.valueOf(in.getLong(), scale);
+	}
+
+	private static String readDescription(ByteBuffer in, byte[] scratch)
+	{
+		int length = in.getShort() & 0xFFFF;
+		byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+		in.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,386 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.lsmr.selfcheckout.Banknote;
+import org.lsmr.selfcheckout.Coin;
+import org.lsmr.selfcheckout.devices.AbstractDevice;
+import org.lsmr.selfcheckout.devices.BanknoteDispenser;
+import org.lsmr.selfcheckout.devices.CoinDispenser;
+import org.lsmr.selfcheckout.devices.SelfCheckoutStation;
+import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
+import org.lsmr.selfcheckout.devices.observers.BanknoteDispenserObserver;
+import org.lsmr.selfcheckout.devices.observers.CoinDispenserObserver;
+
+/**
+ * Plans change for a station, and remembers the plans it has made.
+ *
+ * The planner follows the station's dispensers, so it always knows how many
+ * of each banknote and coin there are without asking them. A plan is kept
+ * for the amount and for exactly what the dispensers held when it was made,
+ * so loading or giving out money makes the plans that no longer fit miss,
+ * and they are forgotten in time. If the dispensers come back to what they
+ * held before, say when a refill is taken out again, the old plans are found.
+ *
+ * Once the money in the dispensers has stopped changing for a moment, the
+ * change most often given, every amount less than the smallest banknote, is
+ * planned on another thread, so it is ready before the customer finishes
+ * paying. Those plans are kept apart, for what the dispensers hold now only,
+ * so a customer feeding in coins one at a time does not push the plans that
+ * were asked for out of the cache.
+ */
+public class ChangePlanner implements CoinDispenserObserver, BanknoteDispenserObserver
+{
+	/**
+	 * Most plans remembered.
+	 */
+	public static final int CACHE_SIZE = 512;
+
+	/**
+	 * How long the dispensers must be left alone before small amounts are
+	 * planned ahead, in milliseconds.
+	 */
+	public static final long WARM_DELAY_MILLIS = 250;
+
+	private static final ScheduledExecutorService WARMER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "change-planner");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final SelfCheckoutStation scs;
+	private final int notes;
+	private final long[] values;		// banknotes then coins, in cents
+	private final int[] counts;			// how many of each the dispensers hold
+	private final Map<PlanKey, int[]> plans = new LinkedHashMap<PlanKey, int[]>(64, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PlanKey, int[]> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+	private ScheduledFuture<?> pendingWarm = null;
+	private long generation = 0;					// advanced by every change to the dispensers
+	private Map<Long, int[]> warmed = new HashMap<Long, int[]>();	// fewest-pieces plans for what the dispensers hold now
+	private int hits = 0;
+	private int misses = 0;
+	private int warmRounds = 0;
+
+	/**
+	 * Starts following the dispensers of a station.
+	 */
+	public ChangePlanner(SelfCheckoutStation scs)
+	{
+		if (scs == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.scs = scs;
+		this.notes = scs.banknoteDenominations.length;
+		List<BigDecimal> coins = scs.coinDenominations;
+		this.values = new long[notes + coins.size()];
+		this.counts = new int[values.length];
+		for (int i = 0; i < notes; i++)
+		{
+			int bv = scs.banknoteDenominations[i];
+			values[i] = bv * 100L;
+			counts[i] = scs.banknoteDispensers.get(bv).size();
+			scs.banknoteDispensers.get(bv).attach(this);
+		}
+		for (int i = 0; i < coins.size(); i++)
+		{
+			BigDecimal cv = coins.get(i);
+			values[notes + i] = Money.of(cv).getCents();
+			counts[notes + i] = scs.coinDispensers.get(cv).size();
+			scs.coinDispensers.get(cv).attach(this);
+		}
+		warm();
+	}
+
+	/**
+	 * Stops following the dispensers.
+	 */
+	public void detach()
+	{
+		for (int bv : scs.banknoteDenominations)
+			scs.banknoteDispensers.get(bv).detach(this);
+		for (BigDecimal cv : scs.coinDenominations)
+			scs.coinDispensers.get(cv).detach(this);
+		synchronized (this)
+		{
+			if (pendingWarm != null)
+				pendingWarm.cancel(false);
+		}
+	}
+
+	/**
+	 * Plans the change for an amount, from what is in the dispensers now.
+	 *
+	 * @return how many of each denomination to give: the station's banknote
+	 * 			denominations, then its coin denominations, in the order the
+	 * 			station lists them; or null if the change cannot be made
+	 */
+	public int[] plan(long amountInCents, ChangeSolver.Preference preference)
+	{
+		PlanKey key;
+		synchronized (this)
+		{
+			if (preference == ChangeSolver.Preference.FEWEST_PIECES && warmed.containsKey(amountInCents))
+			{
+				hits++;
+				int[] plan = warmed.get(amountInCents);
+				return plan == null ? null : plan.clone();
+			}
+			key = new PlanKey(amountInCents, preference, counts.clone());
+			int[] plan = plans.get(key);
+			if (plan != null || plans.containsKey(key))
+			{
+				hits++;
+				return plan == null ? null : plan.clone();
+			}
+			misses++;
+		}
+		int[] plan = new ChangeSolver(values, key.counts).solve(amountInCents, preference);
+		synchronized (this)
+		{
+			plans.put(key, plan);
+		}
+		return plan == null ? null : plan.clone();
+	}
+
+	/**
+	 * @return how many plans were found already made
+	 */
+	public synchronized int getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return how many plans had to be made
+	 */
+	public synchronized int getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return how many amounts are planned ahead for what the dispensers hold now
+	 */
+	public synchronized int getWarmed()
+	{
+		return warmed.size();
+	}
+
+	/**
+	 * @return how many times small amounts have been planned ahead
+	 */
+	public synchronized int getWarmRounds()
+	{
+		return warmRounds;
+	}
+
+	/**
+	 * Plans every amount less than the smallest banknote on another thread,
+	 * once the dispensers have been left alone for {@link #WARM_DELAY_MILLIS}.
+	 * A change to the dispensers before then, or while the amounts are being
+	 * planned, puts it off again.
+	 */
+	public synchronized void warm()
+	{
+		if (pendingWarm != null)
+			pendingWarm.cancel(false);
+		long round = generation;
+		pendingWarm = WARMER.schedule(() -> warmRound(round), WARM_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private void warmRound(long round)
+	{
+		int[] held;
+		synchronized (this)
+		{
+			if (generation != round)
+				return;
+			held = counts.clone();
+		}
+		long step = Long.MAX_VALUE;
+		long below = Long.MAX_VALUE;
+		for (int i = 0; i < values.length; i++)
+		{
+			if (i < notes)
+				below = Math.min(below, values[i]);
+			else
+				step = Math.min(step, values[i]);
+		}
+		if (step == Long.MAX_VALUE)
+			return;
+		if (below == Long.MAX_VALUE)
+			below = step * 100;
+		ChangeSolver solver = new ChangeSolver(values, held);
+		Map<Long, int[]> made = new HashMap<Long, int[]>();
+		for (long amount = step; amount < below; amount += step)
+		{
+			synchronized (this)
+			{
+				// the dispensers changed, so these plans are already out of date
+				if (generation != round)
+					return;
+			}
+			made.put(amount, solver.solve(amount, ChangeSolver.Preference.FEWEST_PIECES));
+		}
+		synchronized (this)
+		{
+			if (generation == round)
+			{
+				warmed = made;
+				warmRounds++;
+			}
+		}
+	}
+
+	private synchronized void changed(int index, int delta)
+	{
+		counts[index] += delta;
+		generation++;
+		if (!warmed.isEmpty())
+			warmed = new HashMap<Long, int[]>();
+	}
+
+	private int indexOf(CoinDispenser dispenser)
+	{
+		for (int i = 0; i < scs.coinDenominations.size(); i++)
+		{
+			if (scs.coinDispensers.get(scs.coinDenominations.get(i)) == dispenser)
+				return notes + i;
+		}
+		throw new IllegalStateException("not a dispenser of this station");
+	}
+
+	private int indexOf(BanknoteDispenser dispenser)
+	{
+		for (int i = 0; i < notes; i++)
+		{
+			if (scs.banknoteDispensers.get(scs.banknoteDenominations[i]) == dispenser)
+				return i;
+		}
+		throw new IllegalStateException("not a dispenser of this station");
+	}
+
+	@Override
+	public void coinAdded(CoinDispenser dispenser, Coin coin)
+	{
+		changed(indexOf(dispenser), 1);
+		warm();
+	}
+
+	@Override
+	public void coinRemoved(CoinDispenser dispenser, Coin coin)
+	{
+		changed(indexOf(dispenser), -1);
+		warm();
+	}
+
+	@Override
+	public void coinsLoaded(CoinDispenser dispenser, Coin... coins)
+	{
+		changed(indexOf(dispenser), coins.length);
+		warm();
+	}
+
+	@Override
+	public void coinsUnloaded(CoinDispenser dispenser, Coin... coins)
+	{
+		changed(indexOf(dispenser), -coins.length);
+		warm();
+	}
+
+	@Override
+	public void billAdded(BanknoteDispenser dispenser, Banknote banknote)
+	{
+		changed(indexOf(dispenser), 1);
+		warm();
+	}
+
+	@Override
+	public void banknoteRemoved(BanknoteDispenser dispenser, Banknote banknote)
+	{
+		changed(indexOf(dispenser), -1);
+		warm();
+	}
+
+	@Override
+	public void banknotesLoaded(BanknoteDispenser dispenser, Banknote... banknotes)
+	{
+		changed(indexOf(dispenser), banknotes.length);
+		warm();
+	}
+
+	@Override
+	public void banknotesUnloaded(BanknoteDispenser dispenser, Banknote... banknotes)
+	{
+		changed(indexOf(dispenser), -banknotes.length);
+		warm();
+	}
+
+	@Override
+	public void coinsFull(CoinDispenser dispenser) {}
+
+	@Override
+	public void coinsEmpty(CoinDispenser dispenser) {}
+
+	@Override
+	public void moneyFull(BanknoteDispenser dispenser) {}
+
+	@Override
+	public void banknotesEmpty(BanknoteDispenser dispenser) {}
+
+	@Override
+	public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+
+	@Override
+	public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device) {}
+
+	/**
+	 * An amount, what makes a plan better, and what the dispensers held.
+	 */
+	private static final class PlanKey
+	{
+		private final long amount;
+		private final ChangeSolver.Preference preference;
+		private final int[] counts;
+		private final int hash;
+
+		PlanKey(long amount, ChangeSolver.Preference preference, int[] counts)
+		{
+			this.amount = amount;
+			this.preference = preference;
+			this.counts = counts;
+			this.hash = 31 * (31 * Long.hashCode(amount) + preference.hashCode()) + Arrays.hashCode(counts);
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof PlanKey))
+				return false;
+			PlanKey that = (PlanKey)other;
+			return amount == that.amount && preference == that.preference && Arrays.equals(counts, that.counts);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
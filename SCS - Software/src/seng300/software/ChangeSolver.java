@@ -0,0 +1,184 @@
+package seng300.software;
+
+import java.util.Arrays;
+
+/**
+ * Works out which banknotes and coins to give as change, using only as many
+ * of each as the station holds.
+ *
+ * Amounts are in whole cents. The search goes through the denominations from
+ * largest to smallest, trying the most of each first, and skips any branch
+ * that cannot beat the best answer found so far. It keeps a few numbers per
+ * denomination and nothing per amount, and stops after a fixed number of
+ * steps, so the time and memory taken do not grow with the change owed. The
+ * first answer found is the one a cashier would give, so in the rare case the
+ * search stops early it still has a good one.
+ */
+public final class ChangeSolver
+{
+	/**
+	 * What makes one way of giving change better than another.
+	 */
+	public enum Preference
+	{
+		/**
+		 * Fewest banknotes and coins, then the fewest small ones.
+		 */
+		FEWEST_PIECES,
+		/**
+		 * Fewest pieces of the denominations the station has fewest of, so
+		 * it does not run out of them.
+		 */
+		PRESERVE_SCARCE
+	}
+
+	/**
+	 * Most branches searched before the best answer found is given.
+	 */
+	public static final int MAX_STEPS = 200_000;
+
+	private static final long PIECE_COST = 1 << 20;
+
+	private final long[] values;		// cents, largest first
+	private final int[] available;
+	private final int[] order;			// index given to the constructor, for each of values
+	private final long gcd;
+
+	/**
+	 * @param valuesInCents
+	 * 			Value of each denomination, in cents.
+	 * @param available
+	 * 			How many of each denomination there are to give.
+	 */
+	public ChangeSolver(long[] valuesInCents, int[] available)
+	{
+		if (valuesInCents == null || available == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (valuesInCents.length != available.length)
+			throw new IllegalArgumentException("a count is needed for each denomination");
+
+		Integer[] byValue = new Integer[valuesInCents.length];
+		for (int i = 0; i < byValue.length; i++)
+		{
+			if (valuesInCents[i] <= 0 || available[i] < 0)
+				throw new IllegalArgumentException("values must be positive and counts not negative");
+			byValue[i] = i;
+		}
+		Arrays.sort(byValue, (a, b) -> Long.compare(valuesInCents[b], valuesInCents[a]));
+
+		this.values = new long[byValue.length];
+		this.available = new int[byValue.length];
+		this.order = new int[byValue.length];
+		long g = 0;
+		for (int i = 0; i < byValue.length; i++)
+		{
+			order[i] = byValue[i];
+			values[i] = valuesInCents[order[i]];
+			this.available[i] = available[order[i]];
+			if (this.available[i] > 0)
+				g = gcd(g, values[i]);
+		}
+		this.gcd = g;
+	}
+
+	/**
+	 * Finds how many of each denomination to give.
+	 *
+	 * @param amountInCents
+	 * 			The change owed, in cents.
+	 * @param preference
+	 * 			What makes one answer better than another.
+	 *
+	 * @return how many of each denomination to give, in the order they were
+	 * 			given to the constructor, or null if the change cannot be made
+	 */
+	public int[] solve(long amountInCents, Preference preference)
+	{
+		if (amountInCents < 0)
+			throw new IllegalArgumentException("amount cannot be negative");
+		int n = values.length;
+		int[] best = new int[n];
+		if (amountInCents == 0)
+			return best;
+		if (gcd == 0 || amountInCents % gcd != 0)
+			return null;
+
+		long[] cost = pieceCosts(preference);
+		// least cost per cent of the denominations from each one down, to bound what is left
+		double[] leastRate = new double[n + 1];
+		leastRate[n] = Double.POSITIVE_INFINITY;
+		for (int i = n - 1; i >= 0; i--)
+		{
+			double rate = available[i] > 0 ? (double)cost[i] / values[i] : Double.POSITIVE_INFINITY;
+			leastRate[i] = Math.min(rate, leastRate[i + 1]);
+		}
+
+		int[] count = new int[n];
+		int[] next = new int[n];		// next count to try of each denomination
+		long[] remaining = new long[n];
+		long[] spent = new long[n];		// cost of the larger denominations chosen
+		long bestCost = Long.MAX_VALUE;
+
+		int level = 0;
+		remaining[0] = amountInCents;
+		next[0] = (int)Math.min(available[0], amountInCents / values[0]);
+		for (int steps = 0; level >= 0 && steps < MAX_STEPS; steps++)
+		{
+			if (next[level] < 0)
+			{
+				level--;
+				continue;
+			}
+			int c = next[level]--;
+			count[level] = c;
+			long left = remaining[level] - c * values[level];
+			long costSoFar = spent[level] + c * cost[level];
+			if (left == 0)
+			{
+				if (costSoFar < bestCost)
+				{
+					bestCost = costSoFar;
+					for (int i = 0; i < n; i++)
+						best[order[i]] = i <= level ? count[i] : 0;
+				}
+				continue;
+			}
+			if (level + 1 == n || costSoFar + left * leastRate[level + 1] >= bestCost)
+				continue;
+			level++;
+			remaining[level] = left;
+			spent[level] = costSoFar;
+			next[level] = (int)Math.min(available[level], left / values[level]);
+		}
+		return bestCost == Long.MAX_VALUE ? null : best;
+	}
+
+	private long[] pieceCosts(Preference preference)
+	{
+		int n = values.length;
+		long[] cost = new long[n];
+		int most = 0;
+		for (int a : available)
+			most = Math.max(most, a);
+		for (int i = 0; i < n; i++)
+		{
+			// smaller denominations cost a little more, so ties go to fewer small pieces
+			cost[i] = PIECE_COST + i;
+			if (preference == Preference.PRESERVE_SCARCE)
+				// a piece costs more the fewer of its kind are left
+				cost[i] += PIECE_COST * most / (available[i] + 1);
+		}
+		return cost;
+	}
+
+	private static long gcd(long a, long b)
+	{
+		while (b != 0)
+		{
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+}
@@ -23,10 +23,10 @@ public class Checkout {
 	private String membershipNumber = ""; //Should never be null as it always gets printed!
 	private String giftNumber = ""; //hotfix, until paywithGift is better
 
-	private BigDecimal totalcost;
-	private BigDecimal totalchange;
+	private Money totalcost;
+	private Money totalchange = Money.ZERO;
 
-	private BigDecimal totalAmountPaid = new BigDecimal(0.0); 
+	private Money totalAmountPaid = Money.ZERO; 
 	private ArrayList<String> payments = new ArrayList<String>();
 	
 	private PayWithCoin paycoin;
@@ -34,6 +34,9 @@ public class Checkout {
 	private CardHandler cardHandler = null;
 	
 	private ReturnChange returnChange;
+	private final ChangePlanner changePlanner;
+	private ChangeSolver.Preference changePreference = ChangeSolver.Preference.FEWEST_PIECES;
+	private Runnable changeListener = () -> {};	// told of every tender and card read, to save the transaction
 	
 	
 	
@@ -46,27 +49,46 @@ public class Checkout {
 		
 		this.scs = scs;
 		
-		this.totalcost = cost;
+		this.totalcost = Money.of(cost);
 		
 		this.products = products;
 		
+		this.changePlanner = new ChangePlanner(scs);
+		
+	}
+	
+	/**
+	 * Sets how change is given: in the fewest pieces, or so the station
+	 * does not run out of the denominations it has fewest of.
+	 */
+	public void setChangePreference(ChangeSolver.Preference preference) {
+		if (preference == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.changePreference = preference;
 	}
 	
 	public BigDecimal getTotalchange() {
-		return totalchange;
+		return totalchange.toBigDecimal();
 	}
 
 	public BigDecimal getTotalAmountPaid() {
-		return totalAmountPaid;
+		return totalAmountPaid.toBigDecimal();
 	}
 
 	//the customer has changed the items they want to purchase
 	public void update( BigDecimal newCost) {
 		
-		totalcost = newCost;
+		totalcost = Money.of(newCost);
 		
 	}
 	
+	// called after every tender, and whenever the membership or gift card number changes
+	void setChangeListener(Runnable listener) {
+		if (listener == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.changeListener = listener;
+	}
+	
 	//should be called by test file to simulate customer choosing two enter a membership
 	public void chooseMembership(CardIssuer membership) {
 		
@@ -89,12 +111,14 @@ public class Checkout {
 	public void chooseBanknote() {
 		
 		paybanknote = new PayWithBanknote(scs);
+		paybanknote.setPaymentListener(changeListener);
 	}
 	
 	//should be called by the test file to simulate customer choosing to pay with coin
 	public void chooseCoin() {
 		
 		paycoin = new PayWithCoin(scs);
+		paycoin.setPaymentListener(changeListener);
 	}
 	
 	//should be called after simulating the scanning of a membership card. 
@@ -102,6 +126,7 @@ public class Checkout {
 		
 		try { //checks for standard card errors
 			this.membershipNumber = this.cardHandler.readMemberCard();
+			changeListener.run();
 		} catch (BadCardException e) {
 			//System.out.println("Sorry, that wasn't a membership card");
 		} catch (ValidationException e) {
@@ -110,9 +135,51 @@ public class Checkout {
 		
 	}
 	
+	//membership number read from the last membership card, or "" if there is none
+	public String getMembershipNumber() {
+		return membershipNumber;
+	}
+	
+	// used by TransactionSnapshot
+	String getGiftNumber() {
+		return giftNumber;
+	}
+	
+	// what has been paid, counting cash put in for a payment not yet completed
+	Money getTenderedMoney() {
+		Money tendered = totalAmountPaid;
+		if (paycoin != null)
+			tendered = tendered.plus(paycoin.amountPaidMoney());
+		if (paybanknote != null)
+			tendered = tendered.plus(paybanknote.amountPaidMoney());
+		return tendered;
+	}
+	
+	// the payments, with a line for cash put in for a payment not yet completed
+	ArrayList<String> getTenderedPayments() {
+		ArrayList<String> tendered = new ArrayList<String>(payments);
+		if (paycoin != null && paycoin.amountPaidMoney().signum() > 0)
+			tendered.add("Paid $" + paycoin.amountPaidMoney() + " with: Coins");
+		if (paybanknote != null && paybanknote.amountPaidMoney().signum() > 0)
+			tendered.add("Paid $" + paybanknote.amountPaidMoney() + " with: Banknotes");
+		return tendered;
+	}
+	
+	// puts back the tenders and cards of a suspended transaction
+	void restore(Money amountPaid, ArrayList<String> payments, String membershipNumber, String giftNumber) {
+		this.totalAmountPaid = amountPaid;
+		this.payments = payments;
+		this.membershipNumber = membershipNumber;
+		this.giftNumber = giftNumber;
+		// cash put in for a payment not completed is counted in amountPaid
+		this.paycoin = null;
+		this.paybanknote = null;
+	}
+	
 	//In case the customer chooses to not want to use a membership card
 	public void resetMembershipNumber() {
 		this.membershipNumber = ""; //recall, membershipNumber should never be null!
+		changeListener.run();
 	}
 	
 	public void completeCurrentPaymentMethod() {
@@ -120,16 +187,14 @@ public class Checkout {
 		//if they chose coin
 		if (paycoin != null) {
 			
-			BigDecimal thispayment = paycoin.amountPaid();
+			Money thispayment = paycoin.amountPaidMoney();
 			
 			//make sure it like worked and stuff
-			if(thispayment.compareTo(BigDecimal.ZERO) > 0) {
+			if(thispayment.signum() > 0) {
 
-				BigDecimal payment = thispayment.setScale(2, RoundingMode.HALF_EVEN);
-				
-				payments.add("Paid $" + payment.toPlainString() + " with: Coins");
+				payments.add("Paid $" + thispayment + " with: Coins");
 
-				totalAmountPaid = totalAmountPaid.add(thispayment);
+				totalAmountPaid = totalAmountPaid.plus(thispayment);
 			}
 			
 			paycoin = null;
@@ -138,16 +203,14 @@ public class Checkout {
 		//if they chose banknote
 		if (paybanknote != null) {
 			
-			BigDecimal thispayment = paybanknote.amountPaid();
+			Money thispayment = paybanknote.amountPaidMoney();
 			
 			//make sure it like worked and stuff
-			if(thispayment.compareTo(BigDecimal.ZERO) > 0) {
+			if(thispayment.signum() > 0) {
 
-				BigDecimal payment = thispayment.setScale(2, RoundingMode.HALF_EVEN);
-				
-				payments.add("Paid $" + payment.toPlainString() + " with: Banknotes");
+				payments.add("Paid $" + thispayment + " with: Banknotes");
 
-				totalAmountPaid = totalAmountPaid.add(thispayment);
+				totalAmountPaid = totalAmountPaid.plus(thispayment);
 			}
 			
 			paybanknote = null;
@@ -198,16 +261,15 @@ public class Checkout {
 			}
 			
 			//get the value of the payment
-			BigDecimal thispayment = cardHandler.amountPaid();
+			Money thispayment = Money.of(cardHandler.amountPaid());
 			
 			//make sure it like worked and stuff
-			if(thispayment.compareTo(BigDecimal.ZERO) > 0) {
+			if(thispayment.signum() > 0) {
 
-				BigDecimal payment = thispayment.setScale(2, RoundingMode.HALF_EVEN);
-				
-				payments.add("Paid $" + payment.toPlainString() + " with: " + paymentMethod);
+				payments.add("Paid $" + thispayment + " with: " + paymentMethod);
 				
-				totalAmountPaid = totalAmountPaid.add(thispayment);
+				totalAmountPaid = totalAmountPaid.plus(thispayment);
+				changeListener.run();
 			}
 			else {
 				
@@ -224,13 +286,15 @@ public class Checkout {
 	//should be called by the test file to simulate customer wanting to finish payment
 	public void finishPayment() {
 		
-		BigDecimal changeDue = totalcost.subtract(totalAmountPaid);
+		Money changeDue = totalcost.minus(totalAmountPaid);
 		
-		if (changeDue.compareTo(BigDecimal.ZERO) <= 0) {
+		if (changeDue.signum() <= 0) {
 			
 			totalchange = changeDue.abs();
 			
-			returnChange = new ReturnChange(scs, totalchange);
+			if (returnChange != null)
+				returnChange.detach();
+			returnChange = new ReturnChange(scs, totalchange.toBigDecimal(), changePreference, changePlanner);
 
 			printReceipt();
 			
@@ -241,6 +305,24 @@ public class Checkout {
 			
 	}
 
+	//	wrapper for the ReturnChange method start(), gives out all of the change
+	//	on its own: each banknote once the last is taken, and the coins a
+	//	trayful at a time once the tray is emptied. The listener is told
+	//	each time some goes out, and can be null. Returns false, and gives
+	//	nothing, if the dispensers cannot make the change; the listener is
+	//	told so as well.
+	public boolean dispenseChange(ReturnChange.ProgressListener listener) {
+		
+		returnChange.start(listener);
+		return returnChange.isChangeAvailable();
+	}
+	
+	//false if the change owed cannot be made from the dispensers, so the attendant has to give it
+	public boolean isChangeAvailable() {
+		
+		return returnChange == null || returnChange.isChangeAvailable();
+	}
+	
 	//	wrapper for the ReturnChange method ejectBanknote()
 	//	usage:
 	//	checkout.returnBanknoteChange();
@@ -298,14 +380,10 @@ public class Checkout {
 			
 		}
 		
-		BigDecimal value = totalcost.setScale(2, RoundingMode.HALF_EVEN);
-		BigDecimal paid = totalAmountPaid.setScale(2, RoundingMode.HALF_EVEN);
-		BigDecimal change = totalchange.setScale(2, RoundingMode.HALF_EVEN);
-		
-		items.add("Total: $" + value.toPlainString());
-		items.add("Paid: $" + paid.toPlainString());
+		items.add("Total: $" + totalcost);
+		items.add("Paid: $" + totalAmountPaid);
 		items.addAll(payments);
-		items.add("Change: $" + change.toPlainString());
+		items.add("Change: $" + totalchange);
 		
 		if (!giftNumber.equals("")) {
 			items.add("Paid with giftCard: " + giftNumber);
@@ -361,19 +439,20 @@ public class Checkout {
 	public void setGiftNumber(String giftNumber) { //hotfix until giftcard is fixed
 		this.giftNumber = giftNumber;
 		totalAmountPaid = totalcost;
+		changeListener.run();
 	}
 	
 	public void reset() {
-		ArrayList<Product> removal = new ArrayList<Product>();
-		removal.addAll(this.products);
-		products.removeAll(removal);
+		products.clear();
 		
 		membershipNumber = ""; //Should never be null as it always gets printed!
 		giftNumber = ""; //hotfix, until paywithGift is better
-		totalcost = new BigDecimal("0.00");
-		totalchange = new BigDecimal("0.00");;
-		totalAmountPaid = new BigDecimal(0.0); 
+		totalcost = Money.ZERO;
+		totalchange = Money.ZERO;
+		totalAmountPaid = Money.ZERO; 
 		payments = new ArrayList<String>();
+		if (returnChange != null)
+			returnChange.detach();
 	}
 	
 }
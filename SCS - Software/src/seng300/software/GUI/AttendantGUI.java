@@ -18,6 +18,9 @@ import org.lsmr.selfcheckout.external.ProductDatabases;
 import org.lsmr.selfcheckout.products.PLUCodedProduct;
 
 import seng300.software.AttendantLogic;
+import seng300.software.Cart;
+import seng300.software.ProductDatabaseLogic;
+import seng300.software.ProductSearchSession;
 import seng300.software.SelfCheckoutSystemLogic;
 import seng300.software.exceptions.ProductNotFoundException;
 
@@ -39,6 +42,9 @@ public class AttendantGUI extends JPanel {
 	private PLUCodedItem lastAddedItem;
 
 	private String lastItemDescription;
+	
+	private ProductDatabaseLogic productDatabase = new ProductDatabaseLogic();
+	private ProductSearchSession searchSession = productDatabase.newSearchSession();
 	/**
 	 * Create the panel.
 	 */
@@ -296,6 +302,7 @@ public class AttendantGUI extends JPanel {
 			// ignore attempts to backspace when search field empty
 		} else if (key == KeyboardKey.CLEAR) {
 			attendantLookup.reset();
+			searchSession.clear();
 		} else if (key != KeyboardKey.ENTER) {
 			searchText += key.getValue();
 			attendantLookup.setSearchText(searchText);
@@ -305,7 +312,11 @@ public class AttendantGUI extends JPanel {
 	
 	private void lookupProduct(String searchText) {
 		if (!searchText.isEmpty()) {
-			List<PLUCodedProduct> results = this.attendantMainPanel.getCurrentSystemAccessed().productLookUp(searchText);
+			List<PLUCodedProduct> results = searchSession.setQuery(searchText).getPage(0);
+			if (results.isEmpty()) {
+				// no description starts with the text; match its words instead
+				results = productDatabase.searchPLUCodedProducts(searchText, ProductSearchSession.PAGE_SIZE);
+			}
 			List<LookupResultButton> btns = new ArrayList<>();
 			for (PLUCodedProduct p : results) {
 				LookupResultButton btn = new LookupResultButton(p);
@@ -338,11 +349,11 @@ public class AttendantGUI extends JPanel {
 			lastItemDescription = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getDescription();
 			BigDecimal pricePerKilo = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getPrice();
 			logic.getAttachedGui().getCheckoutPanel().itemLogPanel.addItem(lastItemDescription,
-					pricePerKilo.multiply(new BigDecimal(item.getWeight() / 1000.0)));
+					Cart.priceByWeight(pricePerKilo, item.getWeight()));
 			BigDecimal cartTotal = logic.getCart().getCartTotal();
 			if (logic.station.mainScanner.isDisabled())
 			{
-				cartTotal = cartTotal.subtract(new BigDecimal(0.05 * logic.cart.getBags()));
+				cartTotal = cartTotal.subtract(logic.cart.getBagsTotal());
 			}
 			logic.getAttachedGui().getCheckoutPanel().itemLogPanel.setBillTotalValue(cartTotal);
 			//displayPlaceItemPopup();
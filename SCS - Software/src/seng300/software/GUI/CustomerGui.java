@@ -39,7 +39,9 @@ import org.lsmr.selfcheckout.products.BarcodedProduct;
 import org.lsmr.selfcheckout.products.PLUCodedProduct;
 import org.lsmr.selfcheckout.products.Product;
 
+import seng300.software.Cart;
 import seng300.software.PLUCodedWeightProduct;
+import seng300.software.ProductSearchSession;
 import seng300.software.SelfCheckoutSystemLogic;
 import seng300.software.exceptions.ProductNotFoundException;
 
@@ -76,6 +78,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 	private String lastItemDescription = "";
 	private Map<Product, Item> itemToRemove = null;
 	private String itemToRemoveDescription = "";
+	private ProductSearchSession searchSession;
 	
 	// Add membership simulation
 	private Card membershipCard = null;
@@ -88,6 +91,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 		setLayout(new CardLayout(0, 0));
 
 		this.logic = logic;
+		this.searchSession = logic.productDatabase.newSearchSession();
 
 		unavailablePanel = new StationUnavailablePanel();
 		readyPanel = new StationReadyPanel();
@@ -266,7 +270,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 		{
 			logic.addItemAfterCheckoutStart();
 		}
-		logic.checkout.update(logic.cart.getCartTotal());
+		logic.checkout.update(logic.cart.getTotalDue());
 		checkoutPanel.showLogoPanel();
 		checkoutPanel.setVisible(true);
 		readyPanel.setVisible(false);
@@ -334,7 +338,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 	 * Displays panel with various payment options and information.
 	 */
 	private void displayPaymentPanel() {
-		BigDecimal cartTotal = logic.cart.getCartTotal();
+		BigDecimal cartTotal = logic.cart.getTotalDue();
 		BigDecimal amountPaid = logic.checkout.getTotalAmountPaid();
 		if (cartTotal.compareTo(amountPaid) > 0) {
 			paymentPanel.setBillTotal(cartTotal);
@@ -384,7 +388,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 	 * Displays thank you panel after payment completed.
 	 */
 	private void displayThankYouPanel() {
-		BigDecimal cartTotal = logic.cart.getCartTotal();
+		BigDecimal cartTotal = logic.cart.getTotalDue();
 		BigDecimal amountPaid = logic.checkout.getTotalAmountPaid();
 		thankYouPanel.setChangeDueLabel(amountPaid.subtract(cartTotal));
 		thankYouPanel.validate();
@@ -469,7 +473,9 @@ public class CustomerGui extends JPanel implements DisableableGui {
 		Random rand = new Random();
 		int index = rand.nextInt(ProductDatabases.BARCODED_PRODUCT_DATABASE.size());
 		Barcode code = (Barcode) ProductDatabases.BARCODED_PRODUCT_DATABASE.keySet().toArray()[index];
-		BarcodedProduct p = ProductDatabases.BARCODED_PRODUCT_DATABASE.get(code);
+		BarcodedProduct p = logic.productDatabase.findProduct(code).orElse(null);
+		if (p == null)
+			return;
 		BarcodedItem item = new BarcodedItem(code, p.getExpectedWeight());
 		// scan until product added successfully
 		int oldSize = logic.getCart().getProducts().size();
@@ -477,13 +483,12 @@ public class CustomerGui extends JPanel implements DisableableGui {
 			logic.station.mainScanner.scan(item);
 		}
 		lastAddedItem = item;
-		lastItemDescription = ProductDatabases.BARCODED_PRODUCT_DATABASE.get(code).getDescription();
-		checkoutPanel.itemLogPanel.addItem(lastItemDescription,
-				ProductDatabases.BARCODED_PRODUCT_DATABASE.get(code).getPrice());
+		lastItemDescription = p.getDescription();
+		checkoutPanel.itemLogPanel.addItem(lastItemDescription, p.getPrice());
 		BigDecimal cartTotal = logic.getCart().getCartTotal();
 		if (paymentStarted)
 		{
-			cartTotal = cartTotal.subtract(new BigDecimal(0.05 * logic.cart.getBags()));
+			cartTotal = cartTotal.subtract(logic.cart.getBagsTotal());
 		}
 		checkoutPanel.itemLogPanel.setBillTotalValue(cartTotal);
 		if (weightChecking) {
@@ -524,7 +529,8 @@ public class CustomerGui extends JPanel implements DisableableGui {
 	}
 
 	private void addPluProductToCart(PriceLookupCode code) throws ProductNotFoundException {
-		if (ProductDatabases.PLU_PRODUCT_DATABASE.containsKey(code)) {
+		PLUCodedProduct product = logic.productDatabase.findPLUCodedProduct(code).orElse(null);
+		if (product != null) {
 			// Create random plucoded product for testing
 			double maxScaleWeight = logic.station.scanningArea.getWeightLimit();
 			Random rand = new Random();
@@ -534,30 +540,30 @@ public class CustomerGui extends JPanel implements DisableableGui {
 			if (weightChecking) {
 				logic.getCart().addPLUCodedProductToCart(code, item.getWeight());
 				lastAddedItem = item;
-				lastItemDescription = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getDescription();
-				BigDecimal pricePerKilo = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getPrice();
+				lastItemDescription = product.getDescription();
+				BigDecimal pricePerKilo = product.getPrice();
 				checkoutPanel.itemLogPanel.addItem(lastItemDescription,
-						pricePerKilo.multiply(new BigDecimal(item.getWeight() / 1000.0)));
+						Cart.priceByWeight(pricePerKilo, item.getWeight()));
 				BigDecimal cartTotal = logic.getCart().getCartTotal();
 				if (paymentStarted)
 				{
-					cartTotal = cartTotal.subtract(new BigDecimal(0.05 * logic.cart.getBags()));
+					cartTotal = cartTotal.subtract(logic.cart.getBagsTotal());
 				}
 				checkoutPanel.itemLogPanel.setBillTotalValue(cartTotal);
 				displayPlaceItemPopup();
 			} else {
 				logic.getCart().addPLUCodedProductToCartNoWeight(code, item.getWeight());
 				lastAddedItem = item;
-				lastItemDescription = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getDescription();
+				lastItemDescription = product.getDescription();
 				logic.checkBagging();
 				weightChecking = true;
-				BigDecimal pricePerKilo = ProductDatabases.PLU_PRODUCT_DATABASE.get(code).getPrice();
+				BigDecimal pricePerKilo = product.getPrice();
 				checkoutPanel.itemLogPanel.addItem(lastItemDescription,
-						pricePerKilo.multiply(new BigDecimal(item.getWeight() / 1000.0)));
+						Cart.priceByWeight(pricePerKilo, item.getWeight()));
 				BigDecimal cartTotal = logic.getCart().getCartTotal();
 				if (paymentStarted)
 				{
-					cartTotal = cartTotal.subtract(new BigDecimal(0.05 * logic.cart.getBags()));
+					cartTotal = cartTotal.subtract(logic.cart.getBagsTotal());
 				}
 				checkoutPanel.itemLogPanel.setBillTotalValue(cartTotal);
 				displayCheckoutPanel();
@@ -579,6 +585,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 			// ignore attempts to backspace when search field empty
 		} else if (key == KeyboardKey.CLEAR) {
 			lookupPanel.reset();
+			searchSession.clear();
 		} else if (key != KeyboardKey.ENTER) {
 			searchText += key.getValue();
 			lookupPanel.setSearchText(searchText);
@@ -588,7 +595,12 @@ public class CustomerGui extends JPanel implements DisableableGui {
 	
 	private void lookupProduct(String searchText) {
 		if (!searchText.isEmpty()) {
-			List<PLUCodedProduct> results = logic.productLookUp(searchText);
+			// narrows the previous search instead of starting over
+			List<PLUCodedProduct> results = searchSession.setQuery(searchText).getPage(0);
+			if (results.isEmpty()) {
+				// no description starts with the text; match its words instead
+				results = logic.productDatabase.searchPLUCodedProducts(searchText, ProductSearchSession.PAGE_SIZE);
+			}
 			List<LookupResultButton> btns = new ArrayList<>();
 			for (PLUCodedProduct p : results) {
 				LookupResultButton btn = new LookupResultButton(p);
@@ -648,6 +660,9 @@ public class CustomerGui extends JPanel implements DisableableGui {
 			}
 		}
 		logic.checkout.completeMembershipRecognition();
+		// members only prices apply once the card is recognized
+		logic.cart.getPricing().setMember(!logic.checkout.getMembershipNumber().equals(""));
+		logic.checkout.update(logic.cart.getTotalDue());
 	}
 
 	private void returnToCheckoutClicked() {
@@ -749,7 +764,7 @@ public class CustomerGui extends JPanel implements DisableableGui {
 			BigDecimal cartTotal = logic.getCart().getCartTotal();
 			if (paymentStarted)
 			{
-				cartTotal = cartTotal.subtract(BigDecimal.valueOf(0.05 * logic.cart.getBags()));
+				cartTotal = cartTotal.subtract(logic.cart.getBagsTotal());
 			}
 			checkoutPanel.itemLogPanel.setBillTotalValue(cartTotal);
 			itemToRemove = null;
@@ -933,9 +948,9 @@ public class CustomerGui extends JPanel implements DisableableGui {
 		c.setTime(new Date()); 
 		c.add(Calendar.DATE, 1);
 		
-		stub.addCardData("11111", "Customer", c, "123", logic.cart.getCartTotal());
+		stub.addCardData("11111", "Customer", c, "123", logic.cart.getTotalDue());
 		
-		logic.checkout.chooseCredit(stub, logic.cart.getCartTotal());
+		logic.checkout.chooseCredit(stub, logic.cart.getTotalDue());
 		boolean swiped = false;
 		while (!swiped) {
 			try {
@@ -960,9 +975,9 @@ public class CustomerGui extends JPanel implements DisableableGui {
 		c.setTime(new Date()); 
 		c.add(Calendar.DATE, 1);
 		
-		stub.addCardData("11111", "Customer", c, "123", logic.cart.getCartTotal());
+		stub.addCardData("11111", "Customer", c, "123", logic.cart.getTotalDue());
 		
-		logic.checkout.chooseDebit(stub, logic.cart.getCartTotal());
+		logic.checkout.chooseDebit(stub, logic.cart.getTotalDue());
 		boolean swiped = false;
 		while (!swiped) {
 			try {
@@ -0,0 +1,69 @@
+package seng300.software;
+
+import java.util.Arrays;
+
+/**
+ * Remembers codes that were recently looked up and not found, so that
+ * scanning the same unknown code again does not search the catalog again.
+ *
+ * Each code has one slot, picked by its hash, and a newer miss simply
+ * overwrites an older one. Every entry belongs to a stamp, the version of
+ * the products it was checked against, and all entries are dropped as soon
+ * as a different stamp is seen.
+ */
+final class MissCache<K>
+{
+	private final Object[] slots;
+	private long stamp;
+
+	/**
+	 * @param size
+	 * 			Number of slots. Must be a power of two.
+	 */
+	MissCache(int size)
+	{
+		if (size <= 0 || (size & (size - 1)) != 0)
+			throw new IllegalArgumentException("size must be a power of two");
+		slots = new Object[size];
+	}
+
+	/**
+	 * @return true if the code is known to be missing from the given version
+	 */
+	synchronized boolean contains(K key, long currentStamp)
+	{
+		if (currentStamp != stamp)
+			reset(currentStamp);
+		return key.equals(slots[slot(key)]);
+	}
+
+	/**
+	 * Records that the code is missing from the given version.
+	 */
+	synchronized void add(K key, long currentStamp)
+	{
+		if (currentStamp != stamp)
+			reset(currentStamp);
+		slots[slot(key)] = key;
+	}
+
+	/**
+	 * Forgets every miss.
+	 */
+	synchronized void clear()
+	{
+		Arrays.fill(slots, null);
+	}
+
+	private void reset(long currentStamp)
+	{
+		Arrays.fill(slots, null);
+		stamp = currentStamp;
+	}
+
+	private int slot(K key)
+	{
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (slots.length - 1);
+	}
+}
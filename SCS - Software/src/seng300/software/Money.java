@@ -0,0 +1,251 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money, held as a whole number of cents.
+ *
+ * Adding and subtracting cents is plain long arithmetic, so totals kept as
+ * Money never gather rounding errors and never allocate more than the result.
+ * Every operation is checked, and throws ArithmeticException instead of
+ * silently overflowing.
+ *
+ * Amounts come in and go out as BigDecimal, the type used by the products,
+ * coins and hardware, through {@link #of(BigDecimal)} and
+ * {@link #toBigDecimal()}. Anything that can produce a fraction of a cent,
+ * such as pricing by weight, takes an explicit RoundingMode.
+ */
+public final class Money implements Comparable<Money>
+{
+	/**
+	 * How amounts with a fraction of a cent are rounded when no mode is given.
+	 * The same rounding the receipts have always used.
+	 */
+	public static final RoundingMode DEFAULT_ROUNDING = RoundingMode.HALF_EVEN;
+
+	public static final Money ZERO = new Money(0);
+
+	private static final int SCALE = 2;
+	private static final Money[] SMALL = new Money[1000];	// shared instances of common amounts
+	static
+	{
+		SMALL[0] = ZERO;
+		for (int i = 1; i < SMALL.length; i++)
+			SMALL[i] = new Money(i);
+	}
+
+	private final long cents;
+
+	private Money(long cents)
+	{
+		this.cents = cents;
+	}
+
+	/**
+	 * @param cents
+	 * 			The amount in cents.
+	 *
+	 * @return the amount
+	 */
+	public static Money ofCents(long cents)
+	{
+		if (cents >= 0 && cents < SMALL.length)
+			return SMALL[(int)cents];
+		return new Money(cents);
+	}
+
+	/**
+	 * Converts an amount, rounding any fraction of a cent with
+	 * {@link #DEFAULT_ROUNDING}.
+	 *
+	 * @param amount
+	 * 			The amount in dollars.
+	 *
+	 * @return the amount
+	 */
+	public static Money of(BigDecimal amount)
+	{
+		return of(amount, DEFAULT_ROUNDING);
+	}
+
+	/**
+	 * Converts an amount, rounding any fraction of a cent.
+	 *
+	 * @param amount
+	 * 			The amount in dollars.
+	 * @param rounding
+	 * 			How to round a fraction of a cent.
+	 *
+	 * @return the amount
+	 *
+	 * @throws ArithmeticException
+	 * 			If the amount does not fit, or needs rounding and rounding is UNNECESSARY.
+	 */
+	public static Money of(BigDecimal amount, RoundingMode rounding)
+	{
+		if (amount == null || rounding == null)
+			throw new NullPointerException("arguments cannot be null");
+		return ofCents(amount.setScale(SCALE, rounding).unscaledValue().longValueExact());
+	}
+
+	/**
+	 * The price of a product sold by weight.
+	 *
+	 * @param pricePerKilogram
+	 * 			The price of one kilogram.
+	 * @param grams
+	 * 			The weight, in grams.
+	 * @param rounding
+	 * 			How to round a fraction of a cent.
+	 *
+	 * @return the price of the weight
+	 */
+	public static Money ofWeight(Money pricePerKilogram, double grams, RoundingMode rounding)
+	{
+		if (pricePerKilogram == null || rounding == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (Double.isNaN(grams) || Double.isInfinite(grams))
+			throw new ArithmeticException("weight must be finite");
+		// a milligram is far finer than any scale, so the weight is exact enough as whole milligrams
+		long milligrams = Math.round(grams * 1000);
+		return ofCents(divide(Math.multiplyExact(pricePerKilogram.cents, milligrams), 1000000, rounding));
+	}
+
+	/**
+	 * @return the amount in cents
+	 */
+	public long getCents()
+	{
+		return cents;
+	}
+
+	/**
+	 * @return the amount in dollars, with two decimal places
+	 */
+	public BigDecimal toBigDecimal()
+	{
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	public Money plus(Money other)
+	{
+		return ofCents(Math.addExact(cents, other.cents));
+	}
+
+	public Money minus(Money other)
+	{
+		return ofCents(Math.subtractExact(cents, other.cents));
+	}
+
+	public Money times(long factor)
+	{
+		return ofCents(Math.multiplyExact(cents, factor));
+	}
+
+	/**
+	 * Multiplies by a fraction, such as a tax rate or a discount in basis
+	 * points over 10000.
+	 *
+	 * @param rounding
+	 * 			How to round a fraction of a cent.
+	 */
+	public Money times(long numerator, long denominator, RoundingMode rounding)
+	{
+		if (rounding == null)
+			throw new NullPointerException("arguments cannot be null");
+		return ofCents(divide(Math.multiplyExact(cents, numerator), denominator, rounding));
+	}
+
+	public Money min(Money other)
+	{
+		return cents <= other.cents ? this : other;
+	}
+
+	public Money negate()
+	{
+		return ofCents(Math.negateExact(cents));
+	}
+
+	public Money abs()
+	{
+		return cents < 0 ? negate() : this;
+	}
+
+	/**
+	 * @return -1, 0 or 1 as this amount is below, equal to or above zero
+	 */
+	public int signum()
+	{
+		return Long.signum(cents);
+	}
+
+	public boolean isZero()
+	{
+		return cents == 0;
+	}
+
+	@Override
+	public int compareTo(Money other)
+	{
+		return Long.compare(cents, other.cents);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj instanceof Money && ((Money)obj).cents == cents;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(cents);
+	}
+
+	@Override
+	public String toString()
+	{
+		return toBigDecimal().toPlainString();
+	}
+
+	// Divides in long arithmetic, rounding the quotient as a BigDecimal would.
+	static long divide(long dividend, long divisor, RoundingMode rounding)
+	{
+		long quotient = dividend / divisor;
+		long remainder = dividend % divisor;
+		if (remainder == 0)
+			return quotient;
+		int sign = Long.signum(dividend) * Long.signum(divisor);
+		// compare the remainder with half the divisor without overflowing
+		long twice = Math.abs(remainder) - (Math.abs(divisor) - Math.abs(remainder));
+		boolean up;
+		switch (rounding)
+		{
+		case UP:
+			up = true;
+			break;
+		case DOWN:
+			up = false;
+			break;
+		case CEILING:
+			up = sign > 0;
+			break;
+		case FLOOR:
+			up = sign < 0;
+			break;
+		case HALF_UP:
+			up = twice >= 0;
+			break;
+		case HALF_DOWN:
+			up = twice > 0;
+			break;
+		case HALF_EVEN:
+			up = twice > 0 || twice == 0 && (quotient & 1) != 0;
+			break;
+		default:
+			throw new ArithmeticException("rounding necessary");
+		}
+		return up ? quotient + sign : quotient;
+	}
+}
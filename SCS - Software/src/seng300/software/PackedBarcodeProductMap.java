@@ -0,0 +1,280 @@
+package seng300.software;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+/**
+ * Read-mostly map from barcodes to products, meant for large catalogs.
+ *
+ * UPC and EAN barcodes have at most {@value #MAX_PACKED_DIGITS} digits, so
+ * each one is packed into a single long: four bits per digit, with the digit
+ * count in the top four bits so that "012" and "12" stay different keys.
+ * Keys and products sit in two parallel arrays searched by linear probing,
+ * which avoids the entry objects of a HashMap and keeps probes in the same
+ * few cache lines. Longer barcodes go into an ordinary HashMap.
+ *
+ * The map is a copy: writes to the map it was built from are not seen.
+ * Products added later must be added with {@link #put(BarcodedProduct)}.
+ *
+ * Lookups take no lock. The arrays are never changed once published: each
+ * write copies them, changes the copy and publishes it through a volatile
+ * field, so a lookup sees either the table before a write or the one after.
+ * A write therefore costs a copy of the table, which suits a catalog that is
+ * looked up on every scan and changed a few times a day.
+ */
+public class PackedBarcodeProductMap implements BarcodedProductLookup
+{
+	public static final int MAX_PACKED_DIGITS = 15;
+
+	private static final int MIN_CAPACITY = 16;
+	// 0 is never a valid key, since every key has a digit count of at least 1
+	private static final long EMPTY = 0L;
+
+	// never changed once published
+	private static final class Table
+	{
+		final long[] keys;
+		final BarcodedProduct[] values;
+		final int packedSize;
+		final Map<Barcode, BarcodedProduct> longCodes;
+		final long version;
+
+		Table(long[] keys, BarcodedProduct[] values, int packedSize, Map<Barcode, BarcodedProduct> longCodes, long version)
+		{
+			this.keys = keys;
+			this.values = values;
+			this.packedSize = packedSize;
+			this.longCodes = longCodes;
+			this.version = version;
+		}
+	}
+
+	private volatile Table table;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public PackedBarcodeProductMap()
+	{
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map with room for the given number of products.
+	 *
+	 * @param expectedSize
+	 * 			Number of products expected.
+	 */
+	public PackedBarcodeProductMap(int expectedSize)
+	{
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("expected size cannot be negative");
+		int capacity = tableSizeFor(expectedSize);
+		table = new Table(new long[capacity], new BarcodedProduct[capacity], 0, new HashMap<Barcode, BarcodedProduct>(), 0);
+	}
+
+	/**
+	 * Creates a map holding a copy of the given products.
+	 *
+	 * @param products
+	 * 			Products to copy, by barcode.
+	 *
+	 * @return the new map
+	 */
+	public static PackedBarcodeProductMap copyOf(Map<Barcode, BarcodedProduct> products)
+	{
+		if (products == null)
+			throw new NullPointerException("arguments cannot be null");
+		// filled before anyone else can see it, so without a copy per product
+		int capacity = tableSizeFor(products.size());
+		long[] keys = new long[capacity];
+		BarcodedProduct[] values = new BarcodedProduct[capacity];
+		Map<Barcode, BarcodedProduct> longCodes = new HashMap<>();
+		int packedSize = 0;
+		for (BarcodedProduct p : products.values())
+		{
+			long key = pack(p.getBarcode());
+			if (key == EMPTY)
+				longCodes.put(p.getBarcode(), p);
+			else if (insert(keys, values, key, p))
+				packedSize++;
+		}
+		PackedBarcodeProductMap map = new PackedBarcodeProductMap(0);
+		map.table = new Table(keys, values, packedSize, longCodes, products.size());
+		return map;
+	}
+
+	@Override
+	public BarcodedProduct get(Barcode barcode)
+	{
+		if (barcode == null)
+			return null;
+		Table t = table;
+		long key = pack(barcode);
+		if (key == EMPTY)
+			return t.longCodes.get(barcode);
+		long[] keys = t.keys;
+		int mask = keys.length - 1;
+		for (int i = mix(key) & mask; ; i = (i + 1) & mask)
+		{
+			long k = keys[i];
+			if (k == key)
+				return t.values[i];
+			if (k == EMPTY)
+				return null;
+		}
+	}
+
+	/**
+	 * Adds a product, replacing any product with the same barcode.
+	 *
+	 * @param product
+	 * 			The product to add.
+	 */
+	public synchronized void put(BarcodedProduct product)
+	{
+		if (product == null)
+			throw new NullPointerException("arguments cannot be null");
+		Table t = table;
+		long key = pack(product.getBarcode());
+		if (key == EMPTY)
+		{
+			Map<Barcode, BarcodedProduct> longCodes = new HashMap<>(t.longCodes);
+			longCodes.put(product.getBarcode(), product);
+			table = new Table(t.keys, t.values, t.packedSize, longCodes, t.version + 1);
+			return;
+		}
+		// keep the table at most two thirds full so probe runs stay short
+		int capacity = t.keys.length;
+		if (3 * (t.packedSize + 1) > 2 * capacity)
+			capacity *= 2;
+		long[] keys = new long[capacity];
+		BarcodedProduct[] values = new BarcodedProduct[capacity];
+		if (capacity == t.keys.length)
+		{
+			System.arraycopy(t.keys, 0, keys, 0, capacity);
+			System.arraycopy(t.values, 0, values, 0, capacity);
+		}
+		else
+		{
+			for (int i = 0; i < t.keys.length; i++)
+				if (t.keys[i] != EMPTY)
+					insert(keys, values, t.keys[i], t.values[i]);
+		}
+		int packedSize = t.packedSize;
+		if (insert(keys, values, key, product))
+			packedSize++;
+		table = new Table(keys, values, packedSize, t.longCodes, t.version + 1);
+	}
+
+	/**
+	 * Removes the product with the given barcode, if any.
+	 *
+	 * @param barcode
+	 * 			Barcode of the product to remove.
+	 *
+	 * @return the removed product, or null if there was none
+	 */
+	public synchronized BarcodedProduct remove(Barcode barcode)
+	{
+		if (barcode == null)
+			return null;
+		Table t = table;
+		long key = pack(barcode);
+		if (key == EMPTY)
+		{
+			if (!t.longCodes.containsKey(barcode))
+				return null;
+			Map<Barcode, BarcodedProduct> longCodes = new HashMap<>(t.longCodes);
+			BarcodedProduct removed = longCodes.remove(barcode);
+			table = new Table(t.keys, t.values, t.packedSize, longCodes, t.version + 1);
+			return removed;
+		}
+		int mask = t.keys.length - 1;
+		int i = mix(key) & mask;
+		while (t.keys[i] != key)
+		{
+			if (t.keys[i] == EMPTY)
+				return null;
+			i = (i + 1) & mask;
+		}
+		long[] keys = t.keys.clone();
+		BarcodedProduct[] values = t.values.clone();
+		BarcodedProduct removed = values[i];
+		// shift later entries of the probe run back so none is cut off from its home slot
+		int hole = i;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask)
+		{
+			int home = mix(keys[j]) & mask;
+			if (((j - home) & mask) >= ((j - hole) & mask))
+			{
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		keys[hole] = EMPTY;
+		values[hole] = null;
+		table = new Table(keys, values, t.packedSize - 1, t.longCodes, t.version + 1);
+		return removed;
+	}
+
+	@Override
+	public long getVersion()
+	{
+		return table.version;
+	}
+
+	/**
+	 * @return the number of products in the map
+	 */
+	public int size()
+	{
+		Table t = table;
+		return t.packedSize + t.longCodes.size();
+	}
+
+	/**
+	 * Packs a barcode into a long key.
+	 *
+	 * @return the key, or EMPTY if the barcode is too long to pack
+	 */
+	static long pack(Barcode barcode)
+	{
+		int n = barcode.digitCount();
+		if (n > MAX_PACKED_DIGITS)
+			return EMPTY;
+		// the barcode keeps its digits packed the same way, so only the count is added
+		return (long)n << 60 | barcode.getPackedDigits();
+	}
+
+	// returns true if the key was not already in the table
+	private static boolean insert(long[] keys, BarcodedProduct[] values, long key, BarcodedProduct product)
+	{
+		int mask = keys.length - 1;
+		int i = mix(key) & mask;
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		boolean added = keys[i] == EMPTY;
+		keys[i] = key;
+		values[i] = product;
+		return added;
+	}
+
+	private static int mix(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
+	private static int tableSizeFor(int expectedSize)
+	{
+		int capacity = MIN_CAPACITY;
+		while (capacity < 1 << 30 && 2 * capacity < 3 * expectedSize + 3)
+			capacity <<= 1;
+		return capacity;
+	}
+}
@@ -19,9 +19,10 @@ import org.lsmr.selfcheckout.devices.observers.BanknoteValidatorObserver;
 
 public class PayWithBanknote implements BanknoteValidatorObserver {
 	
-	private BigDecimal totalAmountPaid = new BigDecimal(0.0); 
+	private Money totalAmountPaid = Money.ZERO; 
 	
 	SelfCheckoutStation scs;
+	private Runnable paymentListener = () -> {};
 
 	public PayWithBanknote(SelfCheckoutStation scs) {
 		this.scs = scs;
@@ -29,7 +30,16 @@ public class PayWithBanknote implements BanknoteValidatorObserver {
 	}
 	
 	
+	// told of every banknote taken, so the transaction can be saved
+	void setPaymentListener(Runnable listener) {
+		this.paymentListener = listener;
+	}
+	
 	public BigDecimal amountPaid() {
+		return totalAmountPaid.toBigDecimal();
+	}
+	
+	public Money amountPaidMoney() {
 		return totalAmountPaid;
 	}
 	
@@ -40,7 +50,8 @@ public class PayWithBanknote implements BanknoteValidatorObserver {
 		if(scs.banknoteStorage.hasSpace()) {
 
 			// update the total amount paid with the value of the banknote
-			totalAmountPaid = totalAmountPaid.add(BigDecimal.valueOf(value));		 
+			totalAmountPaid = totalAmountPaid.plus(Money.ofCents(Math.multiplyExact(value, 100L)));		 
+			paymentListener.run();
 		}
 		
 	}
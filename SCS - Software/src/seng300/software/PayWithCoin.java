@@ -20,8 +20,9 @@ import org.lsmr.selfcheckout.devices.observers.CoinValidatorObserver;
 
 public class PayWithCoin implements CoinDispenserObserver {
 		
-	private BigDecimal depositedcoin = new BigDecimal(0.00);
+	private Money depositedcoin = Money.ZERO;
 	private SelfCheckoutStation scs;
+	private Runnable paymentListener = () -> {};
 
 	 
 	public PayWithCoin(SelfCheckoutStation scs) {
@@ -34,8 +35,18 @@ public class PayWithCoin implements CoinDispenserObserver {
 	     
 	}
 	
+	// told of every coin taken, so the transaction can be saved
+	void setPaymentListener(Runnable listener) {
+		this.paymentListener = listener;
+	}
+	
 	public BigDecimal amountPaid() {
 		
+		return depositedcoin.toBigDecimal();
+	}
+	
+	public Money amountPaidMoney() {
+		
 		return depositedcoin;
 	}
 	
@@ -44,7 +55,8 @@ public class PayWithCoin implements CoinDispenserObserver {
 	@Override
 	public void coinAdded(CoinDispenser dispenser, Coin coin) {
 		
-		depositedcoin = depositedcoin.add(coin.getValue());
+		depositedcoin = depositedcoin.plus(Money.of(coin.getValue()));
+		paymentListener.run();
 	}
 	
 	@Override
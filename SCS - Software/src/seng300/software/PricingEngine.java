@@ -0,0 +1,239 @@
+package seng300.software;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.products.Product;
+
+/**
+ * Works out the discounts and tax of a cart as its lines change.
+ *
+ * Rules are indexed by the codes of the products they apply to, and the
+ * engine keeps what each line was given last time along with running totals
+ * for the cart. When a line changes, only that line's rules are evaluated,
+ * and its old amounts are swapped for the new ones; when a rule is added or
+ * membership changes, only the lines the rules apply to are. The breakdown
+ * of the total is therefore ready after every scan, however big the basket
+ * or however many promotions are running.
+ *
+ * For each line, every discount applies one after another, up to the price
+ * of the line, and then tax is added on what is left. A tax class for the
+ * line's product takes the place of the tax class for every product.
+ */
+public class PricingEngine
+{
+	// what a line was given when it was last evaluated
+	private static final class Adjustment
+	{
+		final Money discount;
+		final Money tax;
+
+		Adjustment(Money discount, Money tax)
+		{
+			this.discount = discount;
+			this.tax = tax;
+		}
+	}
+
+	private final CartLineItems lineItems;
+	private final List<PricingRule> rulesForEveryLine = new ArrayList<>();
+	private final Map<Object, List<PricingRule>> rulesByCode = new HashMap<>();
+	private final Map<Object, Adjustment> adjustments = new HashMap<>();
+	private Money discounts = Money.ZERO;
+	private Money taxes = Money.ZERO;
+	private boolean member = false;
+
+	/**
+	 * @param lineItems
+	 * 			The lines of the cart. The engine reads but never writes them.
+	 */
+	public PricingEngine(CartLineItems lineItems)
+	{
+		if (lineItems == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.lineItems = lineItems;
+	}
+
+	/**
+	 * Adds a rule, and applies it to the lines already in the cart.
+	 */
+	public synchronized void addRule(PricingRule rule)
+	{
+		if (rule == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (rule.getCodes() == null)
+			rulesForEveryLine.add(rule);
+		else
+		{
+			for (Object code : rule.getCodes())
+				rulesByCode.computeIfAbsent(code, c -> new ArrayList<>(2)).add(rule);
+		}
+		reevaluate(rule);
+	}
+
+	/**
+	 * Removes a rule, and takes it off the lines already in the cart.
+	 */
+	public synchronized void removeRule(PricingRule rule)
+	{
+		if (rule == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (rule.getCodes() == null)
+			rulesForEveryLine.remove(rule);
+		else
+		{
+			for (Object code : rule.getCodes())
+			{
+				List<PricingRule> rules = rulesByCode.get(code);
+				if (rules != null && rules.remove(rule) && rules.isEmpty())
+					rulesByCode.remove(code);
+			}
+		}
+		reevaluate(rule);
+	}
+
+	/**
+	 * Sets whether the customer is a member, applying or taking off the
+	 * members only rules.
+	 */
+	public synchronized void setMember(boolean member)
+	{
+		if (this.member == member)
+			return;
+		this.member = member;
+		for (PricingRule rule : allRules())
+		{
+			if (rule.isMembersOnly())
+				reevaluate(rule);
+		}
+	}
+
+	public synchronized boolean isMember()
+	{
+		return member;
+	}
+
+	/**
+	 * Evaluates the line of a product again. Call after the line changes.
+	 */
+	public synchronized void lineChanged(Product product)
+	{
+		Object key = CartLineItems.keyOf(product);
+		evaluate(key, lineItems.lineFor(key));
+	}
+
+	/**
+	 * Forgets every line, keeping the rules. Call when the cart is emptied.
+	 */
+	public synchronized void clear()
+	{
+		adjustments.clear();
+		discounts = Money.ZERO;
+		taxes = Money.ZERO;
+		member = false;
+	}
+
+	/**
+	 * @param subtotal
+	 * 			The cart total at regular prices.
+	 *
+	 * @return the breakdown of the cart total
+	 */
+	public synchronized CartBreakdown getBreakdown(Money subtotal)
+	{
+		return new CartBreakdown(subtotal, discounts, taxes);
+	}
+
+	/**
+	 * @return the discount on the line of a product, in cents
+	 */
+	public synchronized Money getDiscount(Product product)
+	{
+		Adjustment a = adjustments.get(CartLineItems.keyOf(product));
+		return a == null ? Money.ZERO : a.discount;
+	}
+
+	/**
+	 * @return the tax on the line of a product, in cents
+	 */
+	public synchronized Money getTax(Product product)
+	{
+		Adjustment a = adjustments.get(CartLineItems.keyOf(product));
+		return a == null ? Money.ZERO : a.tax;
+	}
+
+	private List<PricingRule> allRules()
+	{
+		List<PricingRule> all = new ArrayList<>(rulesForEveryLine);
+		for (List<PricingRule> rules : rulesByCode.values())
+		{
+			for (PricingRule rule : rules)
+			{
+				if (!all.contains(rule))
+					all.add(rule);
+			}
+		}
+		return all;
+	}
+
+	// evaluates every line in the cart that a rule applies to
+	private void reevaluate(PricingRule rule)
+	{
+		if (rule.getCodes() == null)
+		{
+			for (CartLineItems.Line line : lineItems.getLines())
+				evaluate(CartLineItems.keyOf(line.getProduct()), line);
+		}
+		else
+		{
+			for (Object code : rule.getCodes())
+			{
+				CartLineItems.Line line = lineItems.lineFor(code);
+				if (line != null)
+					evaluate(code, line);
+			}
+		}
+	}
+
+	private void evaluate(Object key, CartLineItems.Line line)
+	{
+		Adjustment old = adjustments.remove(key);
+		if (old != null)
+		{
+			discounts = discounts.minus(old.discount);
+			taxes = taxes.minus(old.tax);
+		}
+		if (line == null)
+			return;
+
+		Money price = line.getTotalMoney();
+		Money discount = Money.ZERO;
+		PricingRule taxClass = null;
+		// rules for every line first, so a tax class for the product replaces the general one
+		for (int pass = 0; pass < 2; pass++)
+		{
+			List<PricingRule> rules = pass == 0 ? rulesForEveryLine : rulesByCode.get(key);
+			if (rules == null)
+				continue;
+			for (PricingRule rule : rules)
+			{
+				if (rule.isMembersOnly() && !member)
+					continue;
+				if (rule.getKind() == PricingRule.Kind.TAX)
+					taxClass = rule;
+				else if (discount.compareTo(price) < 0)
+					discount = discount.plus(rule.evaluate(line, price.minus(discount))).min(price);
+			}
+		}
+		Money tax = taxClass == null ? Money.ZERO : taxClass.evaluate(line, price.minus(discount));
+
+		if (!discount.isZero() || !tax.isZero())
+		{
+			adjustments.put(key, new Adjustment(discount, tax));
+			discounts = discounts.plus(discount);
+			taxes = taxes.plus(tax);
+		}
+	}
+}
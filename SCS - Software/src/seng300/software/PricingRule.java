@@ -0,0 +1,47 @@
+package seng300.software;
+
+import java.util.Collection;
+
+/**
+ * A tax, discount or promotion on the lines of a cart.
+ *
+ * A rule only ever looks at one line at a time, so when a line changes only
+ * the rules for that line need to be evaluated again. See
+ * {@link PricingRules} for the rules the store uses, and
+ * {@link PricingEngine} for how they are combined.
+ */
+public interface PricingRule
+{
+	enum Kind
+	{
+		/** Takes an amount off the line. Every discount for a line applies, one after another. */
+		DISCOUNT,
+		/** Adds tax to the line once discounts are taken off. Only one tax applies to a line. */
+		TAX
+	}
+
+	Kind getKind();
+
+	/**
+	 * @return the barcodes or PLU codes of the products the rule applies to,
+	 * 			or null if it applies to every product
+	 */
+	Collection<?> getCodes();
+
+	/**
+	 * @return whether the rule only applies to members
+	 */
+	boolean isMembersOnly();
+
+	/**
+	 * Works out the rule for a line.
+	 *
+	 * @param line
+	 * 			The line, with its quantity, weight and total before any rule.
+	 * @param price
+	 * 			The price of the line once the discounts before this rule are taken off.
+	 *
+	 * @return the amount taken off or added, never negative
+	 */
+	Money evaluate(CartLineItems.Line line, Money price);
+}
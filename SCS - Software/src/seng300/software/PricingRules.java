@@ -0,0 +1,232 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+/**
+ * The kinds of pricing rule the store uses. Rates are given in basis points,
+ * hundredths of a percent, so 5% is 500.
+ */
+public final class PricingRules
+{
+	/**
+	 * How taxes and percentage discounts are rounded to the cent.
+	 */
+	public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+	private PricingRules()
+	{
+	}
+
+	/**
+	 * Tax charged on the products of a tax class.
+	 */
+	public static final class TaxClass implements PricingRule
+	{
+		private final String name;
+		private final int basisPoints;
+		private final Collection<?> codes;
+
+		/**
+		 * @param name
+		 * 			Name of the tax class, e.g. "GST".
+		 * @param basisPoints
+		 * 			Tax rate.
+		 * @param codes
+		 * 			Barcodes or PLU codes of the products in the class, or null
+		 * 			for the class every other product is in.
+		 */
+		public TaxClass(String name, int basisPoints, Collection<?> codes)
+		{
+			if (name == null)
+				throw new NullPointerException("arguments cannot be null");
+			if (basisPoints < 0)
+				throw new IllegalArgumentException("rate cannot be negative");
+			this.name = name;
+			this.basisPoints = basisPoints;
+			this.codes = copy(codes);
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public Kind getKind()
+		{
+			return Kind.TAX;
+		}
+
+		@Override
+		public Collection<?> getCodes()
+		{
+			return codes;
+		}
+
+		@Override
+		public boolean isMembersOnly()
+		{
+			return false;
+		}
+
+		@Override
+		public Money evaluate(CartLineItems.Line line, Money price)
+		{
+			return price.times(basisPoints, 10000, ROUNDING);
+		}
+	}
+
+	/**
+	 * A number of items of a barcoded product for a set price, e.g. 3 for $5.
+	 * Items beyond the last full set are at the regular price.
+	 */
+	public static final class MultiBuy implements PricingRule
+	{
+		private final Collection<?> codes;
+		private final int quantity;
+		private final Money price;
+
+		public MultiBuy(Barcode barcode, int quantity, BigDecimal price)
+		{
+			if (barcode == null || price == null)
+				throw new NullPointerException("arguments cannot be null");
+			if (quantity < 2)
+				throw new IllegalArgumentException("quantity must be at least 2");
+			this.codes = Collections.singleton(barcode);
+			this.quantity = quantity;
+			this.price = Money.of(price);
+		}
+
+		@Override
+		public Kind getKind()
+		{
+			return Kind.DISCOUNT;
+		}
+
+		@Override
+		public Collection<?> getCodes()
+		{
+			return codes;
+		}
+
+		@Override
+		public boolean isMembersOnly()
+		{
+			return false;
+		}
+
+		@Override
+		public Money evaluate(CartLineItems.Line line, Money linePrice)
+		{
+			int sets = line.getQuantity() / quantity;
+			if (sets == 0)
+				return Money.ZERO;
+			Money regular = Money.of(((BarcodedProduct)line.getProduct()).getPrice()).times(quantity);
+			Money saving = regular.minus(price);
+			return saving.signum() > 0 ? saving.times(sets) : Money.ZERO;
+		}
+	}
+
+	/**
+	 * A percentage off a product sold by weight, e.g. produce near its best before date.
+	 */
+	public static final class WeightMarkdown implements PricingRule
+	{
+		private final Collection<?> codes;
+		private final int basisPoints;
+
+		public WeightMarkdown(PriceLookupCode code, int basisPoints)
+		{
+			if (code == null)
+				throw new NullPointerException("arguments cannot be null");
+			if (basisPoints < 0 || basisPoints > 10000)
+				throw new IllegalArgumentException("markdown must be between 0 and 10000");
+			this.codes = Collections.singleton(code);
+			this.basisPoints = basisPoints;
+		}
+
+		@Override
+		public Kind getKind()
+		{
+			return Kind.DISCOUNT;
+		}
+
+		@Override
+		public Collection<?> getCodes()
+		{
+			return codes;
+		}
+
+		@Override
+		public boolean isMembersOnly()
+		{
+			return false;
+		}
+
+		@Override
+		public Money evaluate(CartLineItems.Line line, Money price)
+		{
+			return price.times(basisPoints, 10000, ROUNDING);
+		}
+	}
+
+	/**
+	 * A percentage off for members, on some products or on everything.
+	 */
+	public static final class MemberDiscount implements PricingRule
+	{
+		private final Collection<?> codes;
+		private final int basisPoints;
+
+		/**
+		 * @param basisPoints
+		 * 			Discount.
+		 * @param codes
+		 * 			Barcodes or PLU codes of the products discounted, or null for every product.
+		 */
+		public MemberDiscount(int basisPoints, Collection<?> codes)
+		{
+			if (basisPoints < 0 || basisPoints > 10000)
+				throw new IllegalArgumentException("discount must be between 0 and 10000");
+			this.codes = copy(codes);
+			this.basisPoints = basisPoints;
+		}
+
+		@Override
+		public Kind getKind()
+		{
+			return Kind.DISCOUNT;
+		}
+
+		@Override
+		public Collection<?> getCodes()
+		{
+			return codes;
+		}
+
+		@Override
+		public boolean isMembersOnly()
+		{
+			return true;
+		}
+
+		@Override
+		public Money evaluate(CartLineItems.Line line, Money price)
+		{
+			return price.times(basisPoints, 10000, ROUNDING);
+		}
+	}
+
+	private static Collection<?> copy(Collection<?> codes)
+	{
+		return codes == null ? null : Collections.unmodifiableSet(new HashSet<Object>(codes));
+	}
+}
@@ -0,0 +1,131 @@
+package seng300.software;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small cache of recently used products, kept by one station in front of
+ * the shared catalog.
+ *
+ * Holds at most a fixed number of products and evicts the least recently
+ * used one when full. Every entry belongs to a stamp, the catalog version
+ * it was read from, and all entries are dropped as soon as a different
+ * stamp is seen, so a price change is never hidden by the cache.
+ */
+public class ProductCache<K, V>
+{
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final Map<K, V> entries;
+	private long stamp;
+	private long hits		= 0;
+	private long misses		= 0;
+
+	/**
+	 * Creates a cache holding up to {@link #DEFAULT_CAPACITY} products.
+	 */
+	public ProductCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a cache holding up to the given number of products.
+	 *
+	 * @param capacity
+	 * 			Most products kept at once.
+	 */
+	public ProductCache(final int capacity)
+	{
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		// access order, so iteration starts at the least recently used entry
+		entries = new LinkedHashMap<K, V>(capacity * 4 / 3 + 1, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Gets a product from the cache, counting a hit or a miss.
+	 *
+	 * @param key
+	 * 			Code of the product.
+	 * @param currentStamp
+	 * 			Current catalog version.
+	 *
+	 * @return the product, or null if it is not cached for this version
+	 */
+	public synchronized V get(K key, long currentStamp)
+	{
+		if (currentStamp != stamp)
+			reset(currentStamp);
+		V value = entries.get(key);
+		if (value == null)
+			misses++;
+		else
+			hits++;
+		return value;
+	}
+
+	/**
+	 * Adds a product read from the given catalog version.
+	 *
+	 * @param key
+	 * 			Code of the product.
+	 * @param value
+	 * 			The product.
+	 * @param currentStamp
+	 * 			Catalog version the product was read from.
+	 */
+	public synchronized void put(K key, V value, long currentStamp)
+	{
+		if (currentStamp != stamp)
+			reset(currentStamp);
+		entries.put(key, value);
+	}
+
+	/**
+	 * @return the number of products cached
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of lookups answered by the cache
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that had to go to the catalog
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Empties the cache. The hit and miss counts are kept.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	private void reset(long currentStamp)
+	{
+		entries.clear();
+		stamp = currentStamp;
+	}
+}
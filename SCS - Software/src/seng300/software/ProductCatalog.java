@@ -0,0 +1,234 @@
+package seng300.software;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.ProductDatabases;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+/**
+ * Product catalog that can be shared by any number of stations and updated
+ * while they are scanning.
+ *
+ * The catalog is held as an immutable {@link Snapshot}. Reads take the current
+ * snapshot without locking, so a station always sees one whole version of
+ * the catalog. Updates copy the current snapshot, change the copy and then
+ * publish it in a single step, so a batch of price changes is seen either
+ * entirely or not at all. Updates are made one at a time.
+ */
+public class ProductCatalog implements BarcodedProductLookup
+{
+	private final AtomicReference<Snapshot> current;
+
+	/**
+	 * Creates an empty catalog.
+	 */
+	public ProductCatalog()
+	{
+		current = new AtomicReference<Snapshot>(new Snapshot(0,
+				new HashMap<Barcode, BarcodedProduct>(), new HashMap<PriceLookupCode, PLUCodedProduct>()));
+	}
+
+	/**
+	 * Creates a catalog holding a copy of what is in the product databases now.
+	 *
+	 * @return the new catalog
+	 */
+	public static ProductCatalog fromDatabases()
+	{
+		ProductCatalog catalog = new ProductCatalog();
+		catalog.replaceAll(ProductDatabases.BARCODED_PRODUCT_DATABASE, ProductDatabases.PLU_PRODUCT_DATABASE);
+		return catalog;
+	}
+
+	/**
+	 * Getter for the current version of the catalog. Never blocks.
+	 *
+	 * @return the current snapshot
+	 */
+	public Snapshot snapshot()
+	{
+		return current.get();
+	}
+
+	@Override
+	public BarcodedProduct get(Barcode barcode)
+	{
+		return current.get().getBarcodedProduct(barcode);
+	}
+
+	@Override
+	public long getVersion()
+	{
+		return current.get().version;
+	}
+
+	/**
+	 * Finds the PLU coded product with the given code in the current version.
+	 *
+	 * @param code
+	 * 			PLU code entered.
+	 *
+	 * @return the product, or null if there is none
+	 */
+	public PLUCodedProduct get(PriceLookupCode code)
+	{
+		return current.get().getPLUCodedProduct(code);
+	}
+
+	/**
+	 * Replaces the whole catalog.
+	 *
+	 * @param barcoded
+	 * 			New barcoded products, by barcode. Copied.
+	 * @param plu
+	 * 			New PLU coded products, by PLU code. Copied.
+	 *
+	 * @return the snapshot published
+	 */
+	public synchronized Snapshot replaceAll(Map<Barcode, BarcodedProduct> barcoded,
+			Map<PriceLookupCode, PLUCodedProduct> plu)
+	{
+		if (barcoded == null || plu == null)
+			throw new NullPointerException("arguments cannot be null");
+		return publish(new HashMap<Barcode, BarcodedProduct>(barcoded),
+				new HashMap<PriceLookupCode, PLUCodedProduct>(plu));
+	}
+
+	/**
+	 * Adds products, or replaces the products with the same codes, in one update.
+	 *
+	 * @param barcoded
+	 * 			Barcoded products to add. May be empty.
+	 * @param plu
+	 * 			PLU coded products to add. May be empty.
+	 *
+	 * @return the snapshot published
+	 */
+	public synchronized Snapshot putAll(Iterable<? extends BarcodedProduct> barcoded,
+			Iterable<? extends PLUCodedProduct> plu)
+	{
+		if (barcoded == null || plu == null)
+			throw new NullPointerException("arguments cannot be null");
+		Snapshot old = current.get();
+		Map<Barcode, BarcodedProduct> newBarcoded = new HashMap<Barcode, BarcodedProduct>(old.barcoded);
+		Map<PriceLookupCode, PLUCodedProduct> newPlu = new HashMap<PriceLookupCode, PLUCodedProduct>(old.plu);
+		for (BarcodedProduct p : barcoded)
+			newBarcoded.put(p.getBarcode(), p);
+		for (PLUCodedProduct p : plu)
+			newPlu.put(p.getPLUCode(), p);
+		return publish(newBarcoded, newPlu);
+	}
+
+	/**
+	 * Changes the prices of many products in one update. Either every price
+	 * changes or, if any code is not in the catalog, none do.
+	 *
+	 * @param barcodedPrices
+	 * 			New prices of barcoded products, by barcode. May be empty.
+	 * @param pluPrices
+	 * 			New prices of PLU coded products, by PLU code. May be empty.
+	 *
+	 * @return the snapshot published
+	 *
+	 * @throws IllegalArgumentException
+	 * 			If a code is not in the catalog.
+	 */
+	public synchronized Snapshot updatePrices(Map<Barcode, BigDecimal> barcodedPrices,
+			Map<PriceLookupCode, BigDecimal> pluPrices)
+	{
+		if (barcodedPrices == null || pluPrices == null)
+			throw new NullPointerException("arguments cannot be null");
+		Snapshot old = current.get();
+		Map<Barcode, BarcodedProduct> newBarcoded = new HashMap<Barcode, BarcodedProduct>(old.barcoded);
+		Map<PriceLookupCode, PLUCodedProduct> newPlu = new HashMap<PriceLookupCode, PLUCodedProduct>(old.plu);
+		for (Map.Entry<Barcode, BigDecimal> e : barcodedPrices.entrySet())
+		{
+			BarcodedProduct p = newBarcoded.get(e.getKey());
+			if (p == null)
+				throw new IllegalArgumentException("no product with barcode " + e.getKey());
+			newBarcoded.put(p.getBarcode(),
+					new BarcodedProduct(p.getBarcode(), p.getDescription(), e.getValue(), p.getExpectedWeight()));
+		}
+		for (Map.Entry<PriceLookupCode, BigDecimal> e : pluPrices.entrySet())
+		{
+			PLUCodedProduct p = newPlu.get(e.getKey());
+			if (p == null)
+				throw new IllegalArgumentException("no product with PLU code " + e.getKey());
+			newPlu.put(p.getPLUCode(), new PLUCodedProduct(p.getPLUCode(), p.getDescription(), e.getValue()));
+		}
+		return publish(newBarcoded, newPlu);
+	}
+
+	// Caller holds the lock on this catalog, so versions are handed out in order.
+	private Snapshot publish(Map<Barcode, BarcodedProduct> barcoded, Map<PriceLookupCode, PLUCodedProduct> plu)
+	{
+		Snapshot next = new Snapshot(current.get().version + 1, barcoded, plu);
+		current.set(next);
+		return next;
+	}
+
+	/**
+	 * One version of the catalog. Never changes once published.
+	 */
+	public static final class Snapshot
+	{
+		private final long version;
+		private final Map<Barcode, BarcodedProduct> barcoded;
+		private final Map<PriceLookupCode, PLUCodedProduct> plu;
+
+		private Snapshot(long version, Map<Barcode, BarcodedProduct> barcoded,
+				Map<PriceLookupCode, PLUCodedProduct> plu)
+		{
+			this.version = version;
+			this.barcoded = barcoded;
+			this.plu = plu;
+		}
+
+		/**
+		 * @return the version number, larger for every update
+		 */
+		public long getVersion()
+		{
+			return version;
+		}
+
+		/**
+		 * @return the product with the given barcode, or null if there is none
+		 */
+		public BarcodedProduct getBarcodedProduct(Barcode barcode)
+		{
+			return barcoded.get(barcode);
+		}
+
+		/**
+		 * @return the product with the given PLU code, or null if there is none
+		 */
+		public PLUCodedProduct getPLUCodedProduct(PriceLookupCode code)
+		{
+			return plu.get(code);
+		}
+
+		/**
+		 * @return a read-only view of the barcoded products
+		 */
+		public Map<Barcode, BarcodedProduct> getBarcodedProducts()
+		{
+			return Collections.unmodifiableMap(barcoded);
+		}
+
+		/**
+		 * @return a read-only view of the PLU coded products
+		 */
+		public Map<PriceLookupCode, PLUCodedProduct> getPLUCodedProducts()
+		{
+			return Collections.unmodifiableMap(plu);
+		}
+	}
+}
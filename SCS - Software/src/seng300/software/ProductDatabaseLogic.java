@@ -5,7 +5,12 @@ package seng300.software;
  * for testing purposes.
  */
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.lsmr.selfcheckout.Barcode;
 import org.lsmr.selfcheckout.PriceLookupCode;
 import org.lsmr.selfcheckout.external.ProductDatabases;
@@ -19,6 +24,37 @@ import seng300.software.exceptions.ProductNotFoundException;
 
 public class ProductDatabaseLogic{
 	
+	// shared by every station, since they all read the same product databases
+	private static final ProductLookupIndex PLU_LOOKUP_INDEX = new ProductLookupIndex(ProductDatabases.PLU_PRODUCT_DATABASE);
+	private static final ProductSearchIndex PLU_SEARCH_INDEX = new ProductSearchIndex(ProductDatabases.PLU_PRODUCT_DATABASE);
+	// the same indexes over the PLU products of the catalog in use, for the version they were built from
+	private static volatile CatalogIndexes catalogIndexes = null;
+	
+	// reads the shared database directly unless a station installs something faster
+	private static final BarcodedProductLookup DATABASE_LOOKUP = new DatabaseLookup();
+	private static volatile BarcodedProductLookup barcodedLookup = DATABASE_LOOKUP;
+	// when set, PLU codes are resolved against the catalog instead of the database
+	private static volatile ProductCatalog catalog = null;
+	
+	// builds the shared indexes in the background while stations start up
+	private static final ExecutorService WARM_UP_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "catalog-warm-up");
+		t.setDaemon(true);
+		return t;
+	});
+	private static Future<?> warmUp = null;
+	
+	// codes recently scanned or entered that are not in the catalog
+	private static final MissCache<Barcode> BARCODE_MISSES = new MissCache<Barcode>(256);
+	private static final MissCache<PriceLookupCode> PLU_MISSES = new MissCache<PriceLookupCode>(64);
+	
+	// products this station used recently, whichever lookup they came from;
+	// every lookup has a version that changes with its products, so an edit is never hidden
+	private final ProductCache<Barcode, BarcodedProduct> barcodeCache = new ProductCache<Barcode, BarcodedProduct>();
+	private final ProductCache<PriceLookupCode, PLUCodedProduct> pluCache = new ProductCache<PriceLookupCode, PLUCodedProduct>();
+	private BarcodedProductLookup barcodeCacheSource = null;
+	private Object pluCacheSource = null;	// the catalog, or the PLU database
+	
 	public ProductDatabaseLogic() {}
 
 	/**
@@ -40,9 +76,42 @@ public class ProductDatabaseLogic{
 	 */
 	public BarcodedProduct getProduct(Barcode barcode) throws ProductNotFoundException
 	{
-		if (!ProductDatabases.BARCODED_PRODUCT_DATABASE.containsKey(barcode))
-			throw new ProductNotFoundException();
-    return ProductDatabases.BARCODED_PRODUCT_DATABASE.get(barcode);
+		return findProduct(barcode).orElseThrow(ProductNotFoundException::new);
+	}
+	
+	/**
+	 * Finds the BarcodedProduct with the specified barcode, without throwing
+	 * if there is none. Products this station found recently are answered
+	 * from its own cache, and unknown barcodes scanned again from a small
+	 * shared cache of recent misses, both until the products change.
+	 * 
+	 * @param barcode
+	 * 			The barcode for the desired product.
+	 * 
+	 * @return The product, or an empty Optional if there is none.
+	 */
+	public Optional<BarcodedProduct> findProduct(Barcode barcode)
+	{
+		if (barcode == null)
+			return Optional.empty();
+		BarcodedProductLookup lookup = barcodedLookup;
+		long version = lookup.getVersion();
+		if (lookup != barcodeCacheSource)
+		{
+			barcodeCache.clear();
+			barcodeCacheSource = lookup;
+		}
+		BarcodedProduct hit = barcodeCache.get(barcode, version);
+		if (hit != null)
+			return Optional.of(hit);
+		if (BARCODE_MISSES.contains(barcode, version))
+			return Optional.empty();
+		BarcodedProduct product = lookup.get(barcode);
+		if (product == null)
+			BARCODE_MISSES.add(barcode, version);
+		else
+			barcodeCache.put(barcode, product, version);
+		return Optional.ofNullable(product);
 	}
 	
 	
@@ -56,10 +125,264 @@ public class ProductDatabaseLogic{
 	 */
 	public PLUCodedProduct getPLUCodedProduct(PriceLookupCode PLUCode) throws ProductNotFoundException
 	{
-		if (!ProductDatabases.PLU_PRODUCT_DATABASE.containsKey(PLUCode))
-			throw new ProductNotFoundException();
+		return findPLUCodedProduct(PLUCode).orElseThrow(ProductNotFoundException::new);
+	}
+	
+	/**
+	 * Finds the PLUCodedProduct with the specified PLUCode, without throwing
+	 * if there is none.
+	 * 
+	 * @param PLUCode
+	 * 			The PriceLookupCode for the desired product.
+	 * 
+	 * @return The product, or an empty Optional if there is none.
+	 */
+	public Optional<PLUCodedProduct> findPLUCodedProduct(PriceLookupCode PLUCode)
+	{
+		if (PLUCode == null)
+			return Optional.empty();
+		ProductCatalog c = catalog;
+		long version = c != null ? c.getVersion() : ProductDatabases.PLU_PRODUCT_DATABASE.getVersion();
+		Object source = c != null ? c : ProductDatabases.PLU_PRODUCT_DATABASE;
+		if (source != pluCacheSource)
+		{
+			pluCache.clear();
+			pluCacheSource = source;
+		}
+		PLUCodedProduct hit = pluCache.get(PLUCode, version);
+		if (hit != null)
+			return Optional.of(hit);
+		if (PLU_MISSES.contains(PLUCode, version))
+			return Optional.empty();
+		PLUCodedProduct product = c != null ? c.get(PLUCode) : ProductDatabases.PLU_PRODUCT_DATABASE.get(PLUCode);
+		if (product == null)
+			PLU_MISSES.add(PLUCode, version);
+		else
+			pluCache.put(PLUCode, product, version);
+		return Optional.ofNullable(product);
+	}
+	
+	/**
+	 * @return the number of lookups answered by this station's product cache
+	 */
+	public long getCacheHits()
+	{
+		return barcodeCache.getHits() + pluCache.getHits();
+	}
+	
+	/**
+	 * @return the number of lookups that missed this station's product cache
+	 */
+	public long getCacheMisses()
+	{
+		return barcodeCache.getMisses() + pluCache.getMisses();
+	}
+	
+	/**
+	 * Adds a PLUCodedProduct to the database and to the description index.
+	 * 
+	 * @param product
+	 * 			The product to add. Replaces any product with the same PLU code.
+	 */
+	public void addPLUCodedProduct(PLUCodedProduct product)
+	{
+		ProductDatabases.PLU_PRODUCT_DATABASE.put(product.getPLUCode(), product);
+		PLU_LOOKUP_INDEX.add(product);
+		PLU_SEARCH_INDEX.invalidate();
+	}
+	
+	/**
+	 * Removes a PLUCodedProduct from the database and from the description index.
+	 * 
+	 * @param PLUCode
+	 * 			The PriceLookupCode of the product to remove.
+	 */
+	public void removePLUCodedProduct(PriceLookupCode PLUCode)
+	{
+		ProductDatabases.PLU_PRODUCT_DATABASE.remove(PLUCode);
+		PLU_LOOKUP_INDEX.remove(PLUCode);
+		PLU_SEARCH_INDEX.invalidate();
+	}
+	
+	/**
+	 * Finds every PLUCodedProduct whose description starts with the given text.
+	 * 
+	 * @param description
+	 * 			Start of the description to search for. Case is ignored.
+	 * 
+	 * @return Matching products, sorted by description.
+	 */
+	public List<PLUCodedProduct> lookUpPLUCodedProducts(String description)
+	{
+		return getLookupIndex().lookUp(description);
+	}
+	
+	/**
+	 * Finds the PLUCodedProducts whose descriptions best match the words of a
+	 * query, in any order and allowing for small typing mistakes.
+	 * 
+	 * @param query
+	 * 			Words to search for. Case is ignored.
+	 * @param limit
+	 * 			Most products to return.
+	 * 
+	 * @return Matching products, best first.
+	 */
+	public List<PLUCodedProduct> searchPLUCodedProducts(String query, int limit)
+	{
+		return getSearchIndex().search(query, limit);
+	}
+	
+	/**
+	 * Starts a type-ahead search over product descriptions.
+	 * 
+	 * @return a new, empty search session
+	 */
+	public ProductSearchSession newSearchSession()
+	{
+		return new ProductSearchSession(getLookupIndex());
+	}
+	
+	/**
+	 * Changes how barcoded products are found by every station.
+	 * 
+	 * @param lookup
+	 * 			The lookup to use, e.g. a {@link PackedBarcodeProductMap} built
+	 * 			from a fixed catalog. Null goes back to reading the product database.
+	 */
+	public static void setBarcodedProductLookup(BarcodedProductLookup lookup)
+	{
+		barcodedLookup = lookup == null ? DATABASE_LOOKUP : lookup;
+		BARCODE_MISSES.clear();
+	}
+	
+	/**
+	 * Makes every station find barcoded and PLU coded products in the given
+	 * catalog, so updates published to it are seen by all stations at once.
+	 * Description lookups and searches are then over the catalog's PLU coded
+	 * products too, and are rebuilt when it is updated.
+	 * 
+	 * @param productCatalog
+	 * 			The catalog to use. Null goes back to reading the product databases.
+	 */
+	public static void useCatalog(ProductCatalog productCatalog)
+	{
+		catalog = productCatalog;
+		catalogIndexes = null;
+		PLU_MISSES.clear();
+		setBarcodedProductLookup(productCatalog);
+	}
+	
+	/**
+	 * @return the catalog in use, or null if the product databases are read directly
+	 */
+	public static ProductCatalog getCatalog()
+	{
+		return catalog;
+	}
+	
+	/**
+	 * @return the lookup currently used to find barcoded products
+	 */
+	public static BarcodedProductLookup getBarcodedProductLookup()
+	{
+		return barcodedLookup;
+	}
+	
+	/**
+	 * Brings the shared description and word indexes up to date on a
+	 * background thread, so the first search on a station does not have to.
+	 * Stations starting up together share one warm-up.
+	 * 
+	 * @return the warm-up, which may already be done
+	 */
+	public static synchronized Future<?> warmUp()
+	{
+		if (warmUp == null || warmUp.isDone())
+		{
+			warmUp = WARM_UP_EXECUTOR.submit(() -> {
+				getLookupIndex().size(); // rebuilds if the products changed
+				getSearchIndex().prepare();
+			});
+		}
+		return warmUp;
+	}
+	
+	/**
+	 * @return the word search index shared by all stations, over the catalog
+	 * 			in use if there is one
+	 */
+	public static ProductSearchIndex getSearchIndex()
+	{
+		ProductCatalog c = catalog;
+		return c == null ? PLU_SEARCH_INDEX : catalogIndexes(c).search;
+	}
+	
+	/**
+	 * @return the description index shared by all stations, over the catalog
+	 * 			in use if there is one
+	 */
+	public static ProductLookupIndex getLookupIndex()
+	{
+		ProductCatalog c = catalog;
+		return c == null ? PLU_LOOKUP_INDEX : catalogIndexes(c).lookup;
+	}
+	
+	// the indexes for the current version of the catalog, built on first use;
+	// a version never changes, so they are never updated, only replaced
+	private static CatalogIndexes catalogIndexes(ProductCatalog c)
+	{
+		ProductCatalog.Snapshot snapshot = c.snapshot();
+		CatalogIndexes indexes = catalogIndexes;
+		if (indexes != null && indexes.snapshot == snapshot)
+			return indexes;
+		synchronized (CatalogIndexes.class)
+		{
+			indexes = catalogIndexes;
+			if (indexes == null || indexes.snapshot != snapshot)
+			{
+				indexes = new CatalogIndexes(snapshot);
+				catalogIndexes = indexes;
+			}
+			return indexes;
+		}
+	}
+	
+	/**
+	 * Description and word indexes over the PLU coded products of one
+	 * version of a catalog.
+	 */
+	private static final class CatalogIndexes
+	{
+		final ProductCatalog.Snapshot snapshot;
+		final ProductLookupIndex lookup;
+		final ProductSearchIndex search;
+		
+		CatalogIndexes(ProductCatalog.Snapshot snapshot)
+		{
+			this.snapshot = snapshot;
+			this.lookup = new ProductLookupIndex(snapshot.getPLUCodedProducts());
+			this.search = new ProductSearchIndex(snapshot.getPLUCodedProducts());
+		}
+	}
+	
+	/**
+	 * Reads the shared barcoded product database, whose version changes with
+	 * every write to it.
+	 */
+	private static class DatabaseLookup implements BarcodedProductLookup
+	{
+		@Override
+		public BarcodedProduct get(Barcode barcode)
+		{
+			return ProductDatabases.BARCODED_PRODUCT_DATABASE.get(barcode);
+		}
 		
-		return ProductDatabases.PLU_PRODUCT_DATABASE.get(PLUCode);
+		@Override
+		public long getVersion()
+		{
+			return ProductDatabases.BARCODED_PRODUCT_DATABASE.getVersion();
+		}
 	}
 	
 }
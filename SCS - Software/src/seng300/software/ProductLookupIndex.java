@@ -0,0 +1,276 @@
+package seng300.software;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.VersionedMap;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+/**
+ * Prefix index over the descriptions of PLU coded products.
+ *
+ * Keeps the lowercased descriptions in a sorted array so a prefix search
+ * is a binary search for the first match followed by a walk over the
+ * matching run. Results therefore come back already sorted by description.
+ *
+ * The index is built once from its backing map and then updated one product
+ * at a time through {@link #add(PLUCodedProduct)} and {@link #remove(PriceLookupCode)},
+ * which should be called after the backing map itself has been updated.
+ * If the backing map is written to directly (e.g., by the demo or the tests),
+ * the change is noticed on the next search and the index is rebuilt. Only a
+ * {@link VersionedMap} reports every change; for any other map only a change
+ * in size is noticed, so replacing a product there needs {@link #add(PLUCodedProduct)}
+ * or {@link #rebuild()}.
+ */
+public class ProductLookupIndex
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<PriceLookupCode, PLUCodedProduct> source;
+	private final Map<PriceLookupCode, PLUCodedProduct> indexed = new HashMap<>();
+
+	private String[] keys				= new String[INITIAL_CAPACITY];
+	private PLUCodedProduct[] products	= new PLUCodedProduct[INITIAL_CAPACITY];
+	private int size					= 0;
+	private int version					= 0;
+	private long sourceVersion			= 0;	// version of a VersionedMap source when last in step with it
+
+	/**
+	 * Creates an index over the given products.
+	 *
+	 * @param source
+	 * 			Products to index, by PLU code. The index reads but never writes this map.
+	 */
+	public ProductLookupIndex(Map<PriceLookupCode, PLUCodedProduct> source)
+	{
+		if (source == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.source = source;
+		rebuild();
+	}
+
+	/**
+	 * Finds every product whose description starts with the given text,
+	 * ignoring case.
+	 *
+	 * @param prefix
+	 * 			Text the description should start with.
+	 *
+	 * @return Matching products, sorted by description. Never null.
+	 */
+	public synchronized List<PLUCodedProduct> lookUp(String prefix)
+	{
+		syncWithSource();
+		String key = normalize(prefix);
+		int lo = lowerBound(key, 0, size);
+		int hi = upperBound(key, lo, size);
+		List<PLUCodedProduct> found = new ArrayList<PLUCodedProduct>(hi - lo);
+		for (int i = lo; i < hi; i++)
+			found.add(products[i]);
+		return found;
+	}
+
+	/**
+	 * Adds a product to the index, replacing any product with the same PLU code.
+	 *
+	 * @param product
+	 * 			The product to add.
+	 */
+	public synchronized void add(PLUCodedProduct product)
+	{
+		removeCode(product.getPLUCode());
+		insert(product);
+		version++;
+		followedWrite();
+	}
+
+	/**
+	 * Removes the product with the given PLU code, if indexed.
+	 *
+	 * @param code
+	 * 			PLU code of the product to remove.
+	 */
+	public synchronized void remove(PriceLookupCode code)
+	{
+		if (removeCode(code))
+		{
+			version++;
+			followedWrite();
+		}
+	}
+
+	/**
+	 * @return the number of products in the index
+	 */
+	public synchronized int size()
+	{
+		syncWithSource();
+		return size;
+	}
+
+	/**
+	 * Getter for the index version. The version changes every time the
+	 * contents of the index change, so it can be used to tell whether
+	 * positions handed out earlier are still valid.
+	 *
+	 * @return the current version
+	 */
+	public synchronized int getVersion()
+	{
+		syncWithSource();
+		return version;
+	}
+
+	/**
+	 * Throws the index away and builds it again from the backing map.
+	 */
+	public synchronized void rebuild()
+	{
+		if (source instanceof VersionedMap)
+			sourceVersion = ((VersionedMap<?, ?>)source).getVersion();
+		int n = source.size();
+		String[] newKeys = new String[Math.max(n, INITIAL_CAPACITY)];
+		PLUCodedProduct[] newProducts = new PLUCodedProduct[newKeys.length];
+		Integer[] order = new Integer[n];
+		int i = 0;
+		indexed.clear();
+		for (PLUCodedProduct p : source.values())
+		{
+			indexed.put(p.getPLUCode(), p);
+			newKeys[i] = normalize(p.getDescription());
+			newProducts[i] = p;
+			order[i] = i;
+			i++;
+		}
+		Arrays.sort(order, (a, b) -> compare(newKeys[a], newProducts[a], newKeys[b], newProducts[b]));
+		keys = new String[newKeys.length];
+		products = new PLUCodedProduct[newKeys.length];
+		for (i = 0; i < n; i++)
+		{
+			keys[i] = newKeys[order[i]];
+			products[i] = newProducts[order[i]];
+		}
+		size = n;
+		version++;
+	}
+
+	// Positional access, used by search sessions to narrow a previous range
+	// without copying it. Callers must hold the lock on this index.
+
+	int lowerBound(String key, int lo, int hi)
+	{
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(key) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	int upperBound(String prefix, int lo, int hi)
+	{
+		// first position at or after lo whose key does not start with prefix
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].startsWith(prefix))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	PLUCodedProduct productAt(int i)
+	{
+		return products[i];
+	}
+
+	void syncWithSource()
+	{
+		if (source instanceof VersionedMap ? ((VersionedMap<?, ?>)source).getVersion() != sourceVersion : source.size() != size)
+			rebuild();
+	}
+
+	// The index has just been updated for one write to the backing map. If
+	// that is the only write since the index was last in step, it still is.
+	private void followedWrite()
+	{
+		if (source instanceof VersionedMap && ((VersionedMap<?, ?>)source).getVersion() == sourceVersion + 1)
+			sourceVersion++;
+	}
+
+	private void insert(PLUCodedProduct product)
+	{
+		String key = normalize(product.getDescription());
+		int lo = position(key, product);
+		if (size == keys.length)
+		{
+			keys = Arrays.copyOf(keys, size * 2);
+			products = Arrays.copyOf(products, size * 2);
+		}
+		System.arraycopy(keys, lo, keys, lo + 1, size - lo);
+		System.arraycopy(products, lo, products, lo + 1, size - lo);
+		keys[lo] = key;
+		products[lo] = product;
+		size++;
+		indexed.put(product.getPLUCode(), product);
+	}
+
+	private boolean removeCode(PriceLookupCode code)
+	{
+		PLUCodedProduct old = indexed.remove(code);
+		if (old == null)
+			return false;
+		int i = position(normalize(old.getDescription()), old);
+		System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+		System.arraycopy(products, i + 1, products, i, size - i - 1);
+		size--;
+		keys[size] = null;
+		products[size] = null;
+		return true;
+	}
+
+	// first position whose entry does not sort before the given one
+	private int position(String key, PLUCodedProduct product)
+	{
+		int lo = 0;
+		int hi = size;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (compare(keys[mid], products[mid], key, product) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Lowercases text one character at a time, so every character of the
+	 * input maps to exactly one character of the key.
+	 */
+	static String normalize(String text)
+	{
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(chars[i]);
+		return new String(chars);
+	}
+
+	private static int compare(String keyA, PLUCodedProduct a, String keyB, PLUCodedProduct b)
+	{
+		int c = keyA.compareTo(keyB);
+		if (c != 0)
+			return c;
+		return a.getPLUCode().toString().compareTo(b.getPLUCode().toString());
+	}
+}
@@ -0,0 +1,373 @@
+package seng300.software;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.external.VersionedMap;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+/**
+ * Word search over the descriptions of PLU coded products.
+ *
+ * Descriptions are split into lowercase words, and each distinct word keeps
+ * the list of products it appears in. A query is split the same way and each
+ * of its words is matched against the words of the catalog, either exactly,
+ * as the start of a word, or within a small number of typing mistakes
+ * (missing, extra, wrong or swapped letters), so "red peper" still finds
+ * "Pepper Red Sweet".
+ *
+ * Products are ranked first by how many words of the query they match, then
+ * by how closely they match them, and only the best few are returned.
+ *
+ * Like {@link ProductLookupIndex}, the index is built from a backing map and
+ * rebuilt when the map changes, or when {@link #invalidate()} is called. Every
+ * write to a {@link VersionedMap} is noticed; for any other map only a change
+ * in size is.
+ */
+public class ProductSearchIndex
+{
+	private static final int EXACT_SCORE	= 10;
+	private static final int PREFIX_SCORE	= 6;
+	private static final int TYPO_SCORE		= 8;	// less 3 per mistake
+
+	private final Map<PriceLookupCode, PLUCodedProduct> source;
+
+	private PLUCodedProduct[] products	= new PLUCodedProduct[0];
+	private String[] words				= new String[0];	// sorted, distinct
+	private int[][] postings			= new int[0][];		// products containing each word
+	private int[] alphabetical			= new int[0];		// position of each product sorted by description
+	private int[][] wordsOfLength		= new int[0][];		// words grouped by length, for typo matching
+	private boolean stale				= true;
+	private long sourceVersion			= 0;	// version of a VersionedMap source when built
+
+	// per search scratch, sized to the number of products
+	private int[] totalScore	= new int[0];
+	private int[] wordsMatched	= new int[0];
+	private int[] bestForWord	= new int[0];
+	private int[] touched		= new int[0];
+	private int[] seenIn		= new int[0];	// number of the last search that touched each product
+	private int[] wordTouched	= new int[0];	// products matching the current query word
+	private int[] wordSeenIn	= new int[0];	// number of the last query word that touched each product
+	private int searches		= 0;
+	private int queryWords		= 0;
+
+	/**
+	 * Creates a search index over the given products.
+	 *
+	 * @param source
+	 * 			Products to index, by PLU code. The index reads but never writes this map.
+	 */
+	public ProductSearchIndex(Map<PriceLookupCode, PLUCodedProduct> source)
+	{
+		if (source == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.source = source;
+	}
+
+	/**
+	 * Finds the products that best match the words of a query.
+	 *
+	 * @param query
+	 * 			Words to look for, in any order. Case is ignored.
+	 * @param limit
+	 * 			Most products to return.
+	 *
+	 * @return Matching products, best first. Never null.
+	 */
+	public synchronized List<PLUCodedProduct> search(String query, int limit)
+	{
+		if (query == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (limit <= 0)
+			return new ArrayList<PLUCodedProduct>(0);
+		prepare();
+
+		searches++;
+		int touchedCount = 0;
+		for (String queryWord : tokenize(query))
+		{
+			queryWords++;
+			int wordCount = scoreWord(queryWord);
+			// add each product's best match for this word, and get ready for the next word
+			for (int i = 0; i < wordCount; i++)
+			{
+				int id = wordTouched[i];
+				totalScore[id] += bestForWord[id];
+				wordsMatched[id]++;
+				bestForWord[id] = 0;
+				if (seenIn[id] != searches)
+				{
+					seenIn[id] = searches;
+					touched[touchedCount++] = id;
+				}
+			}
+		}
+
+		int[] best = new int[Math.min(limit, touchedCount)];
+		int found = 0;
+		for (int i = 0; i < touchedCount; i++)
+		{
+			int id = touched[i];
+			int pos = found;
+			while (pos > 0 && better(id, best[pos - 1]))
+				pos--;
+			if (pos < best.length)
+			{
+				int end = Math.min(found, best.length - 1);
+				System.arraycopy(best, pos, best, pos + 1, end - pos);
+				best[pos] = id;
+				if (found < best.length)
+					found++;
+			}
+		}
+
+		List<PLUCodedProduct> results = new ArrayList<PLUCodedProduct>(found);
+		for (int i = 0; i < found; i++)
+			results.add(products[best[i]]);
+		for (int i = 0; i < touchedCount; i++)
+		{
+			totalScore[touched[i]] = 0;
+			wordsMatched[touched[i]] = 0;
+		}
+		return results;
+	}
+
+	/**
+	 * Rebuilds the index now if it is out of date, instead of on the next search.
+	 */
+	public synchronized void prepare()
+	{
+		if (stale || source.size() != products.length
+				|| source instanceof VersionedMap && ((VersionedMap<?, ?>)source).getVersion() != sourceVersion)
+			rebuild();
+	}
+
+	/**
+	 * Marks the index out of date, so it is rebuilt before the next search.
+	 * Call after changing the backing map.
+	 */
+	public synchronized void invalidate()
+	{
+		stale = true;
+	}
+
+	/**
+	 * Throws the index away and builds it again from the backing map.
+	 */
+	public synchronized void rebuild()
+	{
+		if (source instanceof VersionedMap)
+			sourceVersion = ((VersionedMap<?, ?>)source).getVersion();
+		PLUCodedProduct[] newProducts = source.values().toArray(new PLUCodedProduct[0]);
+		Map<String, List<Integer>> byWord = new TreeMap<String, List<Integer>>();
+		for (int id = 0; id < newProducts.length; id++)
+		{
+			for (String word : tokenize(newProducts[id].getDescription()))
+			{
+				List<Integer> ids = byWord.get(word);
+				if (ids == null)
+				{
+					ids = new ArrayList<Integer>(2);
+					byWord.put(word, ids);
+				}
+				// the same word twice in a description is listed once
+				if (ids.isEmpty() || ids.get(ids.size() - 1) != id)
+					ids.add(id);
+			}
+		}
+		String[] newWords = new String[byWord.size()];
+		int[][] newPostings = new int[byWord.size()][];
+		int w = 0;
+		for (Map.Entry<String, List<Integer>> e : byWord.entrySet())
+		{
+			newWords[w] = e.getKey();
+			List<Integer> ids = e.getValue();
+			newPostings[w] = new int[ids.size()];
+			for (int i = 0; i < ids.size(); i++)
+				newPostings[w][i] = ids.get(i);
+			w++;
+		}
+		Integer[] order = new Integer[newProducts.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> newProducts[a].getDescription().compareToIgnoreCase(newProducts[b].getDescription()));
+		int[] newAlphabetical = new int[newProducts.length];
+		for (int i = 0; i < order.length; i++)
+			newAlphabetical[order[i]] = i;
+
+		int longest = 0;
+		for (String word : newWords)
+			longest = Math.max(longest, word.length());
+		int[] lengthCounts = new int[longest + 1];
+		for (String word : newWords)
+			lengthCounts[word.length()]++;
+		int[][] newWordsOfLength = new int[longest + 1][];
+		for (int length = 0; length <= longest; length++)
+			newWordsOfLength[length] = new int[lengthCounts[length]];
+		for (w = newWords.length - 1; w >= 0; w--)
+		{
+			int length = newWords[w].length();
+			newWordsOfLength[length][--lengthCounts[length]] = w;
+		}
+
+		products = newProducts;
+		alphabetical = newAlphabetical;
+		wordsOfLength = newWordsOfLength;
+		words = newWords;
+		postings = newPostings;
+		totalScore = new int[products.length];
+		wordsMatched = new int[products.length];
+		bestForWord = new int[products.length];
+		touched = new int[products.length];
+		seenIn = new int[products.length];
+		wordTouched = new int[products.length];
+		wordSeenIn = new int[products.length];
+		searches = 0;
+		queryWords = 0;
+		stale = false;
+	}
+
+	// Gives every product containing a word that matches the query word its
+	// best score for the query word, listing them in wordTouched.
+	// Returns how many were listed.
+	private int scoreWord(String queryWord)
+	{
+		int count = 0;
+		int maxEdits = maxEdits(queryWord.length());
+
+		// words starting with the query word are one sorted run
+		int lo = Arrays.binarySearch(words, queryWord);
+		boolean exact = lo >= 0;
+		if (!exact)
+			lo = -lo - 1;
+		for (int w = lo; w < words.length && words[w].startsWith(queryWord); w++)
+			count = mark(w, exact && w == lo ? EXACT_SCORE : PREFIX_SCORE, count);
+
+		if (maxEdits > 0)
+		{
+			int[] older = new int[queryWord.length() + maxEdits + 1];
+			int[] previous = new int[older.length];
+			int[] current = new int[older.length];
+			// only words within maxEdits of the query word's length can be close enough
+			int shortest = queryWord.length() - maxEdits;
+			int longest = Math.min(queryWord.length() + maxEdits, wordsOfLength.length - 1);
+			for (int length = shortest; length <= longest; length++)
+			{
+				for (int w : wordsOfLength[length])
+				{
+					String word = words[w];
+					if (word.startsWith(queryWord))
+						continue;
+					int edits = distance(queryWord, word, maxEdits, older, previous, current);
+					if (edits <= maxEdits)
+						count = mark(w, TYPO_SCORE - 3 * edits, count);
+				}
+			}
+		}
+		return count;
+	}
+
+	private int mark(int word, int score, int count)
+	{
+		for (int id : postings[word])
+		{
+			if (wordSeenIn[id] != queryWords)
+			{
+				wordSeenIn[id] = queryWords;
+				wordTouched[count++] = id;
+			}
+			if (score > bestForWord[id])
+				bestForWord[id] = score;
+		}
+		return count;
+	}
+
+	private boolean better(int a, int b)
+	{
+		if (wordsMatched[a] != wordsMatched[b])
+			return wordsMatched[a] > wordsMatched[b];
+		if (totalScore[a] != totalScore[b])
+			return totalScore[a] > totalScore[b];
+		return alphabetical[a] < alphabetical[b];
+	}
+
+	/**
+	 * Number of typing mistakes forgiven in a query word of the given length.
+	 * Short words are matched exactly, or else almost everything would match.
+	 */
+	static int maxEdits(int length)
+	{
+		if (length < 4)
+			return 0;
+		if (length < 8)
+			return 1;
+		return 2;
+	}
+
+	/**
+	 * Edit distance between two words, counting two swapped neighbouring
+	 * letters as one mistake, and giving up early once it is certain to be
+	 * more than max.
+	 *
+	 * @return the distance, or max + 1 if it is more than max
+	 */
+	static int distance(String a, String b, int max)
+	{
+		int n = b.length() + 1;
+		return distance(a, b, max, new int[n], new int[n], new int[n]);
+	}
+
+	// same, with three rows of at least b.length() + 1 supplied by the caller
+	private static int distance(String a, String b, int max, int[] older, int[] previous, int[] current)
+	{
+		for (int j = 0; j <= b.length(); j++)
+			previous[j] = j;
+		for (int i = 1; i <= a.length(); i++)
+		{
+			current[0] = i;
+			int rowMin = current[0];
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= b.length(); j++)
+			{
+				char cb = b.charAt(j - 1);
+				int d = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + (ca == cb ? 0 : 1));
+				if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb)
+					d = Math.min(d, older[j - 2] + 1);
+				current[j] = d;
+				rowMin = Math.min(rowMin, d);
+			}
+			if (rowMin > max)
+				return max + 1;
+			int[] swap = older;
+			older = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[b.length()], max + 1);
+	}
+
+	/**
+	 * Splits text into lowercase words of letters and digits.
+	 */
+	static List<String> tokenize(String text)
+	{
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++)
+		{
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c))
+				word.append(Character.toLowerCase(c));
+			else if (word.length() > 0)
+			{
+				tokens.add(word.toString());
+				word.setLength(0);
+			}
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,210 @@
+package seng300.software;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+
+/**
+ * Type-ahead search over a {@link ProductLookupIndex}.
+ *
+ * Matches for a query are a contiguous run of the index, and the matches for
+ * the query with one more character appended are a sub-run of that. The
+ * session keeps the run for every prefix of the current query, so appending
+ * a character only searches inside the previous run and removing one just
+ * goes back to the run before it.
+ *
+ * Results are handed out in pages of {@link #PAGE_SIZE}, enough to fill
+ * the result grid of the lookup panel.
+ */
+public class ProductSearchSession
+{
+	public static final int PAGE_SIZE = 6;
+
+	private final ProductLookupIndex index;
+	private final StringBuilder query	= new StringBuilder();
+	private final StringBuilder key		= new StringBuilder();
+	// run for prefix i is [runs[2i], runs[2i + 1])
+	private int[] runs					= new int[32];
+	private int indexVersion;
+
+	/**
+	 * Starts an empty search over the given index.
+	 *
+	 * @param index
+	 * 			Index to search.
+	 */
+	public ProductSearchSession(ProductLookupIndex index)
+	{
+		if (index == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.index = index;
+		clear();
+	}
+
+	/**
+	 * Getter for the text searched for.
+	 *
+	 * @return the current query
+	 */
+	public String getQuery()
+	{
+		return query.toString();
+	}
+
+	/**
+	 * Narrows the search by appending a character to the query.
+	 *
+	 * @param c
+	 * 			Character typed.
+	 */
+	public void append(char c)
+	{
+		synchronized (index)
+		{
+			revalidate();
+			narrow(c);
+		}
+	}
+
+	/**
+	 * Widens the search by removing the last character of the query.
+	 * Does nothing if the query is empty.
+	 */
+	public void backspace()
+	{
+		if (query.length() == 0)
+			return;
+		synchronized (index)
+		{
+			query.setLength(query.length() - 1);
+			key.setLength(query.length());
+			revalidate();
+		}
+	}
+
+	/**
+	 * Empties the query.
+	 */
+	public void clear()
+	{
+		synchronized (index)
+		{
+			query.setLength(0);
+			key.setLength(0);
+			indexVersion = index.getVersion();
+			runs[0] = 0;
+			runs[1] = index.size();
+		}
+	}
+
+	/**
+	 * Moves the search to the given query, reusing as much of the current
+	 * one as possible: characters are removed back to the common prefix,
+	 * then the rest of the new query is appended.
+	 *
+	 * @param text
+	 * 			The full text searched for.
+	 *
+	 * @return this session
+	 */
+	public ProductSearchSession setQuery(String text)
+	{
+		synchronized (index)
+		{
+			int common = 0;
+			int max = Math.min(text.length(), query.length());
+			while (common < max && text.charAt(common) == query.charAt(common))
+				common++;
+			query.setLength(common);
+			key.setLength(common);
+			revalidate();
+			for (int i = common; i < text.length(); i++)
+				narrow(text.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * @return the number of products matching the query
+	 */
+	public int resultCount()
+	{
+		synchronized (index)
+		{
+			revalidate();
+			int depth = query.length();
+			return runs[2 * depth + 1] - runs[2 * depth];
+		}
+	}
+
+	/**
+	 * @return the number of pages needed to show every result
+	 */
+	public int pageCount()
+	{
+		return (resultCount() + PAGE_SIZE - 1) / PAGE_SIZE;
+	}
+
+	/**
+	 * Gets one page of results, sorted by description.
+	 *
+	 * @param page
+	 * 			Page number, starting at 0.
+	 *
+	 * @return Up to PAGE_SIZE products. Empty if the page is past the last result.
+	 */
+	public List<PLUCodedProduct> getPage(int page)
+	{
+		if (page < 0)
+			throw new IllegalArgumentException("page cannot be negative");
+		synchronized (index)
+		{
+			revalidate();
+			int depth = query.length();
+			int lo = runs[2 * depth] + page * PAGE_SIZE;
+			int hi = Math.min(lo + PAGE_SIZE, runs[2 * depth + 1]);
+			List<PLUCodedProduct> found = new ArrayList<PLUCodedProduct>(PAGE_SIZE);
+			for (int i = lo; i < hi; i++)
+				found.add(index.productAt(i));
+			return found;
+		}
+	}
+
+	// Caller holds the index lock.
+	private void narrow(char c)
+	{
+		int depth = query.length();
+		query.append(c);
+		key.append(Character.toLowerCase(c));
+		String prefix = key.toString();
+		int lo = index.lowerBound(prefix, runs[2 * depth], runs[2 * depth + 1]);
+		int hi = index.upperBound(prefix, lo, runs[2 * depth + 1]);
+		if (runs.length < 2 * (depth + 2))
+		{
+			int[] bigger = new int[runs.length * 2];
+			System.arraycopy(runs, 0, bigger, 0, runs.length);
+			runs = bigger;
+		}
+		runs[2 * (depth + 1)] = lo;
+		runs[2 * (depth + 1) + 1] = hi;
+	}
+
+	// If the index changed since the runs were computed, they point at the
+	// wrong products; search the current query again from the start.
+	// Caller holds the index lock.
+	private void revalidate()
+	{
+		index.syncWithSource();
+		if (indexVersion == index.getVersion())
+			return;
+		String text = query.toString();
+		query.setLength(0);
+		key.setLength(0);
+		indexVersion = index.getVersion();
+		runs[0] = 0;
+		runs[1] = index.size();
+		for (int i = 0; i < text.length(); i++)
+			narrow(text.charAt(i));
+	}
+}
@@ -1,11 +1,10 @@
 package seng300.software;
 
 import java.util.List;
-import java.util.Map;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 
 import org.lsmr.selfcheckout.devices.*;
 import org.lsmr.selfcheckout.devices.observers.*;
@@ -27,33 +26,51 @@ public class ReturnChange implements BanknoteSlotObserver, CoinTrayObserver {
 	public boolean doneEjectingNote=false;
 	public boolean doneEjectingCoin=false;
 	
-/*	variables used from scs
-	
-	int[] banknoteDenominations;
-	List<BigDecimal> coinDenominations;
-	
-	Map<Integer, BanknoteDispenser> banknoteDispensers;
-	Map<BigDecimal, CoinDispenser> coinDispensers;
-*/
-	private List<Integer> banknoteValues;
-	private List<BigDecimal> coinValues;
-	
-	private Map<Integer, Integer> banknoteAmounts = new HashMap<Integer, Integer>();
-	private Map<BigDecimal, Integer> coinAmounts = new HashMap<BigDecimal, Integer>();
-	
-	private Map<BigDecimal, Integer> partialChange = new HashMap<BigDecimal, Integer>();
-	private Map<BigDecimal, ArrayList<ArrayList<Integer>>> partialBanknoteChange = new HashMap<BigDecimal, ArrayList<ArrayList<Integer>>>();
-	private Map<BigDecimal, ArrayList<ArrayList<BigDecimal>>> partialCoinChange = new HashMap<BigDecimal, ArrayList<ArrayList<BigDecimal>>>();
-	
 	private ArrayList<Integer> banknoteChange = new ArrayList<Integer>();
 	private ArrayList<BigDecimal> coinChange = new ArrayList<BigDecimal>();
 	
-
-	// ------------------------------------------------------------------
-	// HAHA WHAT IF CHANGE CANNOT BE MADE LIKE THWRE ARE NO COINS?
-	// ------------------------------------------------------------------
+	//what is owed and what has gone out so far, in cents
+	private long owed;
+	private long given = 0;
+	//coins in the tray since it was last emptied, the dispensers stop at its capacity
+	private int coinsInTray = 0;
+	private boolean automatic = false;
+	private ProgressListener listener;
+	//false if the dispensers do not hold the right money for this change
+	private boolean changeAvailable = true;
+	
+	/**
+	 * Told each time a banknote or a batch of coins is given out.
+	 */
+	public interface ProgressListener {
+		/**
+		 * @param given
+		 * 			The change given out so far.
+		 * @param left
+		 * 			The change still to give; zero once it is all out.
+		 */
+		void progress(BigDecimal given, BigDecimal left);
+		
+		/**
+		 * Told instead, once, if the dispensers cannot make the change, so
+		 * the attendant has to give it.
+		 * 
+		 * @param owed
+		 * 			The change owed, none of which is given.
+		 */
+		default void changeUnavailable(BigDecimal owed) {}
+	}
 	
 	public ReturnChange (SelfCheckoutStation scs, BigDecimal changevalue) {
+		this(scs, changevalue, ChangeSolver.Preference.FEWEST_PIECES);
+	}
+	
+	public ReturnChange (SelfCheckoutStation scs, BigDecimal changevalue, ChangeSolver.Preference preference) {
+		this(scs, changevalue, preference, null);
+	}
+	
+	//planner can be null, then the change is worked out from the dispensers as they are now
+	public ReturnChange (SelfCheckoutStation scs, BigDecimal changevalue, ChangeSolver.Preference preference, ChangePlanner planner) {
 		
 		this.scs = scs;
     
@@ -61,97 +78,169 @@ public class ReturnChange implements BanknoteSlotObserver, CoinTrayObserver {
 	    scs.banknoteOutput.attach(this);
 	    scs.coinTray.attach(this);
     
-		//i am aware this is not efficient. 
-		//i might change it idk.
-		this.banknoteValues = new ArrayList<Integer>(scs.banknoteDenominations.length);
-		for (int i : scs.banknoteDenominations)
-		{
-			this.banknoteValues.add(i);
-			//make count of amount of banknotes
-			this.banknoteAmounts.put(i, scs.banknoteDispensers.get(i).size());
+		int notes = scs.banknoteDenominations.length;
+		List<BigDecimal> coins = scs.coinDenominations;
+		long change = Money.of(changevalue, RoundingMode.UP).getCents();
+		this.owed = change;
+		int[] counts;
+		if (planner != null) {
+			counts = planner.plan(change, preference);
 		}
-		
-		this.coinValues = new ArrayList<BigDecimal>(scs.coinDenominations);
-		//make count of amount of coins
-		for (BigDecimal i : scs.coinDenominations)
-		{
-			this.coinAmounts.put(i, scs.coinDispensers.get(i).size());
+		else {
+			//banknotes then coins, in cents, with how many of each there are to give
+			long[] values = new long[notes + coins.size()];
+			int[] amounts = new int[values.length];
+			for (int i = 0; i < notes; i++)
+			{
+				int bv = scs.banknoteDenominations[i];
+				values[i] = bv * 100L;
+				amounts[i] = scs.banknoteDispensers.get(bv).size();
+			}
+			for (int i = 0; i < coins.size(); i++)
+			{
+				BigDecimal cv = coins.get(i);
+				values[notes + i] = Money.of(cv).getCents();
+				amounts[notes + i] = scs.coinDispensers.get(cv).size();
+			}
+			counts = new ChangeSolver(values, amounts).solve(change, preference);
 		}
-		
-		changevalue = changevalue.setScale(2, RoundingMode.UP);
-		makeChange(changevalue);
 
-		//haha what if change cannot be made?
-		if (partialChange.get(changevalue) == Integer.MAX_VALUE) {
-
-			System.out.println("Sorry for the inconvenience. Change for this value cannot be returned at this time!");
-			//notify attendant? 
+		//nothing is given if the change cannot be made, the attendant has to give it
+		if (counts == null) {
+			changeAvailable = false;
 			return;
-			
 		}
 		
-		//then update the values :)
-		banknoteChange = partialBanknoteChange.get(changevalue).get(0);
-		coinChange = partialCoinChange.get(changevalue).get(0);
-		
+		//then update the values, largest first :)
+		for (int i = 0; i < notes; i++)
+			for (int k = 0; k < counts[i]; k++)
+				banknoteChange.add(scs.banknoteDenominations[i]);
+		for (int i = 0; i < coins.size(); i++)
+			for (int k = 0; k < counts[notes + i]; k++)
+				coinChange.add(coins.get(i));
+		banknoteChange.sort(Collections.reverseOrder());
+		coinChange.sort(Collections.reverseOrder());
 	}
   
+	//Stop listening to the banknote slot and coin tray, once this change is given or abandoned
+	public void detach() {
+		scs.banknoteOutput.detach(this);
+		scs.coinTray.detach(this);
+	}
+  
+	//Gives out all of the change without being asked again: a banknote whenever the slot is empty,
+	//and as many coins as the tray has room for whenever it is emptied, both at the same time
+	//If the change cannot be made nothing goes out, and the listener is told so instead
+	public void start(ProgressListener listener) {
+		this.listener = listener;
+		if (!changeAvailable) {
+			if (listener != null)
+				listener.changeUnavailable(getChangeLeft());
+			return;
+		}
+		this.automatic = true;
+		this.ejecting = true;
+		this.ejectingCoin = true;
+		dispenseBanknote();
+		dispenseCoins();
+	}
+	
 	//Function for ejecting banknotes
     public void ejectBanknote() throws EmptyException, DisabledException, OverloadException {
-    	
-
-    	ArrayList<Integer> noteChange = banknoteChange;
         
         //Sets the thing to ejecting, which tells the program that we haven't finished giving out all the change owed
         this.ejecting=true;
-        
-        //Emit the current index of change left if its possible
-        if (bankNotesEjected<noteChange.size()) {
-            scs.banknoteDispensers.get(noteChange.get(bankNotesEjected)).emit();
-            bankNotesEjected++;
-        } 
-        
-        else {
-            //If the ejected amount is greater than or equal to how much change we need to return, then we have succesfully ejected everything
-            ejecting=false;
-            doneEjectingCoin=true;
-        }
+        dispenseBanknote();
     }
 
-    //Function for ejecting Coins
+    //Function for ejecting Coins, returns true once all of them are in the tray
     public boolean ejectCoin() {
         
         //Sets the thing to ejecting, which tells the program that we haven't finished giving out all the change owed
         this.ejectingCoin=true;
+        dispenseCoins();
         
-        //This will keep looping until the entire change amount has been dispensed returning true OR the sink needs to be emptied, at which point it will return false
-        while (scs.coinTray.hasSpace()){
-        	
-            if (coinsEjected<coinChange.size()){
-                //This means we have more to eject
-                try {
-                    scs.coinDispensers.get(coinChange.get(coinsEjected)).emit();
-                    coinsEjected++;
-                    //return doneEjectingCoin;
-                }
-                catch(Exception e) {
-                    //This should NEVER happen
-                    //return doneEjectingCoin;
-                }
-            }
-            else {
-                //This means that we have ejected everything
-                ejectingCoin=false;
-                doneEjectingCoin=true;
-                return doneEjectingCoin;
-            }
-            
-        }
-        
-        //Deal with overload exception stuff, make sure the user removes the coin
+        //if it is not done the tray is full, make sure the user removes the coins
         return doneEjectingCoin;
     }
     
+    //The dispensers hand banknotes to the slot one at a time, and the slot takes no more
+    //while one is dangling, so the next note goes out as soon as the customer takes the last
+    private synchronized void dispenseBanknote() {
+    	
+    	if (bankNotesEjected < banknoteChange.size()) {
+    		//emitting into an occupied slot would lose the note
+    		if (!scs.banknoteOutput.hasSpace())
+    			return;
+    		try {
+    			scs.banknoteDispensers.get(banknoteChange.get(bankNotesEjected)).emit();
+    		}
+    		catch (Exception e) {
+    			//the dispenser is empty or disabled, the attendant has to finish this
+    			return;
+    		}
+    		given += banknoteChange.get(bankNotesEjected) * 100L;
+    		bankNotesEjected++;
+    		report();
+    	}
+    	
+    	if (bankNotesEjected >= banknoteChange.size()) {
+            //If the ejected amount is greater than or equal to how much change we need to return, then we have succesfully ejected everything
+            ejecting=false;
+            doneEjectingNote=true;
+    	}
+    }
+    
+    //Fills the tray with as many of the coins left as it holds, then reports once for the batch
+    private synchronized void dispenseCoins() {
+    	
+    	int batch = Math.min(coinChange.size() - coinsEjected, SelfCheckoutStation.COIN_TRAY_CAPACITY - coinsInTray);
+    	int emitted = 0;
+    	while (emitted < batch && scs.coinTray.hasSpace()) {
+    		BigDecimal value = coinChange.get(coinsEjected);
+    		try {
+    			scs.coinDispensers.get(value).emit();
+    		}
+    		catch (Exception e) {
+    			//the dispenser is empty or disabled, the attendant has to finish this
+    			break;
+    		}
+    		given += Money.of(value).getCents();
+    		coinsEjected++;
+    		emitted++;
+    	}
+    	if (emitted > 0)
+    		report();
+    	
+    	if (coinsEjected >= coinChange.size()) {
+            //This means that we have ejected everything
+            ejectingCoin=false;
+            doneEjectingCoin=true;
+    	}
+    }
+    
+    private void report() {
+    	if (listener != null)
+    		listener.progress(Money.ofCents(given).toBigDecimal(), Money.ofCents(owed - given).toBigDecimal());
+    }
+    
+    public BigDecimal getChangeGiven() {
+    	return Money.ofCents(given).toBigDecimal();
+    }
+    
+    public BigDecimal getChangeLeft() {
+    	return Money.ofCents(owed - given).toBigDecimal();
+    }
+    
+    //false if the dispensers do not hold the money to make the change owed
+    public boolean isChangeAvailable() {
+    	return changeAvailable;
+    }
+    
+    //never true if the change cannot be made
+    public boolean isDone() {
+    	return changeAvailable && doneEjectingNote && doneEjectingCoin;
+    }
 
     @Override
     public void banknoteRemoved(BanknoteSlot slot) {
@@ -159,380 +248,24 @@ public class ReturnChange implements BanknoteSlotObserver, CoinTrayObserver {
         danglingNote=false;
         
         if (ejecting==true) {
-            try {
-            	this.ejectBanknote();
-            }
-            catch(Exception e){
-            }
+            this.dispenseBanknote();
         }
     }
+    
+    @Override
+    public void coinAdded(CoinTray tray) {
+    	coinsInTray++;
+    }
+    
+    @Override
+    public void coinsCollected(CoinTray tray) {
+    	coinsInTray = 0;
+    	
+    	if (automatic && ejectingCoin) {
+    		this.dispenseCoins();
+    	}
+    }
   
-	//uses a dynamic programming algorithm to identify the banknotes/coins to return
-	//also ensures there are enough of the banknotes/coins before it returns it as a solution
-	private void makeChange(BigDecimal changevalue) {
-		
-		int i = changevalue.compareTo(BigDecimal.ZERO);
-		
-		//invalid solution
-		if(i < 0) {
-			partialChange.put(changevalue, Integer.MAX_VALUE);
-			return;
-		} 
-	
-		//valid solution
-		else if (i == 0) {
-			partialChange.put(changevalue, 0);
-			
-			//empty array lists if no change is owed so we don't cause an error :)
-			ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-			ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-			
-			ArrayList<Integer> b = new ArrayList<Integer>();
-			solutionB.add(b);
-			
-			ArrayList<BigDecimal> c = new ArrayList<BigDecimal>();
-			solutionC.add(c);
-			
-			partialBanknoteChange.put(changevalue, solutionB);
-			partialCoinChange.put(changevalue, solutionC);
-			return;
-		}
-		
-		//recursive case
-		else {
-			
-			//solution has already been calculated
-			if (partialChange.containsKey(changevalue) && partialChange.get(changevalue) != Integer.MAX_VALUE - 1) {
-				
-				return;
-			}
-			
-			//calculate solution for this change value and then update partialChange maps
-			else {
-				
-				int minPartialBanknote = Integer.MAX_VALUE;
-				int minPartialCoin = Integer.MAX_VALUE;
-				int partialBanknote;
-				int partialCoin;
-				boolean sol = false;
-				
-
-				// --------------------------------------
-				// check banknotes
-				// --------------------------------------
-				
-				Integer optimalBanknote = null;
-				
-				//calculate all partial solutions of changevalue - (a banknotevalue)
-				for(Integer bv : banknoteValues) {
-					
-
-					//check if there is one
-					if(banknoteAmounts.get(bv) < 1) {
-						continue;
-					}
-					
-					//recurse
-					BigDecimal partialMC = (changevalue.subtract(BigDecimal.valueOf(bv))).setScale(2, RoundingMode.UP);
-					makeChange(partialMC);
-
-
-					//check if it was an invalid solution
-					if(partialChange.get(partialMC) == Integer.MAX_VALUE) {
-						continue;
-					}
-					
-					//check if it was a sol situation
-					if(partialChange.get(partialMC) == Integer.MAX_VALUE - 1) {
-						sol = true;
-						continue;
-					}
-					
-					//check if it was a valid full solution
-					if(partialChange.get(partialMC) == 0) {
-						
-						//this is optimal
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						ArrayList<Integer> b = new ArrayList<Integer>();
-						b.add(bv);
-						solutionB.add(b);
-						ArrayList<BigDecimal> c = new ArrayList<BigDecimal>();
-						solutionC.add(c);
-						partialBanknoteChange.put(changevalue, solutionB);
-						partialCoinChange.put(changevalue, solutionC);
-						partialChange.put(changevalue, 1);
-						optimalBanknote = bv;
-						return;
-					}
-					
-					//or see how it compares to the current optimal case
-					partialBanknote = partialBanknoteChange.get(partialMC).get(0).size();
-					partialCoin = partialCoinChange.get(partialMC).get(0).size();
-					
-					//check if this is more optimal than the current optimal
-					if ( partialCoin < minPartialCoin || 
-						(partialCoin == minPartialCoin && partialBanknote < minPartialBanknote) ) {
-						
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						
-						//check if there are enough coins in any of the partial solutions to add the cv
-						int s = 0;
-						for(ArrayList<Integer> partialList : partialBanknoteChange.get(partialMC)) {
-							int c = 1;
-							for(Integer bvc : partialList) {
-								if (bv.compareTo(bvc) == 0) {
-									c++;
-								}
-							}
-							//if there are add to possible solutions
-							if (banknoteAmounts.get(bv) - c >= 0) {
-								ArrayList<Integer> bvPartialList = new ArrayList<Integer>(partialList);
-								bvPartialList.add(bv);
-								solutionB.add(bvPartialList);
-								solutionC.add(partialCoinChange.get(partialMC).get(s));
-							}
-							s++;
-						}
-						
-						//if there aren't any then we are sol. move on to next value
-						if (solutionB.size() == 0) {
-							
-							//shit outta luck
-							sol = true;
-							continue;
-						}
-						
-						//overwrite existing partial solution
-						partialBanknoteChange.put(changevalue, solutionB);
-						partialCoinChange.put(changevalue, solutionC);
-						partialChange.put(changevalue, partialBanknote + partialCoin + 1);
-						
-						//update the min number of coins
-						minPartialBanknote = partialBanknote;
-						minPartialCoin = partialCoin;
-						
-						optimalBanknote = bv;
-						
-					//check if this is as optimal as the current optimal
-					} else if (partialCoin == minPartialCoin && partialBanknote == minPartialBanknote) {
-						
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						
-						//check if there are enough coins in any of the partial solutions to add the cv
-						int s = 0;
-						for(ArrayList<Integer> partialList : partialBanknoteChange.get(partialMC)) {
-							int c = 1;
-							for(Integer bvc : partialList) {
-								if (bv.compareTo(bvc) == 0) {
-									c++;
-								}
-							}
-							//if there are add to possible solutions
-							if (banknoteAmounts.get(bv) - c >= 0) {
-								ArrayList<Integer> bvPartialList = new ArrayList<Integer>(partialList);
-								bvPartialList.add(bv);
-								solutionB.add(bvPartialList);
-								solutionC.add(partialCoinChange.get(partialMC).get(s));
-							}
-							s++;
-						}
-						
-						//if there aren't any then the existing optimal is optimal
-						if (solutionB.size() == 0) {
-							continue;
-						}
-						
-						//append to existing partial solutions
-						ArrayList<ArrayList<Integer>> existingSolutionB = partialBanknoteChange.get(changevalue);
-						ArrayList<ArrayList<BigDecimal>> existingSolutionC = partialCoinChange.get(changevalue);
-
-						existingSolutionB.addAll(solutionB);
-						existingSolutionC.addAll(solutionC);
-						
-						//then put them back? idk how java works are these pointers??
-						partialBanknoteChange.put(changevalue, existingSolutionB);
-						partialCoinChange.put(changevalue, existingSolutionC);
-						
-						//update the min number of coins
-						minPartialBanknote = partialBanknote;
-						minPartialCoin = partialCoin;
-						
-					}
-				}
-
-				//i have decided if an optimal banknote exists that is more optimal than any coin
-				//check for optimal banknote to update this changevalue's partial solution
-				if(optimalBanknote != null) {
-					
-					return;
-				}
-				
-				// --------------------------------------
-				// check coins
-				// --------------------------------------
-				
-				BigDecimal optimalCoin = null;
-				
-				//calculate all partial solutions of changevalue - (a coinvalue)
-				for(BigDecimal cv : coinValues) {
-					
-					//check if there is one
-					if(coinAmounts.get(cv) < 1) {
-						continue;
-					}
-					
-					//recurse
-					BigDecimal partialMC = (changevalue.subtract(cv)).setScale(2, RoundingMode.UP);
-					makeChange(partialMC);
-
-					//check if it was an invalid solution
-					if(partialChange.get(partialMC) == Integer.MAX_VALUE) {
-						continue;
-					}
-					
-					//check if it was a sol situation
-					if(partialChange.get(partialMC) == Integer.MAX_VALUE - 1) {
-						sol = true;
-						continue;
-					}
-					
-					//check if it was a valid full solution
-					if(partialChange.get(partialMC) == 0) {
-						
-						//this is optimal
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						ArrayList<Integer> b = new ArrayList<Integer>();
-						solutionB.add(b);
-						ArrayList<BigDecimal> c = new ArrayList<BigDecimal>();
-						c.add(cv);
-						solutionC.add(c);
-						partialBanknoteChange.put(changevalue, solutionB);
-						partialCoinChange.put(changevalue, solutionC);
-						partialChange.put(changevalue, 1);
-						optimalCoin = cv;
-						return;
-					}
-					
-					//or see how it compares to the current optimal case
-					partialBanknote = partialBanknoteChange.get(partialMC).get(0).size();
-					partialCoin = partialCoinChange.get(partialMC).get(0).size();
-					
-					//check if this is more optimal than the current optimal
-					if ( partialCoin < minPartialCoin || 
-						(partialCoin == minPartialCoin && partialBanknote < minPartialBanknote) ) {
-						
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						
-						//check if there are enough coins in any of the partial solutions to add the cv
-						int s = 0;
-						for(ArrayList<BigDecimal> partialList : partialCoinChange.get(partialMC)) {
-							int c = 1;
-							for(BigDecimal cvc : partialList) {
-								if (cv.compareTo(cvc) == 0) {
-									c++;
-								}
-							}
-							//if there are add to possible solutions
-							if (coinAmounts.get(cv) - c >= 0) {
-								ArrayList<BigDecimal> cvPartialList = new ArrayList<BigDecimal>(partialList);
-								cvPartialList.add(cv);
-								solutionC.add(cvPartialList);
-								solutionB.add(partialBanknoteChange.get(partialMC).get(s));
-							}
-							s++;
-						}
-						
-						//if there aren't any then we are sol. move on to next value
-						if (solutionC.size() == 0) {
-							
-							//shit outta luck
-							sol = true;
-							continue;
-						}
-						
-						//overwrite existing partial solution
-						partialBanknoteChange.put(changevalue, solutionB);
-						partialCoinChange.put(changevalue, solutionC);
-						partialChange.put(changevalue, partialBanknote + partialCoin + 1);
-						
-						//update the min number of coins
-						minPartialBanknote = partialBanknote;
-						minPartialCoin = partialCoin;
-						
-						optimalCoin = cv;
-						
-					//check if this is as optimal as the current optimal
-					} else if (partialCoin == minPartialCoin && partialBanknote == minPartialBanknote) {
-						
-						ArrayList<ArrayList<Integer>> solutionB = new ArrayList<ArrayList<Integer>>();
-						ArrayList<ArrayList<BigDecimal>> solutionC = new ArrayList<ArrayList<BigDecimal>>();
-						
-						//check if there are enough coins in any of the partial solutions to add the cv
-						int s = 0;
-						for(ArrayList<BigDecimal> partialList : partialCoinChange.get(partialMC)) {
-							int c = 1;
-							for(BigDecimal cvc : partialList) {
-								if (cv.compareTo(cvc) == 0) {
-									c++;
-								}
-							}
-							//if there are add to possible solutions
-							if (coinAmounts.get(cv) - c >= 0) {
-								ArrayList<BigDecimal> cvPartialList = new ArrayList<BigDecimal>(partialList);
-								cvPartialList.add(cv);
-								solutionC.add(cvPartialList);
-								solutionB.add(partialBanknoteChange.get(partialMC).get(s));
-							}
-							s++;
-						}
-						
-						//if there aren't any then the existing optimal is optimal
-						if (solutionC.size() == 0) {
-							continue;
-						}
-						
-						//append to existing partial solutions
-						ArrayList<ArrayList<Integer>> existingSolutionB = partialBanknoteChange.get(changevalue);
-						ArrayList<ArrayList<BigDecimal>> existingSolutionC = partialCoinChange.get(changevalue);
-
-						existingSolutionB.addAll(solutionB);
-						existingSolutionC.addAll(solutionC);
-						
-						//then put them back? idk how java works are these pointers??
-						partialBanknoteChange.put(changevalue, existingSolutionB);
-						partialCoinChange.put(changevalue, existingSolutionC);
-						
-						//update the min number of coins
-						minPartialBanknote = partialBanknote;
-						minPartialCoin = partialCoin;
-						
-					}
-				}
-				
-				//check for optimal coin to return this changevalue's partial solutions
-				if(optimalCoin != null) {
-					
-					return;
-				}
-				
-				//check for sol
-				if(sol) {
-					partialChange.put(changevalue, Integer.MAX_VALUE - 1);
-					return;
-				}
-				
-				//if there is no optimal banknote or optimal coin, then this is not a valid solution
-				partialChange.put(changevalue, Integer.MAX_VALUE);
-				return;
-			}
-		}
-	}
-
 	//overridden methods that we didn't use
 	
 	@Override
@@ -547,12 +280,6 @@ public class ReturnChange implements BanknoteSlotObserver, CoinTrayObserver {
 		
 	}
 
-	@Override
-	public void coinAdded(CoinTray tray) {
-		// TODO Auto-generated method stub
-		
-	}
-
 	@Override
 	public void banknoteInserted(BanknoteSlot slot) {
 		// TODO Auto-generated method stub
@@ -0,0 +1,119 @@
+package seng300.software;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.products.Product;
+
+/**
+ * Where the items of each product are in the list of items scanned, so the
+ * last one scanned can be removed without searching the list.
+ *
+ * Every item gets the next sequence number when it is added, and each product
+ * keeps the sequence numbers of its items, latest last. An item's position
+ * in the list is its sequence number less the number of items before it that
+ * have been removed since, which a Fenwick tree over the removed items counts
+ * in logarithmic time.
+ */
+final class ScanPositions
+{
+	private final Map<Object, ArrayDeque<Integer>> byProduct = new HashMap<>();
+	private final BitSet removed = new BitSet();
+	private int[] tree = new int[17];	// 1-based Fenwick tree over sequence numbers
+	private int next = 0;				// sequence number of the next item
+	private int size = 0;
+
+	/**
+	 * Records an item added at the end of the list.
+	 */
+	void added(Product product)
+	{
+		if (next + 1 >= tree.length)
+			grow();
+		byProduct.computeIfAbsent(CartLineItems.keyOf(product), k -> new ArrayDeque<>()).addLast(next);
+		next++;
+		size++;
+	}
+
+	/**
+	 * Records several items added at the end of the list, in order.
+	 */
+	void addedAll(List<? extends Product> products)
+	{
+		for (Product p : products)
+			added(p);
+	}
+
+	/**
+	 * Forgets the last item of a product added.
+	 *
+	 * @return where it was in the list, or -1 if no item of the product is in it
+	 */
+	int removeLast(Product product)
+	{
+		Object key = CartLineItems.keyOf(product);
+		ArrayDeque<Integer> items = byProduct.get(key);
+		if (items == null)
+			return -1;
+		int seq = items.pollLast();
+		if (items.isEmpty())
+			byProduct.remove(key);
+		int position = seq - removedBefore(seq);
+		removed.set(seq);
+		for (int i = seq + 1; i < tree.length; i += i & -i)
+			tree[i]++;
+		size--;
+		return position;
+	}
+
+	/**
+	 * @return the number of items in the list
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Forgets every item.
+	 */
+	void clear()
+	{
+		byProduct.clear();
+		removed.clear();
+		Arrays.fill(tree, 0);
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * Starts again from the items now in the list, for when it has been
+	 * changed by something else.
+	 */
+	void rebuild(List<? extends Product> products)
+	{
+		clear();
+		addedAll(products);
+	}
+
+	// removed items with sequence numbers below seq
+	private int removedBefore(int seq)
+	{
+		int count = 0;
+		for (int i = seq; i > 0; i -= i & -i)
+			count += tree[i];
+		return count;
+	}
+
+	private void grow()
+	{
+		tree = new int[tree.length * 2 - 1];
+		for (int seq = removed.nextSetBit(0); seq >= 0; seq = removed.nextSetBit(seq + 1))
+			for (int i = seq + 1; i < tree.length; i += i & -i)
+				tree[i]++;
+	}
+}
@@ -2,11 +2,19 @@ package seng300.software;
 
 
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.Timer;
 import javax.swing.WindowConstants;
@@ -37,9 +45,13 @@ import seng300.software.GUI.BlockNotifiableGui;
 import seng300.software.GUI.CustomerGui;
 import seng300.software.GUI.DisableableGui;
 import seng300.software.observers.BaggingAreaObserver;
+import seng300.software.observers.CartEvent;
+import seng300.software.observers.CartEventBus;
 import seng300.software.observers.CartObserver;
 import seng300.software.observers.PrinterObserver;
 import seng300.software.observers.ScannerObserver;
+import seng300.software.observers.SettlingScaleFilter;
+import seng300.software.observers.WeightVerifier;
 
 /**
  * Central logic for self checkout station functionalities.
@@ -61,6 +73,7 @@ public class SelfCheckoutSystemLogic
 	private ScannerObserver				mainScannerObserver, handheldScannerObserver;
 	private ReceiptPrinterObserver		printerObserver;
 	private BaggingAreaObserver			baggingAreaObserver;
+	private SettlingScaleFilter			scaleFilter = null;	// between the bagging area and its observer, if set
 	private double 						baggingAreaSensitivity;
 	private boolean blocked			= false; // used to simulate blocking the system
 	private boolean isCheckingOut	= false;
@@ -69,6 +82,19 @@ public class SelfCheckoutSystemLogic
 	private CartObserver	cartObserver;
 
 	private ArrayList<Item> baggingAreaItems = new ArrayList<Item>();
+	private final CashFloat cashFloat;	// money in the dispensers, and how fast it goes
+	
+	// where the transaction in progress is saved after every change, to recover from a crash
+	private volatile Path recoveryFile = null;
+	private CartEventBus.Subscription recoverySubscription = null;
+	private volatile IOException recoveryError = null;
+	private volatile boolean recoveryHeld = false;	// from turning off to on, so the transaction saved then is kept
+	private static final Logger LOGGER = Logger.getLogger(SelfCheckoutSystemLogic.class.getName());
+	private static final ExecutorService RECOVERY_WRITER = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "transaction-recovery");
+		t.setDaemon(true);
+		return t;
+	});
 	private CustomerGui cGui;
 	private boolean isTurnedOn;
 		
@@ -109,7 +135,10 @@ public class SelfCheckoutSystemLogic
 		this.handheldScannerObserver = new ScannerObserver(this.cart);
 		this.station.handheldScanner.attach(handheldScannerObserver);
 		
-		this.checkout = new Checkout(station, this.cart.getProducts(), this.cart.getCartTotal());
+		this.checkout = new Checkout(station, this.cart.getProducts(), this.cart.getTotalDue());
+		this.checkout.setChangeListener(this::transactionChanged);
+		
+		this.cashFloat = new CashFloat(station);
 	}
 	
 	/**
@@ -127,7 +156,7 @@ public class SelfCheckoutSystemLogic
 		this.station.coinSlot.enable();
 		isCheckingOut = true;
 		// update cart and price
-		checkout.update(this.cart.getCartTotal());
+		checkout.update(this.cart.getTotalDue());
 	}
 	
 	/**
@@ -180,6 +209,74 @@ public class SelfCheckoutSystemLogic
 		return baggingAreaSensitivity;
 	}
 	
+	/**
+	 * Sets how long the customer has to bag a scanned item, or to take out a
+	 * removed one, before this station blocks.
+	 * 
+	 * @param millis
+	 * 			The window, in milliseconds.
+	 */
+	public void setBaggingTimeout(long millis)
+	{
+		baggingAreaObserver.setBaggingTimeout(millis);
+	}
+	
+	/**
+	 * Makes the bagging area wait for its scale to settle before checking a
+	 * weight, so a bag swaying as it is put down, or items put down one after
+	 * the other, are checked once.
+	 * 
+	 * @param windowMillis
+	 * 			How long the scale must not change, in milliseconds, or 0 to
+	 * 			check every change at once, as by default.
+	 * @param threshold
+	 * 			How far a reading may then be from the weight the scale last
+	 * 			announced, in grams.
+	 */
+	public void setScaleSettling(long windowMillis, double threshold)
+	{
+		if (scaleFilter != null)
+			this.station.baggingArea.detach(scaleFilter);
+		else
+			this.station.baggingArea.detach(baggingAreaObserver);
+		if (windowMillis <= 0)
+		{
+			scaleFilter = null;
+			this.station.baggingArea.attach(baggingAreaObserver);
+		}
+		else
+		{
+			scaleFilter = new SettlingScaleFilter(baggingAreaObserver, windowMillis, threshold);
+			scaleFilter.reset(baggingAreaObserver.getWeightAtLastEvent());
+			this.station.baggingArea.attach(scaleFilter);
+		}
+	}
+	
+	// the scale filter starts again from the weight the bagging area expects
+	private void resyncScaleFilter()
+	{
+		if (scaleFilter != null)
+			scaleFilter.reset(baggingAreaObserver.getWeightAtLastEvent());
+	}
+	
+	/**
+	 * @return what decides whether weights in the bagging area are those of
+	 * 			the items expected, to set how sure it must be
+	 */
+	public WeightVerifier getWeightVerifier()
+	{
+		return baggingAreaObserver.getWeightVerifier();
+	}
+	
+	/**
+	 * @return what follows the money in this station's dispensers, to
+	 * 			forecast when they run out and plan refills
+	 */
+	public CashFloat getCashFloat()
+	{
+		return cashFloat;
+	}
+	
 	/**
 	 * Simulates process taken when user indicates they
 	 * want to use their own bags during checkout.
@@ -193,6 +290,24 @@ public class SelfCheckoutSystemLogic
 	//fully turns off the self checkout station (disables all devices in scs)
 	public void turnOffStation()
 	{
+		if (this.recoveryFile != null && !this.recoveryHeld)
+		{
+			// through the same writer as the saves after each change, so they cannot overlap
+			Future<?> saved = saveRecovery(TransactionSnapshot.capture(this), this.recoveryFile);
+			try
+			{
+				saved.get();
+			}
+			catch (ExecutionException e)
+			{
+				// already recorded by saveRecovery
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.recoveryHeld = true;
 		this.station.baggingArea.disable();
 		this.station.scanningArea.disable();
 		this.station.screen.disable();
@@ -219,6 +334,9 @@ public class SelfCheckoutSystemLogic
 	//fully turns on the self checkout station (enables all devices in scs)
 	public void turnOnStation()
 	{
+		// catalog indexes are built while the devices come up
+		ProductDatabaseLogic.warmUp();
+		this.recoveryHeld = false;
 		this.station.baggingArea.enable();
 		this.station.scanningArea.enable();
 		this.station.screen.enable();
@@ -343,33 +461,7 @@ public class SelfCheckoutSystemLogic
 	
 	
 	public List<PLUCodedProduct> productLookUp(String Description) {
-		
-		List<PLUCodedProduct> foundItem = new ArrayList<PLUCodedProduct>();
-		List<String> foundItemDescrip = new ArrayList<String>();
-		List<PLUCodedProduct> sortFoundItem = new ArrayList<PLUCodedProduct>();
-		
-		String lowDescription = Description.toLowerCase();
-		
-		for(Map.Entry<PriceLookupCode, PLUCodedProduct> entry : ProductDatabases.PLU_PRODUCT_DATABASE.entrySet()) {
-			String pluLowDescription = entry.getValue().getDescription().toLowerCase();
-			if(pluLowDescription.startsWith(lowDescription) == true) {
-				foundItem.add(entry.getValue());
-				foundItemDescrip.add(pluLowDescription);
-			}
-		}
-		
-		Collections.sort(foundItemDescrip);
-		
-		for (int i = 0; i < foundItem.size(); i++) {
-			for (int j = 0; j < foundItemDescrip.size(); j++) {
-				  if(foundItem.get(i).getDescription().equalsIgnoreCase(foundItemDescrip.get(j))) {
-					  sortFoundItem.add(foundItem.get(j));
-				  }
-			}
-		}
-		
-		
-		return sortFoundItem;
+		return productDatabase.lookUpPLUCodedProducts(Description);
 	}
 
 	public void printerOutofPaper() {
@@ -431,6 +523,7 @@ public class SelfCheckoutSystemLogic
 	
 	public void resetWeightOnScale() {
 		this.baggingAreaObserver.resetToOldWeight();
+		resyncScaleFilter();
 	}
 
 	//ONLY CALL FOR TESTING, NEVER CALL ELSEWHERE!!!!
@@ -446,6 +539,7 @@ public class SelfCheckoutSystemLogic
 		}
 //		
 		this.baggingAreaObserver.reset();
+		resyncScaleFilter();
 		baggingAreaItems = new ArrayList<Item>();
 		this.checkout.reset();
 		this.isCheckingOut = false;
@@ -453,6 +547,147 @@ public class SelfCheckoutSystemLogic
 		this.blocked = false;
 	}
 	
+	/**
+	 * Suspends the transaction in progress so it can be resumed later, on
+	 * this station or another one. The station is left ready for the next
+	 * customer.
+	 * 
+	 * @return snapshot of the transaction, for {@link #resumeTransaction(byte[])}
+	 */
+	public byte[] suspendTransaction()
+	{
+		byte[] snapshot = TransactionSnapshot.capture(this);
+		reset();
+		return snapshot;
+	}
+	
+	/**
+	 * Resumes a suspended transaction in place of the one in progress.
+	 * 
+	 * @param snapshot
+	 * 			Snapshot from {@link #suspendTransaction()}, on any station.
+	 * 
+	 * @throws IOException
+	 * 			If the snapshot is not valid, or has a product no longer sold; the
+	 * 			transaction in progress is then left as it was.
+	 */
+	public void resumeTransaction(byte[] snapshot) throws IOException
+	{
+		// read the whole snapshot first, so a bad one leaves the transaction in progress alone
+		TransactionSnapshot.Contents contents = TransactionSnapshot.read(this.cart.getProductDatabase(), snapshot);
+		reset();
+		contents.applyTo(this);
+		resyncScaleFilter();
+	}
+	
+	/**
+	 * Saves the transaction in progress to a file after every change to the
+	 * cart, every tender, card read and item bagged or taken out, and when
+	 * the station is turned off. The snapshot is taken on the thread that
+	 * made the change, which only takes microseconds, and written on another.
+	 * The transaction saved when the station is turned off is kept until it
+	 * is turned on again.
+	 * 
+	 * @param file
+	 * 			File to save to, or null to stop saving.
+	 */
+	public void setRecoveryFile(Path file)
+	{
+		// saves already queued go to the file they were made for
+		awaitRecoveryWrites();
+		if (this.recoverySubscription != null)
+			this.recoverySubscription.cancel();
+		this.recoverySubscription = null;
+		this.recoveryFile = file;
+		if (file == null)
+			return;
+		this.recoverySubscription = this.cart.getEvents().subscribe(event -> {
+			if (event.getType() == CartEvent.Type.TOTAL_CHANGED)
+			{
+				transactionChanged();
+			}
+		});
+	}
+	
+	/**
+	 * Saves the transaction to the recovery file, if there is one. Called
+	 * after changes the cart does not announce, such as tenders and items
+	 * bagged.
+	 */
+	public void transactionChanged()
+	{
+		Path file = this.recoveryFile;
+		if (file != null && !this.recoveryHeld)
+			saveRecovery(TransactionSnapshot.capture(this), file);
+	}
+	
+	/**
+	 * @return why the last save to the recovery file failed, or null if it
+	 * 			succeeded or there has been none
+	 */
+	public IOException getRecoveryError()
+	{
+		return this.recoveryError;
+	}
+	
+	// every save goes through the one writer thread, so two never write the file at once
+	private Future<?> saveRecovery(byte[] snapshot, Path file)
+	{
+		return RECOVERY_WRITER.submit(() -> {
+			try
+			{
+				TransactionSnapshot.write(snapshot, file);
+				this.recoveryError = null;
+			}
+			catch (IOException e)
+			{
+				this.recoveryError = e;
+				LOGGER.log(Level.WARNING, "could not save the transaction to " + file, e);
+				throw e;
+			}
+			return null;
+		});
+	}
+	
+	// the writer runs in order, so once a task submitted now has run, every save before it has too
+	private static void awaitRecoveryWrites()
+	{
+		try
+		{
+			RECOVERY_WRITER.submit(() -> {}).get();
+		}
+		catch (ExecutionException e)
+		{
+			// the task does nothing, so cannot fail
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Puts back the transaction saved to the recovery file, if there is one.
+	 * 
+	 * @return true if a transaction was recovered
+	 * 
+	 * @throws IOException
+	 * 			If the saved transaction cannot be read.
+	 */
+	public boolean recoverTransaction() throws IOException
+	{
+		// read what was saved last, not a save still queued
+		awaitRecoveryWrites();
+		if (this.recoveryFile == null || !Files.exists(this.recoveryFile))
+			return false;
+		resumeTransaction(Files.readAllBytes(this.recoveryFile));
+		return true;
+	}
+	
+	BaggingAreaObserver getBaggingAreaObserver() {
+		return this.baggingAreaObserver;
+	}
+	
 	public CustomerGui attachGUI() {
 		this.cGui = new CustomerGui(this);
 		station.screen.getFrame().setContentPane(cGui);
@@ -0,0 +1,139 @@
+package seng300.software;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+/**
+ * Barcoded products of a catalog snapshot, built only when first scanned.
+ *
+ * Holds the memory-mapped snapshot and, for every product, just its packed
+ * barcode and the position of its record in the file, in open-addressed
+ * arrays like those of {@link PackedBarcodeProductMap}. The description and
+ * price are read from the file the first time the product is looked up, and
+ * the product is kept from then on. A station can therefore start scanning
+ * as soon as the positions are known, and products never scanned are never
+ * built.
+ *
+ * Lookups take no lock. The positions are fixed once the snapshot has been
+ * opened, and a product built on first lookup is published with a
+ * compare-and-set, so two stations scanning it at once get the same one.
+ *
+ * Created by {@link CatalogSnapshot#open(java.nio.file.Path)}.
+ */
+public class SnapshotProductLookup implements BarcodedProductLookup
+{
+	private static final long EMPTY = 0L;
+
+	private final ByteBuffer file;
+	private final long[] keys;
+	private final int[] records;
+	private final AtomicReferenceArray<BarcodedProduct> built;
+	private final Map<Barcode, BarcodedProduct> longCodes = new HashMap<>();	// filled while opening only
+	private final AtomicInteger builtCount = new AtomicInteger();
+
+	SnapshotProductLookup(ByteBuffer file, int expectedSize)
+	{
+		this.file = file;
+		int capacity = 16;
+		while (capacity < 1 << 30 && 2 * capacity < 3 * expectedSize + 3)
+			capacity <<= 1;
+		keys = new long[capacity];
+		records = new int[capacity];
+		built = new AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * Records that a barcoded product's record starts at the given position.
+	 */
+	void addRecord(int position)
+	{
+		int count = file.get(position) & 0xFF;
+		if (count > PackedBarcodeProductMap.MAX_PACKED_DIGITS)
+		{
+			// too long to pack; rare enough to just build now
+			BarcodedProduct p = CatalogSnapshot.readBarcodedProduct(record(position), new byte[256]);
+			longCodes.put(p.getBarcode(), p);
+			return;
+		}
+		long key = (long)count << 60;
+		for (int i = 0; i < count; i++)
+		{
+			int packed = file.get(position + 1 + i / 2) & 0xFF;
+			long digit = i % 2 == 0 ? packed >>> 4 : packed & 0x0F;
+			key |= digit << (4 * i);
+		}
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		keys[i] = key;
+		records[i] = position;
+	}
+
+	@Override
+	public BarcodedProduct get(Barcode barcode)
+	{
+		if (barcode == null)
+			return null;
+		long key = PackedBarcodeProductMap.pack(barcode);
+		if (key == EMPTY)
+			return longCodes.get(barcode);
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); ; i = (i + 1) & mask)
+		{
+			if (keys[i] == EMPTY)
+				return null;
+			if (keys[i] == key)
+			{
+				BarcodedProduct p = built.get(i);
+				if (p != null)
+					return p;
+				p = CatalogSnapshot.readBarcodedProduct(record(records[i]), new byte[256]);
+				if (built.compareAndSet(i, null, p))
+				{
+					builtCount.incrementAndGet();
+					return p;
+				}
+				// another thread built it first
+				return built.get(i);
+			}
+		}
+	}
+
+	/**
+	 * The snapshot never changes, and building a product does not change
+	 * what a lookup returns.
+	 */
+	@Override
+	public long getVersion()
+	{
+		return 0;
+	}
+
+	/**
+	 * @return the number of products built so far
+	 */
+	public int builtCount()
+	{
+		return builtCount.get() + longCodes.size();
+	}
+
+	private ByteBuffer record(int position)
+	{
+		ByteBuffer in = file.duplicate();
+		in.position(position);
+		return in;
+	}
+
+	private static int slot(long key, int mask)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+}
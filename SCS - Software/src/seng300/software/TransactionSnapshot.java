@@ -0,0 +1,371 @@
+package seng300.software;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.SimulationException;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.PLUCodedProduct;
+import org.lsmr.selfcheckout.products.Product;
+
+import seng300.software.exceptions.ProductNotFoundException;
+import seng300.software.observers.BaggingAreaObserver;
+
+/**
+ * Saves the state of a transaction in progress as a compact binary snapshot,
+ * and puts it back, on the same station or another one. Used to suspend a
+ * transaction, and to recover one after a crash.
+ *
+ * Products are saved by code and looked up again when the snapshot is
+ * restored, but every line keeps the price it was charged at. Items are
+ * saved as the line they belong to, so a cart of a few hundred items takes
+ * a few kilobytes, and capturing it is quick enough to do after every change.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * short  number of lines
+ * line:  byte kind (0 barcoded, 1 PLU coded), code, int quantity, double weight, long total in cents
+ *        (lines of the cart, then products only in the bagging area, with quantity 0)
+ * int    number of items, then a short line number for each, in the order scanned
+ * int    number of scanned items in the bagging area's list, then a short line number for each
+ * int    number of bagged items, then a short line number and a double weight for each
+ * int    number of plastic bags
+ * long   amount paid in cents
+ * short  number of payment lines, then each as text
+ * text   membership number
+ * text   gift card number
+ * code:  as in {@link CatalogSnapshot}
+ * text:  unsigned short byte length, then UTF-8 bytes
+ * </pre>
+ */
+public final class TransactionSnapshot
+{
+	public static final int MAGIC			= 0x53435354; // "SCST"
+	public static final int FORMAT_VERSION	= 1;
+
+	private static final byte BARCODED	= 0;
+	private static final byte PLU_CODED	= 1;
+
+	/**
+	 * Instances of this class are not needed, so the constructor is private.
+	 */
+	private TransactionSnapshot() {}
+
+	/**
+	 * Captures the transaction in progress on a station.
+	 *
+	 * @return the snapshot
+	 */
+	public static byte[] capture(SelfCheckoutSystemLogic logic)
+	{
+		Cart cart = logic.getCart();
+		Checkout checkout = logic.checkout;
+		BaggingAreaObserver bagging = logic.getBaggingAreaObserver();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bytes))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+
+			// every product on a line, then any still in the bagging area but no longer in the cart
+			Map<Object, Integer> lineNumbers = new HashMap<>();
+			List<CartLineItems.Line> lines = new ArrayList<>(cart.getLineItems().getLines());
+			List<Product> entries = new ArrayList<>(lines.size());
+			for (CartLineItems.Line line : lines)
+			{
+				lineNumbers.put(CartLineItems.keyOf(line.getProduct()), entries.size());
+				entries.add(line.getProduct());
+			}
+			for (List<Product> list : Arrays.asList(bagging.getScannedProducts(), bagging.getBaggedProducts()))
+			{
+				for (Product p : list)
+				{
+					if (lineNumbers.putIfAbsent(CartLineItems.keyOf(p), entries.size()) == null)
+						entries.add(p);
+				}
+			}
+			if (entries.size() > 0xFFFF)
+				throw new IllegalStateException("too many lines to snapshot");
+			out.writeShort(entries.size());
+			for (int i = 0; i < entries.size(); i++)
+			{
+				Product p = entries.get(i);
+				if (p instanceof BarcodedProduct)
+				{
+					out.writeByte(BARCODED);
+					CatalogSnapshot.writeCode(out, CatalogSnapshot.digits(((BarcodedProduct)p).getBarcode()));
+				}
+				else
+				{
+					out.writeByte(PLU_CODED);
+					CatalogSnapshot.writeCode(out, CatalogSnapshot.digits(((PLUCodedProduct)p).getPLUCode()));
+				}
+				CartLineItems.Line line = i < lines.size() ? lines.get(i) : null;
+				out.writeInt(line == null ? 0 : line.getQuantity());
+				out.writeDouble(line == null ? 0 : line.getWeight());
+				out.writeLong(line == null ? 0 : line.getTotalMoney().getCents());
+			}
+
+			writeLineNumbers(out, cart.getProducts(), lineNumbers);
+			writeLineNumbers(out, bagging.getScannedProducts(), lineNumbers);
+			List<Product> bagged = bagging.getBaggedProducts();
+			out.writeInt(bagged.size());
+			for (Product p : bagged)
+			{
+				out.writeShort(lineNumber(p, lineNumbers));
+				out.writeDouble(p instanceof PLUCodedWeightProduct ? ((PLUCodedWeightProduct)p).getWeight() : 0);
+			}
+
+			out.writeInt(cart.getBags());
+			out.writeLong(checkout.getTenderedMoney().getCents());
+			List<String> payments = checkout.getTenderedPayments();
+			out.writeShort(payments.size());
+			for (String payment : payments)
+				writeString(out, payment);
+			writeString(out, checkout.getMembershipNumber());
+			writeString(out, checkout.getGiftNumber());
+		}
+		catch (IOException e)
+		{
+			// cannot happen writing to memory
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Captures the transaction in progress on a station to a file. The file is
+	 * replaced in one step, so a crash while writing leaves the last snapshot.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be written.
+	 */
+	public static void write(SelfCheckoutSystemLogic logic, Path file) throws IOException
+	{
+		write(capture(logic), file);
+	}
+
+	/**
+	 * Writes a captured snapshot to a file, replacing it in one step.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be written.
+	 */
+	public static void write(byte[] snapshot, Path file) throws IOException
+	{
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temp, snapshot);
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * A snapshot read and checked, ready to put on a station.
+	 */
+	static final class Contents
+	{
+		private Product[] products;
+		private int[] quantities;
+		private double[] weights;
+		private Money[] totals;
+		private List<Product> items;
+		private List<Product> scanned;
+		private List<Product> bagged;
+		private int bags;
+		private Money paid;
+		private ArrayList<String> payments;
+		private String membershipNumber;
+		private String giftNumber;
+
+		private Contents() {}
+
+		/**
+		 * Puts the transaction on a station, in place of the one in progress.
+		 * Nothing here can fail, so the station is never left half restored.
+		 */
+		void applyTo(SelfCheckoutSystemLogic logic)
+		{
+			Cart cart = logic.getCart();
+			for (int i = 0; i < products.length; i++)
+			{
+				if (quantities[i] > 0)
+					cart.restoreLine(products[i], quantities[i], weights[i], totals[i]);
+			}
+			for (Product p : items)
+				cart.restoreItem(p);
+			cart.restoreBags(bags);
+			cart.getPricing().setMember(!membershipNumber.equals(""));
+			logic.getBaggingAreaObserver().restore(scanned, bagged);
+			logic.checkout.restore(paid, payments, membershipNumber, giftNumber);
+			logic.checkout.update(cart.getTotalDue());
+			cart.restoreFinished();
+		}
+	}
+
+	/**
+	 * Puts a transaction back on a station, in place of the one in progress.
+	 * Nothing is scanned again: lines keep the prices they were charged at,
+	 * and the bagging area expects the items that were already bagged.
+	 *
+	 * @throws IOException
+	 * 			If the snapshot is not valid, or has a product no longer in the
+	 * 			database; the station is then left as it was.
+	 */
+	public static void restore(SelfCheckoutSystemLogic logic, byte[] snapshot) throws IOException
+	{
+		read(logic.getCart().getProductDatabase(), snapshot).applyTo(logic);
+	}
+
+	/**
+	 * Reads a snapshot and looks up its products, without changing any station.
+	 *
+	 * @throws IOException
+	 * 			If the snapshot is not valid, or has a product no longer in the database.
+	 */
+	static Contents read(ProductDatabaseLogic database, byte[] snapshot) throws IOException
+	{
+		if (database == null || snapshot == null)
+			throw new NullPointerException("arguments cannot be null");
+		ByteBuffer in = ByteBuffer.wrap(snapshot);
+		try
+		{
+			if (in.getInt() != MAGIC)
+				throw new IOException("not a transaction snapshot");
+			int version = in.getInt();
+			if (version != FORMAT_VERSION)
+				throw new IOException("unsupported transaction snapshot version: " + version);
+
+			Contents t = new Contents();
+			Product[] products = new Product[in.getShort() & 0xFFFF];
+			t.products = products;
+			t.quantities = new int[products.length];
+			t.weights = new double[products.length];
+			t.totals = new Money[products.length];
+			for (int i = 0; i < products.length; i++)
+			{
+				byte kind = in.get();
+				if (kind == BARCODED)
+					products[i] = database.getProduct(CatalogSnapshot.readBarcode(in));
+				else if (kind == PLU_CODED)
+					products[i] = database.getPLUCodedProduct(new PriceLookupCode(CatalogSnapshot.readDigitString(in)));
+				else
+					throw new IOException("corrupt transaction snapshot");
+				t.quantities[i] = in.getInt();
+				t.weights[i] = in.getDouble();
+				t.totals[i] = Money.ofCents(in.getLong());
+				if (t.quantities[i] < 0)
+					throw new IOException("corrupt transaction snapshot");
+			}
+			t.items = readLineNumbers(in, products);
+			t.scanned = readLineNumbers(in, products);
+			int baggedCount = in.getInt();
+			if (baggedCount < 0 || baggedCount > in.remaining() / 10)
+				throw new IOException("corrupt transaction snapshot");
+			t.bagged = new ArrayList<>(baggedCount);
+			for (int i = 0; i < baggedCount; i++)
+			{
+				Product p = products[lineIndex(in, products)];
+				double weight = in.getDouble();
+				t.bagged.add(p instanceof PLUCodedProduct ? new PLUCodedWeightProduct((PLUCodedProduct)p, weight) : p);
+			}
+			t.bags = in.getInt();
+			if (t.bags < 0)
+				throw new IOException("corrupt transaction snapshot");
+			t.paid = Money.ofCents(in.getLong());
+			int paymentCount = in.getShort() & 0xFFFF;
+			t.payments = new ArrayList<>(paymentCount);
+			for (int i = 0; i < paymentCount; i++)
+				t.payments.add(readString(in));
+			t.membershipNumber = readString(in);
+			t.giftNumber = readString(in);
+			if (in.hasRemaining())
+				throw new IOException("corrupt transaction snapshot");
+			return t;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | SimulationException e)
+		{
+			// truncated snapshot, or a code the hardware classes reject
+			throw new IOException("corrupt transaction snapshot", e);
+		}
+		catch (ProductNotFoundException e)
+		{
+			throw new IOException("transaction snapshot has a product no longer sold", e);
+		}
+	}
+
+	/**
+	 * Puts a transaction saved to a file back on a station.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid snapshot.
+	 */
+	public static void read(SelfCheckoutSystemLogic logic, Path file) throws IOException
+	{
+		restore(logic, Files.readAllBytes(file));
+	}
+
+	private static void writeLineNumbers(DataOutputStream out, List<Product> items, Map<Object, Integer> lineNumbers)
+			throws IOException
+	{
+		out.writeInt(items.size());
+		for (Product p : items)
+			out.writeShort(lineNumber(p, lineNumbers));
+	}
+
+	private static int lineNumber(Product p, Map<Object, Integer> lineNumbers)
+	{
+		Integer n = lineNumbers.get(CartLineItems.keyOf(p));
+		if (n == null)
+			throw new IllegalStateException("item is not on any line of the cart: " + p);
+		return n;
+	}
+
+	private static List<Product> readLineNumbers(ByteBuffer in, Product[] products) throws IOException
+	{
+		int count = in.getInt();
+		if (count < 0 || count > in.remaining() / 2)
+			throw new IOException("corrupt transaction snapshot");
+		List<Product> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			items.add(products[lineIndex(in, products)]);
+		return items;
+	}
+
+	private static int lineIndex(ByteBuffer in, Product[] products) throws IOException
+	{
+		int n = in.getShort() & 0xFFFF;
+		if (n >= products.length)
+			throw new IOException("corrupt transaction snapshot");
+		return n;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF)
+			throw new IllegalStateException("text too long to snapshot");
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in)
+	{
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
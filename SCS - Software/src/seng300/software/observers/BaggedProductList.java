@@ -0,0 +1,160 @@
+package seng300.software.observers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.lsmr.selfcheckout.products.Product;
+
+/**
+ * The products in the bagging area, in the order they were bagged, with a
+ * {@link WeightLedger} that follows every change to the list. The list is
+ * handed out to the GUIs and changed there, so the ledger is kept here
+ * rather than by the observer.
+ */
+final class BaggedProductList extends ArrayList<Product>
+{
+	private static final long serialVersionUID = 1L;
+
+	private final WeightLedger ledger = new WeightLedger();
+
+	/**
+	 * @return the ledger of the products in the list
+	 */
+	WeightLedger getLedger()
+	{
+		return ledger;
+	}
+
+	/**
+	 * Removes the last item matching a product, which is where an item just
+	 * bagged is found. Nothing is searched if no item matches.
+	 *
+	 * @return true if an item was removed
+	 */
+	boolean removeLastMatching(Product product)
+	{
+		if (!ledger.contains(product))
+			return false;
+		for (int i = size() - 1; i >= 0; i--)
+		{
+			if (WeightLedger.sameItem(get(i), product))
+			{
+				remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean add(Product p)
+	{
+		super.add(p);
+		ledger.add(p);
+		return true;
+	}
+
+	@Override
+	public void add(int index, Product p)
+	{
+		super.add(index, p);
+		ledger.add(p);
+	}
+
+	@Override
+	public Product set(int index, Product p)
+	{
+		Product old = super.set(index, p);
+		ledger.remove(old);
+		ledger.add(p);
+		return old;
+	}
+
+	@Override
+	public Product remove(int index)
+	{
+		Product old = super.remove(index);
+		ledger.remove(old);
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		int index = indexOf(o);
+		if (index < 0)
+			return false;
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Product> c)
+	{
+		for (Product p : c)
+			ledger.add(p);
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Product> c)
+	{
+		for (Product p : c)
+			ledger.add(p);
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public void clear()
+	{
+		super.clear();
+		ledger.clear();
+	}
+
+	// Bulk removals are rare, so the ledger is rebuilt after them.
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		return recount(super.removeAll(c));
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		return recount(super.retainAll(c));
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Product> filter)
+	{
+		return recount(super.removeIf(filter));
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<Product> operator)
+	{
+		super.replaceAll(operator);
+		recount(true);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex)
+	{
+		super.removeRange(fromIndex, toIndex);
+		recount(true);
+	}
+
+	private boolean recount(boolean changed)
+	{
+		if (changed)
+		{
+			ledger.clear();
+			for (Product p : this)
+				ledger.add(p);
+		}
+		return changed;
+	}
+}
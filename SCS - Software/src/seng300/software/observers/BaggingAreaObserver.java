@@ -1,9 +1,9 @@
 package seng300.software.observers;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 
-import org.lsmr.selfcheckout.Barcode;
-import org.lsmr.selfcheckout.PriceLookupCode;
 import org.lsmr.selfcheckout.devices.AbstractDevice;
 import org.lsmr.selfcheckout.devices.ElectronicScale;
 import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
@@ -12,36 +12,52 @@ import org.lsmr.selfcheckout.products.BarcodedProduct;
 import org.lsmr.selfcheckout.products.PLUCodedProduct;
 import org.lsmr.selfcheckout.products.Product;
 
-import seng300.software.Cart;
 import seng300.software.PLUCodedWeightProduct;
 import seng300.software.SelfCheckoutSystemLogic;
 
+/**
+ * Checks that what is placed in or removed from the bagging area matches the
+ * items scanned or removed. Weights may arrive on a different thread from the
+ * items, e.g. when a {@link SettlingScaleFilter} passes them on, so every
+ * change to what is expected is made under the lock on this observer.
+ */
 public class BaggingAreaObserver implements ElectronicScaleObserver
 {
 	private SelfCheckoutSystemLogic logic;
-	private Cart currentCart = new Cart();
 	private double weightAtLastEvent;
-	private boolean currentItemBagged = true;
-	private boolean currentItemRemoved = true;
+	// read by the timeout thread
+	private volatile boolean currentItemBagged = true;
+	private volatile boolean currentItemRemoved = true;
 	
 	private boolean baggingItems = true; //false means we are removing items
 
-	private Thread checkProductBagggedby5Thread; 
+	/**
+	 * How long a customer has by default to bag or remove an item, in milliseconds.
+	 */
+	public static final long DEFAULT_BAGGING_TIMEOUT = 5000;
+
+	private long baggingTimeout = DEFAULT_BAGGING_TIMEOUT;
+	private ScheduledFuture<?> pendingTimeout;
 
 	private Product currentScannedProduct;
 	private ArrayList<Product> scannedProducts = new ArrayList<>();
-	private ArrayList<Product> baggedProducts = new ArrayList<>(); //ONLY ADD BarcodedProduct and PLUCodedProduc to this class
+	private final BaggedProductList baggedProducts = new BaggedProductList(); //ONLY ADD BarcodedProduct and PLUCodedProduc to this class
 	private boolean isResetting = false;
 
 	private Product currentRemovedProduct; // currentRemovedProduct may be a plu coded
 
-	private boolean timedOut = false;
+	// items added together that are still waiting to be bagged
+	private ArrayList<BarcodedProduct> pendingBatch = new ArrayList<>();
+	
+	private WeightVerifier verifier;
+
+	private volatile boolean timedOut = false;
 	
-	public boolean isBaggingItems() {
+	public synchronized boolean isBaggingItems() {
 		return baggingItems;
 	}
 
-	public void setBaggingItems(boolean baggingItems) {
+	public synchronized void setBaggingItems(boolean baggingItems) {
 		this.baggingItems = baggingItems;
 	}
 	
@@ -53,6 +69,37 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 		this.timedOut = timedOut;
 	}
 
+	public long getBaggingTimeout() {
+		return baggingTimeout;
+	}
+
+	/**
+	 * Sets how long the customer has to place a scanned item in the bagging
+	 * area, or to take a removed item out of it, before the station blocks.
+	 * 
+	 * @param millis
+	 * 			The window, in milliseconds.
+	 */
+	public void setBaggingTimeout(long millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("timeout must be positive");
+		this.baggingTimeout = millis;
+	}
+
+	public WeightVerifier getWeightVerifier() {
+		return verifier;
+	}
+
+	/**
+	 * Sets what decides whether weights are those of the items expected, so
+	 * stations can share one and learn together.
+	 */
+	public void setWeightVerifier(WeightVerifier verifier) {
+		if (verifier == null)
+			throw new NullPointerException("arguments cannot be null");
+		this.verifier = verifier;
+	}
+
 	public ArrayList<Product> getScannedProducts() {
 		return scannedProducts;
 	}
@@ -64,6 +111,7 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	public BaggingAreaObserver(SelfCheckoutSystemLogic logic)
 	{
 		this.logic = logic;
+		this.verifier = new WeightVerifier();
 		weightAtLastEvent = 0;
 	}
 	
@@ -80,7 +128,7 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	}
 
 	@Override
-	public void weightChanged(ElectronicScale scale, double weightInGrams) {
+	public synchronized void weightChanged(ElectronicScale scale, double weightInGrams) {
 		
 		if(isResetting) {
 			
@@ -90,37 +138,62 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 			if(currentItemBagged == true) {
 				// there is no scanned item waiting to be bagged so
 				blockScs();	
+			}else if (!pendingBatch.isEmpty()) {
+				double itemWeight = (weightInGrams - weightAtLastEvent );
+				
+				weightAtLastEvent = weightInGrams;
+				
+				WeightVerifier.Verdict verdict = batchItemsBagged(itemWeight);
+				if (verdict != WeightVerifier.Verdict.REJECT) {
+					logic.transactionChanged();
+				}
+				if (verdict == WeightVerifier.Verdict.REJECT) {
+					// unknown item placed in bagging area
+					blockScs();
+				}else if (pendingBatch.isEmpty()) {
+					currentItemBagged = true;
+					cancelTimeout();
+					
+					if (verdict == WeightVerifier.Verdict.ATTENDANT) {
+						// attendant to check the items
+						blockScs();
+					}else if(weightAtLastEvent <= scale.getWeightLimit()) {
+						unBlocsScs();
+					}
+				}
 			}else {
 				double itemWeight = (weightInGrams - weightAtLastEvent );
 				
 				weightAtLastEvent = weightInGrams;
 				
-				double currentItemWeight;
+				WeightVerifier.Verdict verdict;
 				
 				if (currentScannedProduct instanceof BarcodedProduct)
 				{
-				    currentItemWeight = ((BarcodedProduct)currentScannedProduct).getExpectedWeight();
+				    verdict = verifier.verify((BarcodedProduct)currentScannedProduct, itemWeight);
 				}
 				else // p instanceof PLUCodedProduct
 				{
-				    currentItemWeight = currentCart.getPLUWeight(); // Expected weight is the same as the weight on electronic scale
-				    currentItemWeight = itemWeight;
+				    verdict = WeightVerifier.Verdict.ACCEPT; // Expected weight is the same as the weight on electronic scale
 				}
 				
-				double difference =  Math.abs(currentItemWeight - itemWeight);
-				
-				//double sensitivity = scale.getSensitivity();
-				
-				if (difference < 1E-10)  {
+				if (verdict != WeightVerifier.Verdict.REJECT)  {
 					if (currentScannedProduct instanceof PLUCodedProduct) {
-						currentScannedProduct = new PLUCodedWeightProduct((PLUCodedProduct)currentScannedProduct,currentItemWeight);
+						currentScannedProduct = new PLUCodedWeightProduct((PLUCodedProduct)currentScannedProduct,itemWeight);
+					}else if (verdict == WeightVerifier.Verdict.ACCEPT) {
+						verifier.learn((BarcodedProduct)currentScannedProduct, itemWeight);
 					}
 					
 					baggedProducts.add(currentScannedProduct);
 					currentItemBagged = true;
+					cancelTimeout();
+					logic.transactionChanged();
 					
 					
-					if(weightAtLastEvent <= scale.getWeightLimit()) {
+					if (verdict == WeightVerifier.Verdict.ATTENDANT) {
+						// might be the item, so attendant to check it
+						blockScs();
+					}else if(weightAtLastEvent <= scale.getWeightLimit()) {
 						// if scale is not overloaded enable scanners again 
 						unBlocsScs();
 					}
@@ -143,23 +216,29 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 				double itemWeight = (weightInGrams - weightAtLastEvent );
 				weightAtLastEvent = weightInGrams;
 				
-				double currentItemWeight;
+				WeightVerifier.Verdict verdict;
 				
 				if (currentScannedProduct instanceof BarcodedProduct)
 				{
-				    currentItemWeight = ((BarcodedProduct)currentScannedProduct).getExpectedWeight();
+				    verdict = verifier.verify((BarcodedProduct)currentScannedProduct, -itemWeight); //remove a negative
 				}
 				else // p instanceof PLUCodedWeightProduct
 				{
-				    currentItemWeight = ((PLUCodedWeightProduct)this.currentScannedProduct).getWeight(); // Expected weight is the same as the weight on electronic scale
+				    verdict = verifier.verify(((PLUCodedWeightProduct)this.currentScannedProduct).getWeight(), -itemWeight); // weighed when it was bagged
 
 				}
 				
-				double difference =  Math.abs(currentItemWeight + itemWeight); //add a negative
-				if (difference < 1E-10)  {
+				if (verdict != WeightVerifier.Verdict.REJECT)  {
 					removeCurrentScannedItemFromList();
 					currentItemRemoved = true;
-					unBlocsScs();
+					cancelTimeout();
+					logic.transactionChanged();
+					if (verdict == WeightVerifier.Verdict.ATTENDANT) {
+						// might be the item, so attendant to check it
+						blockScs();
+					}else {
+						unBlocsScs();
+					}
 					
 				}else {
 					// unknown item removed from bagging area
@@ -177,7 +256,7 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	}
 
 	@Override
-	public void overload(ElectronicScale scale) {
+	public synchronized void overload(ElectronicScale scale) {
 		// weight on scale has exceeded limit
 		blockScs();
 
@@ -189,15 +268,12 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 
 	}
 	
-	public void notifiedItemAdded(BarcodedProduct scannedProduct)
+	public synchronized void notifiedItemAdded(BarcodedProduct scannedProduct)
 	{
+		pendingBatch.clear();
 
-		// wait 5 seconds -- Threads
-		// if not notified weight change, block system
-					
-		if (checkProductBagggedby5Thread != null && checkProductBagggedby5Thread.isAlive()) {
-			checkProductBagggedby5Thread.interrupt();
-		}
+		// if not notified weight change before the timeout, block system
+		cancelTimeout();
 
 		if(scannedProduct.getExpectedWeight() > logic.getBaggingAreaSensitivity()) {
 			// disable scanners until item placed in bagging area
@@ -206,11 +282,9 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 			currentScannedProduct = scannedProduct;
 			scannedProducts.add(scannedProduct);
 			currentItemBagged = false;
+			logic.transactionChanged();
 			
-			Runnable  checkProductBaggged = new CheckBaggedProduct(scannedProduct, this);
-			checkProductBagggedby5Thread = new Thread(checkProductBaggged);
-			checkProductBagggedby5Thread.setDaemon(true);
-			checkProductBagggedby5Thread.start();	
+			startTimeout(new CheckBaggedProduct(scannedProduct, this));
 			
 			
 		}else {				
@@ -219,16 +293,68 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	}
 	//to test
 
+	/**
+	 * Expects several items, scanned together, to be placed in the bagging area.
+	 * The scanners stay blocked until all of them are bagged, whether they are
+	 * placed all at once or one at a time, and only one timeout runs for them.
+	 * 
+	 * @param products
+	 * 			The items added to the cart together.
+	 */
+	public synchronized void notifiedItemsAdded(List<BarcodedProduct> products)
+	{
+		cancelTimeout();
+		
+		pendingBatch.clear();
+		for (BarcodedProduct p : products) {
+			// items lighter than the scale can sense do not need to be placed in the bagging area
+			if (p.getExpectedWeight() > logic.getBaggingAreaSensitivity()) {
+				pendingBatch.add(p);
+			}
+		}
+		
+		if (!pendingBatch.isEmpty()) {
+			// disable scanners until every item is placed in the bagging area
+			this.logic.quietItemInputBlock();
+			
+			currentScannedProduct = pendingBatch.get(pendingBatch.size() - 1);
+			scannedProducts.addAll(pendingBatch);
+			currentItemBagged = false;
+			logic.transactionChanged();
+			
+			startTimeout(new CheckBaggedProduct(currentScannedProduct, this));
+		}
+	}
+	
+	// Matches a weight placed in the bagging area against the items of the
+	// pending batch: either all the rest of them, or any one of them. All the
+	// rest are bagged if only an attendant can tell whether they were.
+	private WeightVerifier.Verdict batchItemsBagged(double itemWeight) {
+		WeightVerifier.Verdict whole = verifier.verify(pendingBatch, itemWeight);
+		if (whole != WeightVerifier.Verdict.ACCEPT) {
+			for (int i = 0; i < pendingBatch.size(); i++) {
+				BarcodedProduct p = pendingBatch.get(i);
+				if (verifier.verify(p, itemWeight) == WeightVerifier.Verdict.ACCEPT) {
+					verifier.learn(p, itemWeight);
+					baggedProducts.add(p);
+					pendingBatch.remove(i);
+					return WeightVerifier.Verdict.ACCEPT;
+				}
+			}
+		}
+		if (whole != WeightVerifier.Verdict.REJECT) {
+			baggedProducts.addAll(pendingBatch);
+			pendingBatch.clear();
+		}
+		return whole;
+	}
 
-	public void notifiedPLUCodedItemAdded(PLUCodedProduct scannedPLUProduct, double Weight)
+	public synchronized void notifiedPLUCodedItemAdded(PLUCodedProduct scannedPLUProduct, double Weight)
 	{
+		pendingBatch.clear();
 
-		// wait 5 seconds -- Threads
-		// if not notified weight change, block system
-					
-		if (checkProductBagggedby5Thread != null && checkProductBagggedby5Thread.isAlive()) {
-			checkProductBagggedby5Thread.interrupt();
-		}
+		// if not notified weight change before the timeout, block system
+		cancelTimeout();
 
 		if( Weight > logic.getBaggingAreaSensitivity()) {
 			// disable scanners until item placed in bagging area
@@ -237,11 +363,9 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 			currentScannedProduct = scannedPLUProduct;
 			scannedProducts.add(scannedPLUProduct);
 			currentItemBagged = false;
+			logic.transactionChanged();
 			
-			Runnable  checkProductBaggged = new CheckBaggedProduct(scannedPLUProduct, this);
-			checkProductBagggedby5Thread = new Thread(checkProductBaggged);
-			checkProductBagggedby5Thread.setDaemon(true);
-			checkProductBagggedby5Thread.start();	
+			startTimeout(new CheckBaggedProduct(scannedPLUProduct, this));
 			
 			
 		}else {				
@@ -252,14 +376,11 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	}
 
 
-	public void notifiedItemRemoved(BarcodedProduct removedProduct)
+	public synchronized void notifiedItemRemoved(BarcodedProduct removedProduct)
 	{
 
-		// wait 5 seconds -- Threads
-		// if not notified weight change, block system
-		if (checkProductBagggedby5Thread != null && checkProductBagggedby5Thread.isAlive()) {
-			checkProductBagggedby5Thread.interrupt();
-		}
+		// if not notified weight change before the timeout, block system
+		cancelTimeout();
 
 		if(removedProduct.getExpectedWeight() > logic.getBaggingAreaSensitivity()) {
 			// disable scanners until item placed in bagging area
@@ -268,10 +389,7 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 			currentScannedProduct = removedProduct;
 			currentItemRemoved = false;
 			
-			Runnable  checkProductRemoved = new CheckRemovedProduct(this);
-			checkProductBagggedby5Thread = new Thread(checkProductRemoved);
-			checkProductBagggedby5Thread.setDaemon(true);
-			checkProductBagggedby5Thread.start();	
+			startTimeout(new CheckRemovedProduct(this));
 			
 			
 		}else {				
@@ -281,14 +399,10 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 		
 	}
 	
-	public void notifiedItemRemoved(PLUCodedWeightProduct removedProduct)
+	public synchronized void notifiedItemRemoved(PLUCodedWeightProduct removedProduct)
 	{
-		// wait 5 seconds -- Threads
-		// if not notified weight change, block system
-					
-		if (checkProductBagggedby5Thread != null && checkProductBagggedby5Thread.isAlive()) {
-			checkProductBagggedby5Thread.interrupt();
-		}
+		// if not notified weight change before the timeout, block system
+		cancelTimeout();
 
 		if(removedProduct.getWeight() > logic.getBaggingAreaSensitivity()) {
 			// disable scanners until item placed in bagging area
@@ -297,10 +411,7 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 			currentScannedProduct = removedProduct;
 			currentItemRemoved = false;
 			
-			Runnable  checkProductRemoved = new CheckRemovedProduct(this);
-			checkProductBagggedby5Thread = new Thread(checkProductRemoved);
-			checkProductBagggedby5Thread.setDaemon(true);
-			checkProductBagggedby5Thread.start();	
+			startTimeout(new CheckRemovedProduct(this));
 			
 			
 		}else {				
@@ -311,6 +422,17 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	}
 
 
+	private synchronized void startTimeout(Runnable check) {
+		pendingTimeout = BaggingTimeouts.schedule(check, baggingTimeout);
+	}
+	
+	private synchronized void cancelTimeout() {
+		if (pendingTimeout != null) {
+			pendingTimeout.cancel(false);
+			pendingTimeout = null;
+		}
+	}
+
 	public boolean isCurrentItemBagged() {
 		return currentItemBagged;
 	}
@@ -330,104 +452,58 @@ public class BaggingAreaObserver implements ElectronicScaleObserver
 	
 	
 	private void removeCurrentScannedItemFromList() { //removes currentScannedProduct from list once
-		int removeIndex = 0;
-		
-		if (currentScannedProduct instanceof BarcodedProduct)
-		{
-			Barcode code = ((BarcodedProduct) currentScannedProduct).getBarcode();
-			for (int i = 0; i< this.baggedProducts.size(); i++) {
-				if (baggedProducts.get(i) instanceof BarcodedProduct) {
-					if (((BarcodedProduct) (baggedProducts.get(i))).getBarcode().equals(code)) {
-						removeIndex = i;
-						break;
-					}
-				}
-			}
-		}
-		
-		else if (currentScannedProduct instanceof PLUCodedWeightProduct) {
-			PriceLookupCode code = ((PLUCodedWeightProduct) this.currentScannedProduct).getPLUCode();
-			double weight = ((PLUCodedWeightProduct) this.currentScannedProduct).getWeight();
-			for (int i = 0; i<this.baggedProducts.size();i++) {
-				if (baggedProducts.get(i) instanceof PLUCodedWeightProduct) {
-					PriceLookupCode plc= ((PLUCodedWeightProduct)baggedProducts.get(i)).getPLUCode();
-					double w= ((PLUCodedWeightProduct)baggedProducts.get(i)).getWeight();
-					if (w == weight && plc.equals(code)) {
-						removeIndex = i;
-						break;
-					}
-				}
-			}
-		}
-
-		baggedProducts.remove(removeIndex);
+		baggedProducts.removeLastMatching(currentScannedProduct);
 	}
 	
 	public boolean isProductBagged(Product product) {
-		if (product instanceof BarcodedProduct)
-		{
-			Barcode code = ((BarcodedProduct) product).getBarcode();
-			for (int i = 0; i< this.baggedProducts.size(); i++) {
-				if (baggedProducts.get(i) instanceof BarcodedProduct) {
-					if (((BarcodedProduct) (baggedProducts.get(i))).getBarcode().equals(code)) {
-						return true;
-					}
-				}
-			}
-		}
-		else if (product instanceof PLUCodedWeightProduct) {
-			PriceLookupCode code = ((PLUCodedWeightProduct) product).getPLUCode();
-			double weight = ((PLUCodedWeightProduct) product).getWeight();
-			for (int i = 0; i<this.baggedProducts.size();i++) {
-				if (baggedProducts.get(i) instanceof PLUCodedWeightProduct) {
-					PriceLookupCode plc= ((PLUCodedWeightProduct)baggedProducts.get(i)).getPLUCode();
-					double w= ((PLUCodedWeightProduct)baggedProducts.get(i)).getWeight();
-					if (w == weight && plc.equals(code)) {
-						return true;
-					}
-				}
-			}
-		}
-		return false;
+		return baggedProducts.getLedger().contains(product);
+	}
+	
+	/**
+	 * @return the weight the items in the bagging area should have, in grams
+	 */
+	public double getExpectedBaggedWeight() {
+		return baggedProducts.getLedger().getTotal();
 	}
 	
 	public void noWeightCheck(){
 		blockScs();
 	}
 
-	public double getWeightAtLastEvent() {
+	public synchronized double getWeightAtLastEvent() {
 		return weightAtLastEvent;
 	}
-	public void resetToOldWeight() {
-		double sum = 0;
-		for (int i = 0; i< this.baggedProducts.size(); i++) {
-			if (this.baggedProducts.get(i) instanceof BarcodedProduct) {
-				sum = sum+((BarcodedProduct)this.baggedProducts.get(i)).getExpectedWeight();
-			}
-			else if (this.baggedProducts.get(i) instanceof PLUCodedWeightProduct) {
-				sum = sum+((PLUCodedWeightProduct)this.baggedProducts.get(i)).getWeight();
-			}
-		}
-		this.weightAtLastEvent = sum;
+	public synchronized void resetToOldWeight() {
+		this.weightAtLastEvent = getExpectedBaggedWeight();
 	}
 	
-	public void setResetting(boolean isResetting) {
+	/**
+	 * Puts back the items of a suspended transaction: those scanned, and
+	 * those already in the bagging area, whose weight the scale is then
+	 * expected to show. No item is left waiting to be bagged.
+	 */
+	public synchronized void restore(List<Product> scanned, List<Product> bagged) {
+		this.scannedProducts.addAll(scanned);
+		this.baggedProducts.addAll(bagged);
+		this.currentItemBagged = true;
+		this.currentItemRemoved = true;
+		resetToOldWeight();
+	}
+	
+	public synchronized void setResetting(boolean isResetting) {
 		this.isResetting = isResetting;
 	}
 	
-	public void reset() {
+	public synchronized void reset() {
 		isResetting = true;
+		cancelTimeout();
 		this.currentItemBagged = true;
 		this.currentItemRemoved = true;
 		this.baggingItems = true;
+		this.pendingBatch.clear();
 		
-		ArrayList<Product> removal = new ArrayList<>();
-		removal.addAll(this.getBaggedProducts());
-		this.baggedProducts.removeAll(removal);
-		
-		removal = new ArrayList<>();
-		removal.addAll(scannedProducts);
-		this.scannedProducts.removeAll(removal);
+		this.baggedProducts.clear();
+		this.scannedProducts.clear();
 		
 		this.weightAtLastEvent = 0;
 		this.isResetting = false;
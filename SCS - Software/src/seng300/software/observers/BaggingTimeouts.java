@@ -0,0 +1,41 @@
+package seng300.software.observers;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts for items to be placed in or removed from the bagging area, and
+ * for its scale to settle, shared by every station. One thread sleeps until
+ * the next timeout is due, so waiting costs nothing however many stations
+ * are waiting.
+ */
+final class BaggingTimeouts
+{
+	private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "bagging-timeouts");
+		t.setDaemon(true);
+		return t;
+	});
+
+	static
+	{
+		// most timeouts are cancelled when the item is bagged, so do not keep them queued
+		SCHEDULER.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Instances of this class are not needed, so the constructor is private.
+	 */
+	private BaggingTimeouts() {}
+
+	/**
+	 * Runs a check once the window has passed.
+	 *
+	 * @return the timeout, to cancel it
+	 */
+	static ScheduledFuture<?> schedule(Runnable check, long millis)
+	{
+		return SCHEDULER.schedule(check, millis, TimeUnit.MILLISECONDS);
+	}
+}
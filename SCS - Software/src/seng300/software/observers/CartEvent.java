@@ -0,0 +1,153 @@
+package seng300.software.observers;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import org.lsmr.selfcheckout.products.Product;
+
+import seng300.software.Cart;
+import seng300.software.Money;
+
+/**
+ * Something that happened to a cart. Events are immutable, so they can be
+ * handed to listeners on other threads.
+ */
+public final class CartEvent
+{
+	public enum Type
+	{
+		/** Items were added. */
+		ITEM_ADDED,
+		/** The customer removed an item. */
+		ITEM_REMOVED,
+		/** The attendant removed an item. */
+		ITEM_VOIDED,
+		/** The cart total changed. Follows every other event that changes it. */
+		TOTAL_CHANGED,
+		/** Plastic bags were added. */
+		BAGS_ADDED
+	}
+
+	private final Cart cart;
+	private final Type type;
+	private final List<Product> products;
+	private final double weight;
+	private final boolean bagging;
+	private final int bags;
+	private final Money total;
+
+	private CartEvent(Cart cart, Type type, List<Product> products, double weight, boolean bagging, int bags, Money total)
+	{
+		this.cart = cart;
+		this.type = type;
+		this.products = products;
+		this.weight = weight;
+		this.bagging = bagging;
+		this.bags = bags;
+		this.total = total;
+	}
+
+	/**
+	 * Items were added to the cart.
+	 *
+	 * @param products
+	 * 			The items, in the order they were added. Not copied, so must not change.
+	 * @param weight
+	 * 			Weight in grams of an item sold by weight; else 0.
+	 * @param bagging
+	 * 			Whether the items are to be placed in the bagging area.
+	 */
+	public static CartEvent itemsAdded(Cart cart, List<? extends Product> products, double weight, boolean bagging, Money total)
+	{
+		return new CartEvent(cart, Type.ITEM_ADDED, Collections.unmodifiableList(products), weight, bagging, 0, total);
+	}
+
+	/**
+	 * An item was removed from the cart, by the customer or, if voided, by the attendant.
+	 */
+	public static CartEvent itemRemoved(Cart cart, Product product, boolean voided, Money total)
+	{
+		return new CartEvent(cart, voided ? Type.ITEM_VOIDED : Type.ITEM_REMOVED,
+				Collections.singletonList(product), 0, true, 0, total);
+	}
+
+	public static CartEvent totalChanged(Cart cart, Money total)
+	{
+		return new CartEvent(cart, Type.TOTAL_CHANGED, Collections.<Product>emptyList(), 0, false, 0, total);
+	}
+
+	public static CartEvent bagsAdded(Cart cart, int bags, Money total)
+	{
+		return new CartEvent(cart, Type.BAGS_ADDED, Collections.<Product>emptyList(), 0, false, bags, total);
+	}
+
+	public Cart getCart()
+	{
+		return cart;
+	}
+
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the items added or removed, in order; empty for other events
+	 */
+	public List<Product> getProducts()
+	{
+		return products;
+	}
+
+	/**
+	 * @return the first item added or removed, or null if there is none
+	 */
+	public Product getProduct()
+	{
+		return products.isEmpty() ? null : products.get(0);
+	}
+
+	/**
+	 * @return weight in grams of an item sold by weight that was added; else 0
+	 */
+	public double getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * @return whether the items added are to be placed in the bagging area
+	 */
+	public boolean isBagging()
+	{
+		return bagging;
+	}
+
+	/**
+	 * @return the number of bags added
+	 */
+	public int getBags()
+	{
+		return bags;
+	}
+
+	/**
+	 * @return the cart total once the event had happened
+	 */
+	public BigDecimal getTotal()
+	{
+		return total.toBigDecimal();
+	}
+
+	public Money getTotalMoney()
+	{
+		return total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return type + " " + products + " total " + total;
+	}
+}
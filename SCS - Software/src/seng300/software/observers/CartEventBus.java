@@ -0,0 +1,298 @@
+package seng300.software.observers;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the events of a cart to its listeners.
+ *
+ * A synchronous listener is called on the thread that changed the cart,
+ * before the change returns; the bagging area needs this, to block the
+ * scanners before the next item is scanned. An asynchronous listener gets
+ * its own thread and a bounded queue of events, so however slow it is, it
+ * adds no time to a scan. When its queue is full the bus either waits for
+ * room (BLOCK, for listeners that must see every event) or throws the oldest
+ * event away (DROP_OLDEST, for listeners like a display that only need to
+ * catch up).
+ *
+ * Every listener sees the events in the order they were published. An
+ * asynchronous listener that throws is handed the next event all the same;
+ * what it threw goes to the bus's {@link ErrorHandler}, which logs it unless
+ * another is set.
+ */
+public class CartEventBus
+{
+	/**
+	 * What to do with an event when an asynchronous listener's queue is full.
+	 */
+	public enum Overflow
+	{
+		/** Wait until the listener makes room. */
+		BLOCK,
+		/** Throw away the oldest waiting event. */
+		DROP_OLDEST
+	}
+
+	/**
+	 * A listener's place on the bus.
+	 */
+	public interface Subscription
+	{
+		/**
+		 * Stops delivering events to the listener. Events already queued for
+		 * an asynchronous listener are thrown away.
+		 */
+		void cancel();
+
+		/**
+		 * @return the number of events thrown away because the listener's queue was full
+		 */
+		long getDropped();
+
+		/**
+		 * @return the number of events an asynchronous listener threw on
+		 */
+		long getFailed();
+	}
+
+	/**
+	 * Told when an asynchronous listener throws.
+	 */
+	public interface ErrorHandler
+	{
+		/**
+		 * Called on the listener's thread, before it is handed the next event.
+		 *
+		 * @param event
+		 * 			The event the listener was handling.
+		 * @param error
+		 * 			What it threw.
+		 */
+		void listenerFailed(CartEvent event, RuntimeException error);
+	}
+
+	private static final Logger LOGGER = Logger.getLogger(CartEventBus.class.getName());
+
+	private static final ErrorHandler LOG_ERRORS = (event, error) ->
+		LOGGER.log(Level.WARNING, "cart event listener failed on " + event.getType(), error);
+
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	private final List<SyncSubscription> syncListeners = new CopyOnWriteArrayList<>();
+	private final List<AsyncSubscription> asyncListeners = new CopyOnWriteArrayList<>();
+	private volatile ErrorHandler errorHandler = LOG_ERRORS;
+
+	/**
+	 * Sets what is told when an asynchronous listener throws.
+	 *
+	 * @param handler
+	 * 			The handler, or null to go back to logging.
+	 */
+	public void setErrorHandler(ErrorHandler handler)
+	{
+		errorHandler = handler == null ? LOG_ERRORS : handler;
+	}
+
+	/**
+	 * Adds a listener called on the publishing thread.
+	 */
+	public Subscription subscribe(CartEventListener listener)
+	{
+		if (listener == null)
+			throw new NullPointerException("arguments cannot be null");
+		SyncSubscription s = new SyncSubscription(listener);
+		syncListeners.add(s);
+		return s;
+	}
+
+	/**
+	 * Adds a listener called on a thread of its own.
+	 *
+	 * @param listener
+	 * 			The listener.
+	 * @param capacity
+	 * 			Most events waiting for the listener at once.
+	 * @param overflow
+	 * 			What to do with an event when that many are waiting.
+	 */
+	public Subscription subscribeAsync(CartEventListener listener, int capacity, Overflow overflow)
+	{
+		if (listener == null || overflow == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be at least 1");
+		AsyncSubscription s = new AsyncSubscription(listener, capacity, overflow);
+		asyncListeners.add(s);
+		s.thread.start();
+		return s;
+	}
+
+	/**
+	 * @return whether anything is listening, so events need to be made at all
+	 */
+	public boolean hasSubscribers()
+	{
+		return !syncListeners.isEmpty() || !asyncListeners.isEmpty();
+	}
+
+	/**
+	 * Delivers an event to every listener. Synchronous listeners have been
+	 * called when this returns; asynchronous listeners have the event queued.
+	 */
+	public void publish(CartEvent event)
+	{
+		if (event == null)
+			throw new NullPointerException("arguments cannot be null");
+		for (SyncSubscription s : syncListeners)
+			s.listener.cartChanged(event);
+		for (AsyncSubscription s : asyncListeners)
+			s.offer(event);
+	}
+
+	/**
+	 * Cancels every subscription.
+	 */
+	public void close()
+	{
+		for (SyncSubscription s : syncListeners)
+			s.cancel();
+		for (AsyncSubscription s : asyncListeners)
+			s.cancel();
+	}
+
+	private final class SyncSubscription implements Subscription
+	{
+		final CartEventListener listener;
+
+		SyncSubscription(CartEventListener listener)
+		{
+			this.listener = listener;
+		}
+
+		@Override
+		public void cancel()
+		{
+			syncListeners.remove(this);
+		}
+
+		@Override
+		public long getDropped()
+		{
+			return 0;
+		}
+
+		@Override
+		public long getFailed()
+		{
+			// failures are thrown to the publisher
+			return 0;
+		}
+	}
+
+	private final class AsyncSubscription implements Subscription, Runnable
+	{
+		final CartEventListener listener;
+		final BlockingQueue<CartEvent> queue;
+		final Overflow overflow;
+		final Thread thread;
+		final AtomicLong dropped = new AtomicLong();
+		final AtomicLong failed = new AtomicLong();
+		volatile boolean cancelled = false;
+
+		AsyncSubscription(CartEventListener listener, int capacity, Overflow overflow)
+		{
+			this.listener = listener;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+			this.overflow = overflow;
+			this.thread = new Thread(this, "cart-events-" + threadNumber.incrementAndGet());
+			this.thread.setDaemon(true);
+		}
+
+		void offer(CartEvent event)
+		{
+			if (cancelled)
+				return;
+			if (overflow == Overflow.BLOCK)
+			{
+				try
+				{
+					queue.put(event);
+				}
+				catch (InterruptedException e)
+				{
+					dropped.incrementAndGet();
+					Thread.currentThread().interrupt();
+				}
+			}
+			else
+			{
+				while (!queue.offer(event))
+				{
+					if (queue.poll() != null)
+						dropped.incrementAndGet();
+				}
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			while (!cancelled)
+			{
+				CartEvent event;
+				try
+				{
+					event = queue.take();
+				}
+				catch (InterruptedException e)
+				{
+					continue;	// cancelled, most likely; the loop checks
+				}
+				try
+				{
+					listener.cartChanged(event);
+				}
+				catch (RuntimeException e)
+				{
+					// one bad event must not stop the listener hearing the rest
+					failed.incrementAndGet();
+					try
+					{
+						errorHandler.listenerFailed(event, e);
+					}
+					catch (RuntimeException handlerFailure)
+					{
+						LOGGER.log(Level.WARNING, "cart event error handler failed", handlerFailure);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void cancel()
+		{
+			cancelled = true;
+			asyncListeners.remove(this);
+			queue.clear();
+			thread.interrupt();
+		}
+
+		@Override
+		public long getDropped()
+		{
+			return dropped.get();
+		}
+
+		@Override
+		public long getFailed()
+		{
+			return failed.get();
+		}
+	}
+}
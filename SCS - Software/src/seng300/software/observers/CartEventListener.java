@@ -0,0 +1,12 @@
+package seng300.software.observers;
+
+/**
+ * Listens to the events of a cart, through its {@link CartEventBus}.
+ */
+public interface CartEventListener
+{
+	/**
+	 * Called for every event of the cart, in the order they happened.
+	 */
+	void cartChanged(CartEvent event);
+}
@@ -1,12 +1,21 @@
 package seng300.software.observers;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.lsmr.selfcheckout.products.BarcodedProduct;
 import org.lsmr.selfcheckout.products.PLUCodedProduct;
+import org.lsmr.selfcheckout.products.Product;
 
 import seng300.software.Cart;
 import seng300.software.PLUCodedWeightProduct;
 
-public class CartObserver
+/**
+ * Passes the events of a cart on to the bagging area. Subscribed
+ * synchronously, as the bagging area must block the scanners before the
+ * next item is scanned.
+ */
+public class CartObserver implements CartEventListener
 {
 	private BaggingAreaObserver baggingAreaObserver;
 	
@@ -15,12 +24,58 @@ public class CartObserver
 		this.baggingAreaObserver = bao;
 	}
 	
+	@Override
+	public void cartChanged(CartEvent event)
+	{
+		Cart cart = event.getCart();
+		Product p = event.getProduct();
+		switch (event.getType())
+		{
+		case ITEM_ADDED:
+			if (!event.isBagging())
+				notifyProductNoWeightCheck();
+			else if (event.getProducts().size() > 1)
+			{
+				List<BarcodedProduct> products = new ArrayList<>(event.getProducts().size());
+				for (Product item : event.getProducts())
+					products.add((BarcodedProduct)item);
+				notifyProductsAdded(cart, products);
+			}
+			else if (p instanceof BarcodedProduct)
+				notifyProductAdded(cart, (BarcodedProduct)p);
+			else
+				notifyPLUProductAdded(cart, (PLUCodedProduct)p, event.getWeight());
+			break;
+		case ITEM_REMOVED:
+		case ITEM_VOIDED:
+			if (p instanceof BarcodedProduct)
+				notifyProductRemoved(cart, (BarcodedProduct)p);
+			else
+				notifyPLUProductRemoved(cart, (PLUCodedWeightProduct)p);
+			break;
+		default:
+			// totals and bags do not change the bagging area
+			break;
+		}
+	}
+	
 	public void notifyProductAdded(Cart cart, BarcodedProduct p)
 	{
 		this.baggingAreaObserver.notifiedItemAdded(p);
 	}
 	
 
+	/**
+	 * Called once when several items are added to the cart together.
+	 * 
+	 * @param products
+	 * 			Every item added, in order. Not to be modified.
+	 */
+	public void notifyProductsAdded(Cart cart, List<BarcodedProduct> products)
+	{
+		this.baggingAreaObserver.notifiedItemsAdded(products);
+	}
+
 	public void notifyPLUProductAdded(Cart cart, PLUCodedProduct PLUProduct, double Weight)
 	{
 		this.baggingAreaObserver.notifiedPLUCodedItemAdded(PLUProduct, Weight);
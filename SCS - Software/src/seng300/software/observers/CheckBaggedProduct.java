@@ -1,8 +1,5 @@
 package seng300.software.observers;
 
-import java.time.Duration;
-import java.time.Instant;
-
 import org.lsmr.selfcheckout.products.BarcodedProduct;
 import org.lsmr.selfcheckout.products.Product;
 
@@ -15,34 +12,16 @@ public class CheckBaggedProduct implements Runnable {
 		baggingAreaObserver = bao;
 	}
 	
+	/**
+	 * Runs once the window for the item has passed, and blocks the station
+	 * if the item has still not been bagged.
+	 */
 	@Override
 	public void run() {
-		try {
-			
-			Instant start = Instant.now();
-			Instant end = Instant.now();
-			Duration elapsedTime = Duration.between(start, end);
-			while(!baggingAreaObserver.isCurrentItemBagged() && elapsedTime.getSeconds() < 5) {
-				end = Instant.now();
-				elapsedTime = Duration.between(start, end);
-			}
-			
-			if(baggingAreaObserver.isCurrentItemBagged() == false) {
-				baggingAreaObserver.setTimedOut(true);
-				baggingAreaObserver.blockScs();
-			}
-			
-			
-		} catch (Exception e) {
-			// TODO: handle exception
+		if(baggingAreaObserver.isCurrentItemBagged() == false) {
+			baggingAreaObserver.setTimedOut(true);
+			baggingAreaObserver.blockScs();
 		}
-			
-		
 	}
 
-	
-	
-	
-	
-
 }
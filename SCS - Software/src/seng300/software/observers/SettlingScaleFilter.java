@@ -0,0 +1,180 @@
+package seng300.software.observers;
+
+import java.util.concurrent.ScheduledFuture;
+
+import org.lsmr.selfcheckout.devices.AbstractDevice;
+import org.lsmr.selfcheckout.devices.ElectronicScale;
+import org.lsmr.selfcheckout.devices.OverloadException;
+import org.lsmr.selfcheckout.devices.observers.AbstractDeviceObserver;
+import org.lsmr.selfcheckout.devices.observers.ElectronicScaleObserver;
+
+/**
+ * Sits between a scale and an observer of it, and only passes on a weight
+ * once the scale has settled on it. A bag that sways as it is put down, or
+ * two items put down one after the other, reach the observer as one change.
+ *
+ * The scale has settled once it has announced no change for a whole window
+ * and a reading taken then is within the threshold of the last weight it
+ * announced. Each change announced starts the window again, and so does a
+ * reading outside the threshold. A settled weight within the reading noise
+ * of the weight last passed on is not passed on, since nothing has changed;
+ * any larger change is, however light, so the threshold only decides when
+ * the scale is still, not which items count.
+ *
+ * Overloads are passed on at once, as are the scale being enabled and
+ * disabled. Settled weights are passed on from the thread that runs the
+ * bagging timeouts, without holding the lock on this filter, so the observer
+ * downstream must guard its own state against the thread the scale runs on.
+ */
+public class SettlingScaleFilter implements ElectronicScaleObserver
+{
+	/**
+	 * Most a reading of the scale can differ from the weight on it, in grams.
+	 * A threshold below this would never see the scale settle.
+	 */
+	public static final double READING_NOISE = 0.1;
+
+	private final ElectronicScaleObserver downstream;
+	private final long windowMillis;
+	private final double threshold;
+
+	private ElectronicScale scale;
+	private double announcedWeight;		// last weight the scale announced
+	private double passedOnWeight;		// last weight passed on
+	private ScheduledFuture<?> pendingSettle;
+	private long generation = 0;		// so a settle check already running when cancelled does nothing
+
+	/**
+	 * @param downstream
+	 * 			Observer to pass settled weights on to.
+	 * @param windowMillis
+	 * 			How long the scale must announce no change, in milliseconds.
+	 * @param threshold
+	 * 			How far a reading may be from the weight announced, in grams.
+	 * 			At least {@link #READING_NOISE}.
+	 */
+	public SettlingScaleFilter(ElectronicScaleObserver downstream, long windowMillis, double threshold)
+	{
+		if (downstream == null)
+			throw new NullPointerException("arguments cannot be null");
+		if (windowMillis <= 0)
+			throw new IllegalArgumentException("window must be positive");
+		if (!(threshold >= READING_NOISE))
+			throw new IllegalArgumentException("threshold must be at least the scale's reading noise");
+		this.downstream = downstream;
+		this.windowMillis = windowMillis;
+		this.threshold = threshold;
+	}
+
+	public ElectronicScaleObserver getDownstream()
+	{
+		return downstream;
+	}
+
+	public long getWindowMillis()
+	{
+		return windowMillis;
+	}
+
+	public double getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Starts again from a weight, dropping any change not yet passed on, as
+	 * when the observer downstream is reset.
+	 */
+	public synchronized void reset(double weightInGrams)
+	{
+		cancelSettle();
+		announcedWeight = weightInGrams;
+		passedOnWeight = weightInGrams;
+	}
+
+	@Override
+	public void enabled(AbstractDevice<? extends AbstractDeviceObserver> device)
+	{
+		downstream.enabled(device);
+	}
+
+	@Override
+	public void disabled(AbstractDevice<? extends AbstractDeviceObserver> device)
+	{
+		downstream.disabled(device);
+	}
+
+	@Override
+	public synchronized void weightChanged(ElectronicScale scale, double weightInGrams)
+	{
+		this.scale = scale;
+		this.announcedWeight = weightInGrams;
+		scheduleSettle();
+	}
+
+	@Override
+	public void overload(ElectronicScale scale)
+	{
+		synchronized (this)
+		{
+			cancelSettle();
+		}
+		downstream.overload(scale);
+	}
+
+	@Override
+	public void outOfOverload(ElectronicScale scale)
+	{
+		downstream.outOfOverload(scale);
+	}
+
+	private void scheduleSettle()
+	{
+		cancelSettle();
+		long current = generation;
+		ElectronicScale settling = scale;
+		pendingSettle = BaggingTimeouts.schedule(() -> {
+			double settled = settle(current);
+			if (!Double.isNaN(settled))
+				downstream.weightChanged(settling, settled);
+		}, windowMillis);
+	}
+
+	private void cancelSettle()
+	{
+		generation++;
+		if (pendingSettle != null)
+		{
+			pendingSettle.cancel(false);
+			pendingSettle = null;
+		}
+	}
+
+	// Returns the weight to pass on, or NaN if there is none yet.
+	private synchronized double settle(long scheduled)
+	{
+		if (scheduled != generation)
+			return Double.NaN;
+		pendingSettle = null;
+		double reading;
+		try
+		{
+			reading = scale.getCurrentWeight();
+		}
+		catch (OverloadException e)
+		{
+			// already passed on, and the scale announces when it is out of overload
+			return Double.NaN;
+		}
+		if (Math.abs(reading - announcedWeight) > threshold)
+		{
+			// still moving by less than the scale announces
+			scheduleSettle();
+			return Double.NaN;
+		}
+		if (Math.abs(announcedWeight - passedOnWeight) < READING_NOISE)
+			return Double.NaN;
+		passedOnWeight = announcedWeight;
+		return announcedWeight;
+	}
+}
@@ -0,0 +1,176 @@
+package seng300.software.observers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lsmr.selfcheckout.PriceLookupCode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+import org.lsmr.selfcheckout.products.Product;
+
+import seng300.software.PLUCodedWeightProduct;
+
+/**
+ * Expected weight of the items in the bagging area, kept up to date as items
+ * are added and removed so that it never has to be added up again.
+ *
+ * Items are counted by barcode, or by PLU code and weight, so finding
+ * whether a product is bagged takes the same time however many items are.
+ * The total is a compensated (Kahan) sum, so it does not drift from the
+ * true sum however many items come and go.
+ */
+final class WeightLedger
+{
+	private final Map<Object, Integer> counts = new HashMap<>();
+	private int size = 0;
+	private double total = 0;
+	private double compensation = 0;	// low-order bits lost from total
+
+	/**
+	 * Counts one item.
+	 */
+	void add(Product product)
+	{
+		counts.merge(keyOf(product), 1, Integer::sum);
+		size++;
+		accumulate(weightOf(product));
+	}
+
+	/**
+	 * Stops counting one item.
+	 *
+	 * @return false if there is no such item to stop counting
+	 */
+	boolean remove(Product product)
+	{
+		Object key = keyOf(product);
+		Integer count = counts.get(key);
+		if (count == null)
+			return false;
+		if (count == 1)
+			counts.remove(key);
+		else
+			counts.put(key, count - 1);
+		size--;
+		if (size == 0)
+		{
+			// start again from exactly nothing
+			total = 0;
+			compensation = 0;
+		}
+		else
+			accumulate(-weightOf(product));
+		return true;
+	}
+
+	/**
+	 * @return true if an item matching the product is counted
+	 */
+	boolean contains(Product product)
+	{
+		return counts.containsKey(keyOf(product));
+	}
+
+	/**
+	 * @return the number of items matching the product
+	 */
+	int count(Product product)
+	{
+		Integer count = counts.get(keyOf(product));
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * @return the expected weight of all the items, in grams
+	 */
+	double getTotal()
+	{
+		return total - compensation;
+	}
+
+	/**
+	 * @return the number of items
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Stops counting every item.
+	 */
+	void clear()
+	{
+		counts.clear();
+		size = 0;
+		total = 0;
+		compensation = 0;
+	}
+
+	private void accumulate(double weight)
+	{
+		double y = weight - compensation;
+		double t = total + y;
+		compensation = (t - total) - y;
+		total = t;
+	}
+
+	/**
+	 * @return the weight an item of the product is expected to have, in grams
+	 */
+	static double weightOf(Product product)
+	{
+		if (product instanceof BarcodedProduct)
+			return ((BarcodedProduct)product).getExpectedWeight();
+		if (product instanceof PLUCodedWeightProduct)
+			return ((PLUCodedWeightProduct)product).getWeight();
+		return 0;
+	}
+
+	/**
+	 * @return true if items of the two products would be counted together
+	 */
+	static boolean sameItem(Product a, Product b)
+	{
+		return keyOf(a).equals(keyOf(b));
+	}
+
+	// Items match if they have the same barcode, or the same PLU code and weight.
+	private static Object keyOf(Product product)
+	{
+		if (product instanceof BarcodedProduct)
+			return ((BarcodedProduct)product).getBarcode();
+		if (product instanceof PLUCodedWeightProduct)
+		{
+			PLUCodedWeightProduct p = (PLUCodedWeightProduct)product;
+			return new WeighedCode(p.getPLUCode(), p.getWeight());
+		}
+		return product;
+	}
+
+	private static final class WeighedCode
+	{
+		private final PriceLookupCode code;
+		private final double weight;
+
+		WeighedCode(PriceLookupCode code, double weight)
+		{
+			this.code = code;
+			this.weight = weight;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof WeighedCode))
+				return false;
+			WeighedCode that = (WeighedCode)other;
+			return code.equals(that.code) && weight == that.weight;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * code.hashCode() + Double.hashCode(weight + 0.0); // -0.0 == 0.0
+		}
+	}
+}
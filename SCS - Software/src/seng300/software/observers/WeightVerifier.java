@@ -0,0 +1,213 @@
+package seng300.software.observers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.lsmr.selfcheckout.Barcode;
+import org.lsmr.selfcheckout.products.BarcodedProduct;
+
+/**
+ * Decides whether a weight seen by the bagging area scale is the item the
+ * customer was asked to bag or take out.
+ *
+ * A weight is compared against the weight the item is expected to have,
+ * allowing for the noise in the scale's readings and for how much items of
+ * the product really vary. The
+ * variation is learned from the items accepted so far: once a product has
+ * been bagged a few times, the mean and variance of what was seen are used
+ * in place of the weight in the database.
+ *
+ * A weight is accepted if it is within a set number of standard deviations
+ * of what was expected, left to an attendant if it is within a larger
+ * number, and rejected otherwise. One verifier can be shared by stations
+ * whose scales are equally noisy, so they learn together.
+ */
+public class WeightVerifier
+{
+	/**
+	 * What to do with the item weighed.
+	 */
+	public enum Verdict
+	{
+		/** The weight is the item's. */
+		ACCEPT,
+		/** The weight might be the item's, so an attendant should check. */
+		ATTENDANT,
+		/** The weight is not the item's. */
+		REJECT
+	}
+
+	public static final double DEFAULT_ACCEPT_DEVIATIONS		= 3;
+	public static final double DEFAULT_ATTENDANT_DEVIATIONS	= 6;
+
+	/**
+	 * Number of items of a product that must be accepted before what was
+	 * learned from them is used.
+	 */
+	public static final int MIN_SAMPLES = 5;
+
+	private final double scaleVariance;
+	private volatile double acceptDeviations		= DEFAULT_ACCEPT_DEVIATIONS;
+	private volatile double attendantDeviations		= DEFAULT_ATTENDANT_DEVIATIONS;
+	private final Map<Barcode, WeightStats> learned	= new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a verifier for scales as noisy as the simulated one.
+	 */
+	public WeightVerifier()
+	{
+		this(SettlingScaleFilter.READING_NOISE);
+	}
+
+	/**
+	 * @param readingNoise
+	 * 			Most a reading of the scale can be over the weight on it, in grams.
+	 */
+	public WeightVerifier(double readingNoise)
+	{
+		if (readingNoise < 0)
+			throw new IllegalArgumentException("reading noise cannot be negative");
+		// a weight is the difference of two readings, each over by anything up to the noise
+		this.scaleVariance = readingNoise * readingNoise / 6;
+	}
+
+	/**
+	 * Sets how sure the verifier must be. Weights are accepted up to the
+	 * first number of standard deviations from what was expected, and left
+	 * to an attendant up to the second.
+	 */
+	public void setConfidence(double acceptDeviations, double attendantDeviations)
+	{
+		if (acceptDeviations <= 0 || attendantDeviations < acceptDeviations)
+			throw new IllegalArgumentException("deviations must be positive, and attendant at least accept");
+		this.acceptDeviations = acceptDeviations;
+		this.attendantDeviations = attendantDeviations;
+	}
+
+	public double getAcceptDeviations()
+	{
+		return acceptDeviations;
+	}
+
+	public double getAttendantDeviations()
+	{
+		return attendantDeviations;
+	}
+
+	/**
+	 * Checks the weight of one item of a product.
+	 */
+	public Verdict verify(BarcodedProduct product, double weight)
+	{
+		WeightStats stats = learned.get(product.getBarcode());
+		if (stats != null && stats.count() >= MIN_SAMPLES)
+			return verdict(weight, stats.mean(), stats.variance());
+		return verdict(weight, product.getExpectedWeight(), 0);
+	}
+
+	/**
+	 * Checks the weight of several items placed together.
+	 */
+	public Verdict verify(List<BarcodedProduct> products, double weight)
+	{
+		double mean = 0;
+		double variance = 0;
+		for (BarcodedProduct p : products)
+		{
+			WeightStats stats = learned.get(p.getBarcode());
+			if (stats != null && stats.count() >= MIN_SAMPLES)
+			{
+				mean += stats.mean();
+				variance += stats.variance();
+			}
+			else
+				mean += p.getExpectedWeight();
+		}
+		return verdict(weight, mean, variance);
+	}
+
+	/**
+	 * Checks the weight of an item whose weight is known, such as one
+	 * weighed when it was scanned.
+	 */
+	public Verdict verify(double expectedWeight, double weight)
+	{
+		return verdict(weight, expectedWeight, 0);
+	}
+
+	/**
+	 * Learns from the weight of an accepted item of a product.
+	 */
+	public void learn(BarcodedProduct product, double weight)
+	{
+		learned.computeIfAbsent(product.getBarcode(), code -> new WeightStats()).add(weight);
+	}
+
+	/**
+	 * @return the weight an item of the product is expected to have, in grams
+	 */
+	public double getExpectedWeight(BarcodedProduct product)
+	{
+		WeightStats stats = learned.get(product.getBarcode());
+		if (stats != null && stats.count() >= MIN_SAMPLES)
+			return stats.mean();
+		return product.getExpectedWeight();
+	}
+
+	/**
+	 * Forgets everything learned, for example after the database changes.
+	 */
+	public void forget()
+	{
+		learned.clear();
+	}
+
+	private Verdict verdict(double weight, double mean, double variance)
+	{
+		double deviation = Math.abs(weight - mean);
+		double sd = Math.sqrt(variance + scaleVariance);
+		if (sd == 0)
+			// a perfect scale, so nothing to allow for but rounding
+			return deviation < 1E-10 ? Verdict.ACCEPT : Verdict.REJECT;
+		if (deviation <= acceptDeviations * sd)
+			return Verdict.ACCEPT;
+		if (deviation <= attendantDeviations * sd)
+			return Verdict.ATTENDANT;
+		return Verdict.REJECT;
+	}
+
+	/**
+	 * Running mean and variance of the weights seen for a product
+	 * (Welford's method), so no weight has to be kept.
+	 */
+	private static final class WeightStats
+	{
+		private long count	= 0;
+		private double mean	= 0;
+		private double m2	= 0;	// sum of squared differences from the mean
+
+		synchronized void add(double weight)
+		{
+			count++;
+			double delta = weight - mean;
+			mean += delta / count;
+			m2 += delta * (weight - mean);
+		}
+
+		synchronized long count()
+		{
+			return count;
+		}
+
+		synchronized double mean()
+		{
+			return mean;
+		}
+
+		synchronized double variance()
+		{
+			return count < 2 ? 0 : m2 / (count - 1);
+		}
+	}
+}